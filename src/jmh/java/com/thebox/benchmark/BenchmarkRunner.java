@@ -0,0 +1,183 @@
+package com.thebox.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks and compares them with the stored baseline; exits non-zero if any got
+ * slower, or allocates more per operation, than the threshold allows. Run through
+ * {@code mvn -Pbenchmarks verify}; settings come from {@code benchmark.*} system properties
+ * (see the profile in pom.xml).
+ * <p>
+ * Absolute scores only mean something on the machine that recorded them, so times are not
+ * compared directly: each benchmark's time per operation is divided by that of
+ * {@link ReferenceBenchmark} from the same run, and those ratios are compared. A baseline
+ * recorded on a laptop can then gate a CI runner of a different speed. Allocation per
+ * operation does not depend on the machine and is compared as measured. After an intended
+ * performance change, or a JDK upgrade, re-record with {@code -Dbenchmark.updateBaseline=true}.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private static final String REFERENCE = "benchmark.ReferenceBenchmark.sortAndIndex";
+
+    // Allocation differences below this many bytes per operation are noise (e.g. TLAB refills)
+    private static final double ALLOCATION_SLACK_BYTES = 256;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path result = Path.of(System.getProperty("benchmark.result", "target/jmh-result.json"));
+        Path baseline = Path.of(System.getProperty("benchmark.baseline", "src/jmh/benchmark-baseline.json"));
+        double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "0.25"));
+        double allocationThreshold = Double.parseDouble(System.getProperty("benchmark.allocationThreshold", "0.10"));
+        Files.createDirectories(result.toAbsolutePath().getParent());
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("benchmark.include", "com\\.thebox\\..*Benchmark"))
+                // Always run, whatever benchmark.include selects: the time comparison needs it
+                .include(Pattern.quote(ReferenceBenchmark.class.getName()))
+                .forks(Integer.getInteger("benchmark.forks", 1))
+                .warmupIterations(Integer.getInteger("benchmark.warmupIterations", 3))
+                .warmupTime(TimeValue.seconds(Integer.getInteger("benchmark.iterationSeconds", 2)))
+                .measurementIterations(Integer.getInteger("benchmark.iterations", 5))
+                .measurementTime(TimeValue.seconds(Integer.getInteger("benchmark.iterationSeconds", 2)))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString());
+        new Runner(options.build()).run();
+
+        if (Boolean.getBoolean("benchmark.updateBaseline")) {
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.println("No baseline at " + baseline + "; record one with -Dbenchmark.updateBaseline=true");
+            return;
+        }
+
+        List<String> regressions = compare(read(baseline), read(result), threshold, allocationThreshold);
+        if (!regressions.isEmpty()) {
+            System.out.println();
+            System.out.println(regressions.size() + " regression(s) against " + baseline + ":");
+            regressions.forEach(regression -> System.out.println("  " + regression));
+            System.exit(1);
+        }
+        System.out.println("No regressions against " + baseline);
+    }
+
+    private static List<String> compare(Map<String, JsonNode> baseline, Map<String, JsonNode> current,
+                                        double threshold, double allocationThreshold) {
+        List<String> regressions = new ArrayList<>();
+        JsonNode referenceBefore = baseline.get(REFERENCE);
+        JsonNode referenceNow = current.get(REFERENCE);
+        // How much slower this machine and JVM are than the ones that recorded the baseline
+        Double speed = referenceBefore != null && referenceNow != null
+                ? timePerOp(referenceNow) / timePerOp(referenceBefore)
+                : null;
+        System.out.println();
+        if (speed == null) {
+            System.out.println("No " + REFERENCE + " run in both the baseline and this run; times are not compared. "
+                    + "Re-record the baseline with -Dbenchmark.updateBaseline=true");
+        } else {
+            System.out.printf("Reference benchmark: %.2fx the baseline's time per operation%n", speed);
+        }
+        System.out.printf("%-70s %14s %14s %8s %10s %12s %12s%n",
+                "benchmark", "baseline", "current", "change", "relative", "B/op base", "B/op now");
+        current.forEach((key, run) -> {
+            JsonNode before = baseline.get(key);
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f%n", key, "(new)", score(run));
+                return;
+            }
+            double change = (score(run) - score(before)) / score(before);
+            // Change in time per operation once the reference's own change is taken out
+            Double relative = speed != null && !key.equals(REFERENCE)
+                    ? timePerOp(run) / timePerOp(before) / speed - 1
+                    : null;
+            Double allocationBefore = allocation(before);
+            Double allocationNow = allocation(run);
+            System.out.printf("%-70s %14.3f %14.3f %+7.1f%% %10s %12s %12s%n", key, score(before), score(run), change * 100,
+                    relative != null ? String.format("%+.1f%%", relative * 100) : "-",
+                    format(allocationBefore), format(allocationNow));
+
+            String unit = run.path("primaryMetric").path("scoreUnit").asText();
+            if (relative != null && relative > threshold) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s (%+.1f%% relative to the reference, threshold %.0f%%)",
+                        key, score(before), score(run), unit, relative * 100, threshold * 100));
+            }
+            if (allocationBefore != null && allocationNow != null
+                    && allocationNow - allocationBefore > ALLOCATION_SLACK_BYTES
+                    && allocationNow > allocationBefore * (1 + allocationThreshold)) {
+                regressions.add(String.format("%s: allocates %.0f -> %.0f B/op (threshold %.0f%%)",
+                        key, allocationBefore, allocationNow, allocationThreshold * 100));
+            }
+        });
+        return regressions;
+    }
+
+    /**
+     * Runs keyed by benchmark method and parameters.
+     */
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> runs = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            String benchmark = run.path("benchmark").asText().replace("com.thebox.", "");
+            Map<String, String> params = new TreeMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> it = run.path("params").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> param = it.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            runs.put(params.isEmpty() ? benchmark : benchmark + params, run);
+        }
+        return runs;
+    }
+
+    private static double score(JsonNode run) {
+        return run.path("primaryMetric").path("score").asDouble();
+    }
+
+    /**
+     * Time per operation in the run's own unit; throughput is inverted, every other mode
+     * measures time already. Only ever divided by the same benchmark's value from another run.
+     */
+    private static double timePerOp(JsonNode run) {
+        return run.path("mode").asText().equals("thrpt") ? 1 / score(run) : score(run);
+    }
+
+    private static Double allocation(JsonNode run) {
+        for (Iterator<Map.Entry<String, JsonNode>> it = run.path("secondaryMetrics").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> metric = it.next();
+            // Older JMH versions prefix secondary metric names with a middle dot
+            if (metric.getKey().replace("·", "").equals(ALLOCATION)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return null;
+    }
+
+    private static String format(Double bytes) {
+        return bytes != null ? String.format("%.0f", bytes) : "-";
+    }
+}
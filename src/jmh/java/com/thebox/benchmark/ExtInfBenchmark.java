@@ -0,0 +1,55 @@
+package com.thebox.benchmark;
+
+import com.thebox.ingest.FeedFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code SimpleTheBox.parseExtInfLine} per #EXTINF line of the snapshot playlist. SimpleTheBox
+ * lives in the default package, so it is compiled next to the benchmarks and called reflectively.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExtInfBenchmark {
+
+    // Lines in fixtures/playlist.m3u starting with #EXTINF
+    private static final int LINES = 47;
+
+    private MethodHandle parseExtInfLine;
+    private String[] lines;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Class<?> simpleTheBox = Class.forName("SimpleTheBox");
+        parseExtInfLine = MethodHandles.privateLookupIn(simpleTheBox, MethodHandles.lookup())
+                .findStatic(simpleTheBox, "parseExtInfLine", MethodType.methodType(Map.class, String.class));
+        lines = FeedFixtures.load("snapshot").playlistLines().stream()
+                .filter(line -> line.startsWith("#EXTINF"))
+                .toArray(String[]::new);
+        if (lines.length != LINES) {
+            throw new IllegalStateException("Expected " + LINES + " #EXTINF lines, found " + lines.length);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parseExtInfLine(Blackhole blackhole) throws Throwable {
+        for (String line : lines) {
+            blackhole.consume((Map<?, ?>) parseExtInfLine.invoke(line));
+        }
+    }
+}
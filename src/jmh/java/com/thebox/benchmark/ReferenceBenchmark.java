@@ -0,0 +1,51 @@
+package com.thebox.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Yardstick for {@link BenchmarkRunner}: JDK-only work of the same kind as the catalog code
+ * (sorting names, hashing them into a map), touching nothing in this project. Its score only
+ * changes with the machine and JVM, so other scores are compared relative to it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReferenceBenchmark {
+
+    private static final int NAMES = 10_000;
+
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        // Fixed seed: every run sorts the same input
+        Random random = new Random(42);
+        names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = "Channel " + Integer.toString(random.nextInt(1 << 24), 36) + " " + i;
+        }
+    }
+
+    @Benchmark
+    public Map<String, Integer> sortAndIndex() {
+        String[] sorted = names.clone();
+        Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+        Map<String, Integer> positions = new HashMap<>(NAMES * 2);
+        for (int i = 0; i < sorted.length; i++) {
+            positions.put(sorted[i], i);
+        }
+        return positions;
+    }
+}
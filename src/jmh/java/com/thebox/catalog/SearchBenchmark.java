@@ -0,0 +1,63 @@
+package com.thebox.catalog;
+
+import com.thebox.ingest.FeedFixtures;
+import com.thebox.model.Channel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /iptv/search lookups against the snapshot's {@link ChannelSearchIndex}, with the default
+ * result limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    private static final int LIMIT = 50;
+
+    @Param({"synthetic-40000"})
+    public String dataset;
+
+    private ChannelSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = ChannelSearchIndex.build(FeedFixtures.load(dataset).channels());
+    }
+
+    /**
+     * A word most names contain: many postings, ranking dominates.
+     */
+    @Benchmark
+    public List<Channel> commonWord() {
+        return index.search("news", null, null, LIMIT);
+    }
+
+    @Benchmark
+    public List<Channel> multiWordPrefix() {
+        return index.search("bbc wor", null, null, LIMIT);
+    }
+
+    /**
+     * No exact match; falls back to trigram similarity.
+     */
+    @Benchmark
+    public List<Channel> typo() {
+        return index.search("spotrs internatonal", null, null, LIMIT);
+    }
+
+    @Benchmark
+    public List<Channel> countryAndCategory() {
+        return index.search("sports", "US", "sports", LIMIT);
+    }
+}
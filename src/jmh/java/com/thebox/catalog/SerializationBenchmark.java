@@ -0,0 +1,61 @@
+package com.thebox.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thebox.ingest.FeedFixtures;
+import com.thebox.model.Channel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of full {@link Channel} lists, as done for each rendered
+ * /countries/{cc}/channels?all=true body and the non-paginated list endpoints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    @Param({"synthetic-40000"})
+    public String dataset;
+
+    private ObjectMapper objectMapper;
+    private List<Channel> allChannels;
+    private List<Channel> countryChannels;
+
+    @Setup
+    public void setUp() {
+        objectMapper = FeedFixtures.objectMapper();
+        allChannels = FeedFixtures.load(dataset).channels();
+        // Stored channels carry probe timestamps
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (Channel channel : allChannels) {
+            channel.setCreatedAt(now);
+            channel.setUpdatedAt(now);
+            channel.setLastProbedAt(now);
+            channel.setLastOnlineAt(now);
+            channel.setNextProbeAt(now.plusMinutes(30));
+        }
+        countryChannels = allChannels.stream().filter(channel -> "US".equals(channel.getCountryCode())).toList();
+    }
+
+    @Benchmark
+    public byte[] country() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(countryChannels);
+    }
+
+    @Benchmark
+    public byte[] allChannels() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(allChannels);
+    }
+}
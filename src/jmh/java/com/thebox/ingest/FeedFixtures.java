@@ -0,0 +1,245 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thebox.model.Channel;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The three iptv-org feeds and an M3U playlist for the benchmarks. {@code snapshot} is the
+ * small sample checked in under {@code fixtures/}; {@code synthetic-<n>} generates <n> channels
+ * with the same schema and roughly the upstream mix of variants, logos, non-HLS and orphaned
+ * streams. Generated data only depends on n, so runs stay comparable.
+ */
+public final class FeedFixtures {
+
+    // Network reads arrive in chunks of about this size
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final String[] BRANDS = {"Al", "BBC", "CNN", "Fox", "Sky", "Zee", "Star", "Rai", "TRT", "NHK", "ABC",
+            "CBS", "NBC", "DW", "France", "Canal", "Tele", "Globo", "Antena", "Kanal", "Nova", "Rede", "Sony", "Colors"};
+    private static final String[] WORDS = {"News", "Sports", "Movies", "Kids", "Music", "World", "International", "Plus",
+            "One", "Gold", "Cinema", "Action", "Comedy", "Life", "Family", "Business", "Weather", "Classic", "Latino",
+            "Arabic", "Hindi", "Deutsch", "Español", "Documentary", "Nature", "Travel", "Food", "Junior", "Max", "Live"};
+    private static final String[] COUNTRIES = {"US", "UK", "IN", "FR", "DE", "ES", "IT", "BR", "MX", "TR", "AR", "RU",
+            "CN", "JP", "AU", "CA", "NG", "EG", "PK", "ID"};
+    private static final String[] CATEGORIES = {"news", "sports", "movies", "kids", "music", "general", "entertainment",
+            "business", "religious", "documentary", "lifestyle", "education"};
+    private static final String[] LANGUAGES = {"eng", "spa", "hin", "fra", "deu", "ara", "por", "tur", "rus", "zho"};
+    private static final String[] QUALITIES = {"1080p", "720p", "576p", "480p", null};
+
+    private final byte[] channelsJson;
+    private final byte[] logosJson;
+    private final byte[] streamsJson;
+    private final List<String> playlistLines;
+
+    private FeedFixtures(byte[] channelsJson, byte[] logosJson, byte[] streamsJson, List<String> playlistLines) {
+        this.channelsJson = channelsJson;
+        this.logosJson = logosJson;
+        this.streamsJson = streamsJson;
+        this.playlistLines = playlistLines;
+    }
+
+    /**
+     * @param dataset {@code snapshot} or {@code synthetic-<channels>}
+     */
+    public static FeedFixtures load(String dataset) {
+        if (dataset.equals("snapshot")) {
+            return new FeedFixtures(resource("channels.json"), resource("logos.json"), resource("streams.json"),
+                    new String(resource("playlist.m3u"), StandardCharsets.UTF_8).lines().toList());
+        }
+        if (dataset.startsWith("synthetic-")) {
+            return synthetic(Integer.parseInt(dataset.substring("synthetic-".length())));
+        }
+        throw new IllegalArgumentException("Unknown dataset: " + dataset);
+    }
+
+    public byte[] channelsJson() {
+        return channelsJson;
+    }
+
+    public byte[] logosJson() {
+        return logosJson;
+    }
+
+    public byte[] streamsJson() {
+        return streamsJson;
+    }
+
+    public List<String> playlistLines() {
+        return playlistLines;
+    }
+
+    /**
+     * Runs the ingest path over the feeds, giving the channels a refresh would store, with ids.
+     */
+    public List<Channel> channels() {
+        JsonArrayStreamReader reader = reader(objectMapper());
+        Map<String, ChannelEntry> channelsMetadata = new HashMap<>();
+        reader.readElements(chunks(channelsJson), ChannelEntry.class)
+                .doOnNext(entry -> channelsMetadata.put(entry.id(), entry))
+                .blockLast();
+        Map<String, String> logos = new HashMap<>();
+        reader.readElements(chunks(logosJson), LogoEntry.class)
+                .doOnNext(entry -> CatalogRefresher.selectLogo(logos, entry))
+                .blockLast();
+        StreamsCollector collector = new StreamsCollector(UpstreamMetadata.EMPTY.withChannels(channelsMetadata).withLogos(logos));
+        reader.readElements(chunks(streamsJson), StreamEntry.class)
+                .doOnNext(collector::accept)
+                .blockLast();
+
+        List<Channel> channels = new ArrayList<>(collector.channels());
+        for (int i = 0; i < channels.size(); i++) {
+            channels.get(i).setId(i + 1L);
+        }
+        return channels;
+    }
+
+    /**
+     * The ObjectMapper Spring Boot would configure: Java time support, ISO dates.
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    public static JsonArrayStreamReader reader(ObjectMapper objectMapper) {
+        JsonArrayStreamReader reader = new JsonArrayStreamReader();
+        ReflectionTestUtils.setField(reader, "objectMapper", objectMapper);
+        return reader;
+    }
+
+    public static Flux<DataBuffer> chunks(byte[] body) {
+        return DataBufferUtils.readInputStream(() -> new ByteArrayInputStream(body),
+                DefaultDataBufferFactory.sharedInstance, CHUNK_SIZE);
+    }
+
+    private static byte[] resource(String name) {
+        try {
+            return new ClassPathResource("fixtures/" + name).getContentAsByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FeedFixtures synthetic(int count) {
+        Random random = new Random(count);
+        ByteArrayOutputStream channels = new ByteArrayOutputStream();
+        ByteArrayOutputStream logos = new ByteArrayOutputStream();
+        ByteArrayOutputStream streams = new ByteArrayOutputStream();
+        List<String> playlist = new ArrayList<>();
+        playlist.add("#EXTM3U");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (JsonGenerator channelsOut = objectMapper.createGenerator(channels);
+             JsonGenerator logosOut = objectMapper.createGenerator(logos);
+             JsonGenerator streamsOut = objectMapper.createGenerator(streams)) {
+            channelsOut.writeStartArray();
+            logosOut.writeStartArray();
+            streamsOut.writeStartArray();
+            for (int i = 0; i < count; i++) {
+                String name = pick(random, BRANDS) + " " + pick(random, WORDS)
+                        + (random.nextInt(3) == 0 ? " " + pick(random, WORDS) : "")
+                        + (random.nextInt(4) == 0 ? " " + (1 + random.nextInt(9)) : "");
+                String country = pick(random, COUNTRIES);
+                String id = name.replaceAll("[^A-Za-z0-9]", "") + i + "." + country.toLowerCase();
+                String category = pick(random, CATEGORIES);
+                String logo = "https://i.imgur.com/" + Integer.toString(i, 36) + ".png";
+
+                channelsOut.writeStartObject();
+                channelsOut.writeStringField("id", id);
+                channelsOut.writeStringField("name", name);
+                channelsOut.writeArrayFieldStart("alt_names");
+                channelsOut.writeEndArray();
+                channelsOut.writeNullField("network");
+                channelsOut.writeArrayFieldStart("owners");
+                channelsOut.writeEndArray();
+                channelsOut.writeStringField("country", country);
+                channelsOut.writeNullField("subdivision");
+                channelsOut.writeNullField("city");
+                channelsOut.writeArrayFieldStart("categories");
+                channelsOut.writeString(category);
+                channelsOut.writeEndArray();
+                channelsOut.writeBooleanField("is_nsfw", false);
+                channelsOut.writeNullField("launched");
+                channelsOut.writeNullField("closed");
+                channelsOut.writeNullField("replaced_by");
+                channelsOut.writeStringField("website", "https://www." + id.toLowerCase() + ".example.com/");
+                channelsOut.writeEndObject();
+
+                // Most channels have a single logo, some a small and a wide one
+                int logoCount = random.nextInt(10) < 7 ? 1 : 2;
+                for (int l = 0; l < logoCount; l++) {
+                    logosOut.writeStartObject();
+                    logosOut.writeStringField("channel", id);
+                    logosOut.writeNullField("feed");
+                    logosOut.writeArrayFieldStart("tags");
+                    logosOut.writeEndArray();
+                    logosOut.writeNumberField("width", l == 0 ? 80 : 512);
+                    logosOut.writeNumberField("height", l == 0 ? 80 : 288);
+                    logosOut.writeStringField("format", "PNG");
+                    logosOut.writeStringField("url", logo);
+                    logosOut.writeEndObject();
+                }
+
+                // About a third of the channels have streams at all, some several or non-HLS ones
+                if (random.nextInt(3) != 0) {
+                    continue;
+                }
+                int streamCount = 1 + (random.nextInt(4) == 0 ? random.nextInt(3) : 0);
+                for (int s = 0; s < streamCount; s++) {
+                    String url = random.nextInt(12) == 0
+                            ? "rtmp://live" + s + ".example.net/" + id
+                            : "https://live" + s + ".example.net/" + id + "/index.m3u8";
+                    String quality = pick(random, QUALITIES);
+                    writeStream(streamsOut, id, name, url, quality);
+                    playlist.add("#EXTINF:-1 tvg-id=\"" + id + "\" tvg-logo=\"" + logo + "\" group-title=\""
+                            + category + "\"," + name + (quality != null ? " (" + quality + ")" : ""));
+                    playlist.add(url);
+                }
+            }
+            // Streams whose channel is not in channels.json
+            for (int i = 0; i < count / 20; i++) {
+                writeStream(streamsOut, null, "Local " + i, "https://local.example.com/" + i + ".m3u8", null);
+            }
+            channelsOut.writeEndArray();
+            logosOut.writeEndArray();
+            streamsOut.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new FeedFixtures(channels.toByteArray(), logos.toByteArray(), streams.toByteArray(), playlist);
+    }
+
+    private static void writeStream(JsonGenerator out, String channel, String title, String url, String quality) throws IOException {
+        out.writeStartObject();
+        out.writeStringField("channel", channel);
+        out.writeNullField("feed");
+        out.writeStringField("title", title);
+        out.writeStringField("url", url);
+        out.writeNullField("referrer");
+        out.writeNullField("user_agent");
+        out.writeStringField("quality", quality);
+        out.writeEndObject();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,88 @@
+package com.thebox.ingest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The refresh's parse phases: each feed streamed through {@link JsonArrayStreamReader} in
+ * network-sized chunks, and the per-element work done on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IngestBenchmark {
+
+    // synthetic-40000 is about the size of the upstream channels.json
+    @Param({"snapshot", "synthetic-40000"})
+    public String dataset;
+
+    private FeedFixtures fixtures;
+    private JsonArrayStreamReader reader;
+    private UpstreamMetadata metadata;
+    private List<LogoEntry> logoEntries;
+
+    @Setup
+    public void setUp() {
+        fixtures = FeedFixtures.load(dataset);
+        reader = FeedFixtures.reader(FeedFixtures.objectMapper());
+        logoEntries = reader.readElements(FeedFixtures.chunks(fixtures.logosJson()), LogoEntry.class).collectList().block();
+        metadata = parseChannels().withLogos(selectLogos());
+    }
+
+    /**
+     * channels.json parsed and compacted into {@link UpstreamMetadata}.
+     */
+    @Benchmark
+    public UpstreamMetadata parseChannels() {
+        Map<String, ChannelEntry> entries = new HashMap<>();
+        reader.readElements(FeedFixtures.chunks(fixtures.channelsJson()), ChannelEntry.class)
+                .doOnNext(entry -> entries.put(entry.id(), entry))
+                .blockLast();
+        return UpstreamMetadata.EMPTY.withChannels(entries);
+    }
+
+    @Benchmark
+    public Map<String, String> parseLogos() {
+        Map<String, String> logos = new HashMap<>();
+        reader.readElements(FeedFixtures.chunks(fixtures.logosJson()), LogoEntry.class)
+                .doOnNext(entry -> CatalogRefresher.selectLogo(logos, entry))
+                .blockLast();
+        return logos;
+    }
+
+    /**
+     * Logo selection alone, over already parsed entries.
+     */
+    @Benchmark
+    public Map<String, String> selectLogos() {
+        Map<String, String> logos = new HashMap<>();
+        for (LogoEntry entry : logoEntries) {
+            CatalogRefresher.selectLogo(logos, entry);
+        }
+        return logos;
+    }
+
+    /**
+     * streams.json parsed and turned into channels and variants, as before the upsert.
+     */
+    @Benchmark
+    public StreamsCollector parseStreams() {
+        StreamsCollector collector = new StreamsCollector(metadata);
+        reader.readElements(FeedFixtures.chunks(fixtures.streamsJson()), StreamEntry.class)
+                .doOnNext(collector::accept)
+                .blockLast();
+        collector.variants();
+        return collector;
+    }
+}
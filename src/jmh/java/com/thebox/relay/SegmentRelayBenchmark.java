@@ -0,0 +1,87 @@
+package com.thebox.relay;
+
+import com.sun.net.httpserver.HttpServer;
+import com.thebox.config.WebClientConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segments relayed from a local origin to a discarding player. {@code miss} fetches every
+ * segment from the origin while filling the off-heap cache; {@code hit} serves one cached
+ * segment. With the GC profiler, gc.alloc.rate.norm shows the heap allocated per segment,
+ * which should stay far below the segment size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SegmentRelayBenchmark {
+
+    @Param({"1048576"})
+    public int segmentSize;
+
+    @Param({"miss", "hit"})
+    public String cache;
+
+    private HttpServer origin;
+    private ExecutorService originThreads;
+    private SegmentRelay relay;
+    private String baseUrl;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] segment = new byte[segmentSize];
+        origin = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        origin.createContext("/", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "video/mp2t");
+            exchange.sendResponseHeaders(200, segment.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(segment);
+            }
+        });
+        originThreads = Executors.newFixedThreadPool(4);
+        origin.setExecutor(originThreads);
+        origin.start();
+        baseUrl = "http://127.0.0.1:" + origin.getAddress().getPort() + "/live/";
+
+        relay = new SegmentRelay();
+        ReflectionTestUtils.setField(relay, "webClient", new WebClientConfig().webClient());
+        ReflectionTestUtils.setField(relay, "bandwidth", new RelayBandwidth());
+        ReflectionTestUtils.setField(relay, "enabled", true);
+        ReflectionTestUtils.setField(relay, "cacheSize", DataSize.ofMegabytes(256));
+        ReflectionTestUtils.setField(relay, "maxSegmentSize", DataSize.ofMegabytes(16));
+        ReflectionTestUtils.setField(relay, "cacheTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(relay, "timeout", Duration.ofSeconds(15));
+        ReflectionTestUtils.setField(relay, "maxRedirects", 5);
+        relay.init();
+    }
+
+    @TearDown
+    public void tearDown() {
+        origin.stop(0);
+        originThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public void relaySegment() throws IOException {
+        String url = baseUrl + (cache.equals("hit") ? 0 : ++sequence) + ".ts";
+        relay.relay(1L, url).block().body().writeTo(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,47 @@
+package com.thebox.loadtest;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
+
+/**
+ * Measures what the servlet thread allocates per request, attributed to the workload endpoint
+ * named in {@link #ENDPOINT_HEADER}. Work handed to other threads (async results, the probe and
+ * relay pools) is not included, so async endpoints under-report.
+ */
+final class AllocationFilter implements Filter {
+
+    static final String ENDPOINT_HEADER = "X-Load-Test-Endpoint";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Function<String, EndpointStats> stats;
+
+    AllocationFilter(Function<String, EndpointStats> stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        EndpointStats endpoint = stats.apply(((HttpServletRequest) request).getHeader(ENDPOINT_HEADER));
+        if (endpoint == null || request.getDispatcherType() != DispatcherType.REQUEST) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            endpoint.recordAllocation(THREADS.getCurrentThreadAllocatedBytes() - before);
+        }
+    }
+}
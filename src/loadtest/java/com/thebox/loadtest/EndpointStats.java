@@ -0,0 +1,71 @@
+package com.thebox.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies, errors and request-thread allocation recorded for one endpoint of the workload.
+ * Every latency is kept, so percentiles are exact.
+ */
+final class EndpointStats {
+
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder allocationSamples = new LongAdder();
+
+    private long[] latencies = new long[1024];
+    private int count;
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    synchronized void record(long latencyNanos, boolean failed) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Bytes allocated by the server thread while handling one request of this endpoint.
+     */
+    void recordAllocation(long bytes) {
+        allocatedBytes.add(bytes);
+        allocationSamples.increment();
+    }
+
+    synchronized Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long samples = allocationSamples.sum();
+        double bytesPerRequest = samples > 0 ? (double) allocatedBytes.sum() / samples : Double.NaN;
+        return new Summary(name, count, count / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : Double.NaN,
+                errors.sum(), bytesPerRequest, bytesPerRequest * count / seconds);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Latencies in milliseconds; allocation per request in bytes and as a rate in bytes per second.
+     */
+    record Summary(String endpoint, long requests, double throughput, double p50, double p99, double p999,
+                   double max, long errors, double bytesPerRequest, double allocationRate) {
+    }
+}
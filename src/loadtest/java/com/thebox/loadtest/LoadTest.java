@@ -0,0 +1,388 @@
+package com.thebox.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.thebox.TheBoxApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end load test: starts a local stand-in for iptv-org and the HLS origins
+ * ({@link UpstreamStub}), a database, and the application itself in this JVM; waits for the
+ * startup refresh, then drives a mixed workload of listing, search, stream lookup and channel
+ * health checks while refreshes run in the background. Reports throughput, p50/p99/p99.9
+ * latency and allocation per endpoint, printed and written as JSON.
+ * <p>
+ * Run through {@code mvn -Ploadtest verify}; settings come from {@code loadtest.*} system
+ * properties (see the profile in pom.xml). Without {@code loadtest.db.url} an embedded
+ * Postgres is started; the schema needs Postgres (pg_trgm, ON CONFLICT), so H2 is not an option.
+ * <p>
+ * Client, stub and server share the machine, so absolute numbers are only comparable between
+ * runs on the same hardware with the same settings.
+ */
+public final class LoadTest {
+
+    private static final String DEFAULT_MIX = "countries:5,channels:15,categories:10,category-channels:10,"
+            + "search:20,channel:10,stream:25,health:5";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int channels = Integer.getInteger("loadtest.channels", 20000);
+        int clients = Integer.getInteger("loadtest.clients", 32);
+        Duration warmup = duration("loadtest.warmup", "15s");
+        Duration duration = duration("loadtest.duration", "60s");
+        Duration thinkTime = duration("loadtest.thinkTime", "0ms");
+        Duration refreshInterval = duration("loadtest.refreshInterval", "20s");
+        Path report = Path.of(System.getProperty("loadtest.report", "target/loadtest-report.json"));
+        String dbUrl = System.getProperty("loadtest.db.url", "");
+
+        EmbeddedPostgres embeddedPostgres = null;
+        String dbUser = System.getProperty("loadtest.db.user", "postgres");
+        String dbPassword = System.getProperty("loadtest.db.password", "postgres");
+        if (dbUrl.isBlank()) {
+            embeddedPostgres = EmbeddedPostgres.builder().setCleanDataDirectory(true).start();
+            dbUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+        }
+
+        try (UpstreamStub stub = new UpstreamStub(channels,
+                duration("loadtest.feedLatency", "200ms"), Double.parseDouble(System.getProperty("loadtest.feedErrorRate", "0")),
+                duration("loadtest.hlsLatency", "100ms"), Double.parseDouble(System.getProperty("loadtest.hlsErrorRate", "0.05")))) {
+
+            Workload[] workload = new Workload[1];
+            AllocationFilter allocationFilter = new AllocationFilter(name -> workload[0] != null ? workload[0].stats(name) : null);
+            List<String> arguments = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--spring.datasource.url=" + dbUrl,
+                    "--spring.datasource.username=" + dbUser,
+                    "--spring.datasource.password=" + dbPassword,
+                    "--thebox.upstream.base-url=" + stub.baseUrl(),
+                    "--thebox.upstream.cache-dir=" + Files.createTempDirectory("thebox-loadtest-feeds"),
+                    // Each run starts from an empty database, so a catalog saved by an earlier run does not apply
+                    "--thebox.catalog.snapshot.path=" + Files.createTempDirectory("thebox-loadtest-catalog").resolve("catalog.snapshot"),
+                    "--logging.level.com.thebox=INFO",
+                    "--spring.main.banner-mode=off"));
+            // Extra application arguments (loadtest.appArgs) come last and override the above
+            Arrays.stream(System.getProperty("loadtest.appArgs", "").split("\\s+"))
+                    .filter(arg -> !arg.isEmpty())
+                    .forEach(arguments::add);
+            ConfigurableApplicationContext app = new SpringApplicationBuilder(TheBoxApplication.class)
+                    .initializers(context -> context.getBeanFactory().registerSingleton("loadTestAllocationFilter",
+                            new FilterRegistrationBean<>(allocationFilter)))
+                    .run(arguments.toArray(String[]::new));
+            try {
+                String base = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port")
+                        + app.getEnvironment().getProperty("server.servlet.context-path", "") + "/iptv";
+                HttpClient client = httpClient();
+                ObjectMapper objectMapper = new ObjectMapper();
+
+                System.out.println("Waiting for the startup refresh...");
+                awaitRefreshes(client, objectMapper, base);
+                Catalog catalog = Catalog.discover(client, objectMapper, base);
+                System.out.printf("Catalog: %d countries, %d channels%n", catalog.countries().size(), catalog.channelIds().size());
+
+                workload[0] = new Workload(client, endpoints(System.getProperty("loadtest.mix", DEFAULT_MIX), base, catalog));
+
+                System.out.printf("Warmup: %d clients for %s%n", clients, warmup);
+                workload[0].run(clients, warmup, thinkTime);
+                workload[0].reset();
+
+                System.out.printf("Measuring: %d clients for %s, refresh every %s%n", clients, duration, refreshInterval);
+                Map<Long, Long> allocatedBefore = serverThreadAllocations();
+                long[] gcBefore = gcTotals();
+                long started = System.nanoTime();
+                Thread refresher = new Thread(() -> refreshPeriodically(client, objectMapper, base, stub, workload[0], refreshInterval),
+                        "loadtest-refresh");
+                refresher.setDaemon(true);
+                refresher.start();
+                workload[0].run(clients, duration, thinkTime);
+                refresher.interrupt();
+                refresher.join();
+                double seconds = (System.nanoTime() - started) / 1e9;
+
+                long allocated = allocatedSince(allocatedBefore);
+                long[] gc = gcTotals();
+                List<EndpointStats.Summary> summaries = new ArrayList<>();
+                workload[0].snapshot().forEach(stats -> summaries.add(stats.summarize(seconds)));
+
+                Map<String, Object> process = new LinkedHashMap<>();
+                process.put("seconds", seconds);
+                process.put("allocationRate", allocated / seconds);
+                process.put("gcCollections", gc[0] - gcBefore[0]);
+                process.put("gcMillis", gc[1] - gcBefore[1]);
+                print(summaries, process);
+                write(report, objectMapper, summaries, process);
+            } finally {
+                app.close();
+            }
+        } finally {
+            if (embeddedPostgres != null) {
+                embeddedPostgres.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * The channels, countries and categories the workload draws from, as served after the
+     * startup refresh.
+     */
+    record Catalog(List<String> countries, Map<String, List<String>> categories, List<Long> channelIds) {
+
+        static Catalog discover(HttpClient client, ObjectMapper objectMapper, String base) throws IOException, InterruptedException {
+            List<String> countries = new ArrayList<>();
+            Map<String, List<String>> categories = new HashMap<>();
+            List<Long> channelIds = new ArrayList<>();
+            for (JsonNode country : get(client, objectMapper, base + "/countries")) {
+                String code = country.path("code").asText();
+                List<String> countryCategories = new ArrayList<>();
+                get(client, objectMapper, base + "/countries/" + code + "/categories")
+                        .forEach(category -> countryCategories.add(category.asText()));
+                get(client, objectMapper, base + "/countries/" + code + "/channels?all=true")
+                        .forEach(channel -> channelIds.add(channel.path("id").asLong()));
+                if (!countryCategories.isEmpty()) {
+                    countries.add(code);
+                    categories.put(code, countryCategories);
+                }
+            }
+            if (countries.isEmpty() || channelIds.isEmpty()) {
+                throw new IllegalStateException("The startup refresh left an empty catalog");
+            }
+            return new Catalog(countries, categories, channelIds);
+        }
+
+        String country(Random random) {
+            return countries.get(random.nextInt(countries.size()));
+        }
+
+        long channelId(Random random) {
+            return channelIds.get(random.nextInt(channelIds.size()));
+        }
+    }
+
+    private static List<Workload.Endpoint> endpoints(String mix, String base, Catalog catalog) {
+        List<Workload.Endpoint> endpoints = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            String name = parts[0];
+            int weight = Integer.parseInt(parts[1]);
+            if (weight <= 0) {
+                continue;
+            }
+            endpoints.add(new Workload.Endpoint(name, weight, switch (name) {
+                case "countries" -> random -> get(base + "/countries");
+                case "channels" -> random -> get(base + "/countries/" + catalog.country(random) + "/channels?limit=50");
+                case "categories" -> random -> get(base + "/countries/" + catalog.country(random) + "/categories");
+                case "category-channels" -> random -> {
+                    String country = catalog.country(random);
+                    List<String> categories = catalog.categories().get(country);
+                    return get(base + "/countries/" + country + "/categories/"
+                            + categories.get(random.nextInt(categories.size())) + "/channels?limit=50");
+                };
+                case "search" -> random -> {
+                    String query = UpstreamStub.WORDS.get(random.nextInt(UpstreamStub.WORDS.size()));
+                    if (random.nextBoolean()) {
+                        // Prefix of a second word, as typed
+                        String next = UpstreamStub.WORDS.get(random.nextInt(UpstreamStub.WORDS.size()));
+                        query += " " + next.substring(0, 1 + random.nextInt(next.length()));
+                    }
+                    return get(base + "/search?limit=20&query=" + URLEncoder.encode(query, StandardCharsets.UTF_8));
+                };
+                case "channel" -> random -> get(base + "/channels/" + catalog.channelId(random));
+                case "stream" -> random -> get(base + "/channels/" + catalog.channelId(random) + "/stream");
+                case "health" -> random -> get(base + "/channels/" + catalog.channelId(random) + "/health");
+                default -> throw new IllegalArgumentException("Unknown endpoint in loadtest.mix: " + name);
+            }));
+        }
+        return endpoints;
+    }
+
+    /**
+     * Every interval, changes the upstream feeds and runs a refresh, recording how long each
+     * job took as the "refresh (job)" endpoint.
+     */
+    private static void refreshPeriodically(HttpClient client, ObjectMapper objectMapper, String base,
+                                            UpstreamStub stub, Workload workload, Duration interval) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(interval.toMillis());
+                stub.nextGeneration();
+                long started = System.nanoTime();
+                HttpResponse<String> accepted = client.send(HttpRequest.newBuilder(URI.create(base + "/refresh"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+                String jobId = objectMapper.readTree(accepted.body()).path("jobId").asText();
+                JsonNode job = awaitJob(client, objectMapper, base, jobId);
+                workload.record("refresh (job)").record(System.nanoTime() - started,
+                        !"SUCCEEDED".equals(job.path("status").asText()));
+                System.out.printf("Refresh %s: %s in %d ms %s%n", jobId, job.path("status").asText(),
+                        job.path("durationMs").asLong(), job.path("phaseDurationsMs"));
+            }
+        } catch (InterruptedException e) {
+            // Measurement over; a refresh still running is not recorded
+        } catch (IOException e) {
+            System.err.println("Refresh driver failed: " + e.getMessage());
+        }
+    }
+
+    private static void awaitRefreshes(HttpClient client, ObjectMapper objectMapper, String base) throws IOException, InterruptedException {
+        while (true) {
+            JsonNode jobs = get(client, objectMapper, base + "/refresh/jobs");
+            boolean running = false;
+            for (JsonNode job : jobs) {
+                running |= "RUNNING".equals(job.path("status").asText());
+            }
+            if (jobs.size() > 0 && !running) {
+                for (JsonNode job : jobs) {
+                    if (!"SUCCEEDED".equals(job.path("status").asText())) {
+                        throw new IllegalStateException("Refresh " + job.path("id").asText() + " failed: " + job.path("error").asText());
+                    }
+                }
+                return;
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private static JsonNode awaitJob(HttpClient client, ObjectMapper objectMapper, String base, String jobId)
+            throws IOException, InterruptedException {
+        while (true) {
+            JsonNode job = get(client, objectMapper, base + "/refresh/jobs/" + jobId);
+            if (!"RUNNING".equals(job.path("status").asText())) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static HttpRequest.Builder get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).GET();
+    }
+
+    private static JsonNode get(HttpClient client, ObjectMapper objectMapper, String uri) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(get(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + uri + " returned " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static HttpClient httpClient() {
+        AtomicInteger threads = new AtomicInteger();
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool(task -> {
+                    Thread thread = new Thread(task, "loadtest-http-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .build();
+    }
+
+    /**
+     * Bytes allocated so far by each live application thread; the harness's own threads
+     * (clients, stub, HTTP client) are left out.
+     */
+    private static Map<Long, Long> serverThreadAllocations() {
+        long[] ids = THREADS.getAllThreadIds();
+        ThreadInfo[] infos = THREADS.getThreadInfo(ids);
+        long[] allocated = THREADS.getThreadAllocatedBytes(ids);
+        Map<Long, Long> byThread = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] != null && allocated[i] >= 0 && !isHarnessThread(infos[i].getThreadName())) {
+                byThread.put(ids[i], allocated[i]);
+            }
+        }
+        return byThread;
+    }
+
+    // Threads that ended during the run are not counted, so this is a lower bound
+    private static long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> thread : serverThreadAllocations().entrySet()) {
+            total += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static boolean isHarnessThread(String name) {
+        return name.startsWith("loadtest-") || name.startsWith("HttpClient-");
+    }
+
+    private static long[] gcTotals() {
+        long collections = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, collector.getCollectionCount());
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return new long[]{collections, millis};
+    }
+
+    private static void print(List<EndpointStats.Summary> summaries, Map<String, Object> process) {
+        System.out.println();
+        System.out.printf("%-18s %9s %9s %9s %9s %9s %9s %7s %10s %10s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "KB/req", "alloc MB/s");
+        for (EndpointStats.Summary summary : summaries) {
+            System.out.printf("%-18s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d %10.1f %10.1f%n",
+                    summary.endpoint(), summary.requests(), summary.throughput(), summary.p50(), summary.p99(),
+                    summary.p999(), summary.max(), summary.errors(),
+                    summary.bytesPerRequest() / 1024, summary.allocationRate() / (1024 * 1024));
+        }
+        System.out.printf("%nServer allocation: %.1f MB/s over %.0f s (live threads); GC: %d collections, %d ms%n",
+                (double) process.get("allocationRate") / (1024 * 1024), (double) process.get("seconds"),
+                (long) process.get("gcCollections"), (long) process.get("gcMillis"));
+        System.out.println("KB/req counts the servlet thread only; refresh jobs and async work are in the server total.");
+    }
+
+    private static void write(Path report, ObjectMapper objectMapper, List<EndpointStats.Summary> summaries,
+                              Map<String, Object> process) throws IOException {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith("loadtest.") && !name.equals("loadtest.db.password"))
+                .sorted()
+                .forEach(name -> settings.put(name, System.getProperty(name)));
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("settings", settings);
+        document.put("endpoints", summaries);
+        document.put("process", process);
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), document);
+        System.out.println("Report written to " + report);
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+}
@@ -0,0 +1,230 @@
+package com.thebox.loadtest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the iptv-org API and for the HLS origins its streams point at. Serves
+ * generated channels.json, logos.json and streams.json (with ETags, so unchanged feeds are
+ * revalidated with 304s) and live media playlists under {@code /hls/}. Each response waits
+ * for the configured latency (uniformly jittered by ±50%) and fails with a 503 at the
+ * configured rate, separately for feeds and for HLS.
+ * <p>
+ * {@link #nextGeneration()} rewrites the stream URLs of about 1% of the channels, so the next
+ * refresh has a realistic amount of work instead of a 304 for every feed.
+ */
+final class UpstreamStub implements AutoCloseable {
+
+    static final List<String> WORDS = List.of("News", "Sports", "Movies", "Kids", "Music", "World", "International",
+            "Plus", "One", "Gold", "Cinema", "Action", "Comedy", "Life", "Family", "Business", "Weather", "Classic",
+            "Latino", "Documentary", "Nature", "Travel", "Food", "Junior", "Max", "Live");
+    private static final String[] BRANDS = {"Al", "BBC", "CNN", "Fox", "Sky", "Zee", "Star", "Rai", "TRT", "NHK", "ABC",
+            "CBS", "NBC", "DW", "France", "Canal", "Tele", "Globo", "Antena", "Kanal", "Nova", "Rede", "Sony", "Colors"};
+    private static final String[] COUNTRIES = {"US", "UK", "IN", "FR", "DE", "ES", "IT", "BR", "MX", "TR", "AR", "RU",
+            "CN", "JP", "AU", "CA", "NG", "EG", "PK", "ID"};
+    private static final String[] CATEGORIES = {"news", "sports", "movies", "kids", "music", "general", "entertainment",
+            "business", "religious", "documentary", "lifestyle", "education"};
+    private static final String[] QUALITIES = {"1080p", "720p", "576p", "480p", null};
+
+    private static final int SEGMENT_SECONDS = 6;
+    private static final byte[] SEGMENT = new byte[188 * 1024];
+
+    private final int channels;
+    private final Duration feedLatency;
+    private final double feedErrorRate;
+    private final Duration hlsLatency;
+    private final double hlsErrorRate;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private volatile Map<String, Feed> feeds;
+
+    UpstreamStub(int channels, Duration feedLatency, double feedErrorRate, Duration hlsLatency, double hlsErrorRate) throws IOException {
+        this.channels = channels;
+        this.feedLatency = feedLatency;
+        this.feedErrorRate = feedErrorRate;
+        this.hlsLatency = hlsLatency;
+        this.hlsErrorRate = hlsErrorRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "loadtest-stub-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.feeds = generate(0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Base URL of the fake iptv-org API, for {@code thebox.upstream.base-url}.
+     */
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    void nextGeneration() {
+        feeds = generate(generation.incrementAndGet());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            boolean hls = path.startsWith("/hls/");
+            pause(hls ? hlsLatency : feedLatency);
+            if (ThreadLocalRandom.current().nextDouble() < (hls ? hlsErrorRate : feedErrorRate)) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (hls) {
+                if (path.endsWith(".ts")) {
+                    send(exchange, "video/mp2t", SEGMENT);
+                } else {
+                    send(exchange, "application/vnd.apple.mpegurl", livePlaylist());
+                }
+                return;
+            }
+            Feed feed = feeds.get(path);
+            if (feed == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", feed.etag());
+            if (feed.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            send(exchange, "application/json", feed.body());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] livePlaylist() {
+        long sequence = System.currentTimeMillis() / 1000 / SEGMENT_SECONDS;
+        StringBuilder playlist = new StringBuilder("#EXTM3U\n#EXT-X-VERSION:3\n#EXT-X-TARGETDURATION:")
+                .append(SEGMENT_SECONDS).append("\n#EXT-X-MEDIA-SEQUENCE:").append(sequence).append('\n');
+        for (long segment = sequence; segment < sequence + 3; segment++) {
+            playlist.append("#EXTINF:").append(SEGMENT_SECONDS).append(".0,\nseg").append(segment).append(".ts\n");
+        }
+        return playlist.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void pause(Duration latency) {
+        long millis = latency.toMillis();
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis / 2 + ThreadLocalRandom.current().nextLong(millis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Every channel has one to three streams on this stub, so all of them are listed; names,
+     * countries and categories only depend on the channel count.
+     */
+    private Map<String, Feed> generate(int generation) {
+        Random random = new Random(channels);
+        ByteArrayOutputStream channelsJson = new ByteArrayOutputStream();
+        ByteArrayOutputStream logosJson = new ByteArrayOutputStream();
+        ByteArrayOutputStream streamsJson = new ByteArrayOutputStream();
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (JsonGenerator channelsOut = objectMapper.createGenerator(channelsJson);
+             JsonGenerator logosOut = objectMapper.createGenerator(logosJson);
+             JsonGenerator streamsOut = objectMapper.createGenerator(streamsJson)) {
+            channelsOut.writeStartArray();
+            logosOut.writeStartArray();
+            streamsOut.writeStartArray();
+            for (int i = 0; i < channels; i++) {
+                String name = BRANDS[random.nextInt(BRANDS.length)] + " " + WORDS.get(random.nextInt(WORDS.size()))
+                        + (random.nextInt(3) == 0 ? " " + WORDS.get(random.nextInt(WORDS.size())) : "");
+                String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+                String id = name.replaceAll("[^A-Za-z0-9]", "") + i + "." + country.toLowerCase();
+
+                channelsOut.writeStartObject();
+                channelsOut.writeStringField("id", id);
+                channelsOut.writeStringField("name", name);
+                channelsOut.writeStringField("country", country);
+                channelsOut.writeArrayFieldStart("categories");
+                channelsOut.writeString(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                channelsOut.writeEndArray();
+                channelsOut.writeBooleanField("is_nsfw", false);
+                channelsOut.writeStringField("website", "https://www." + id.toLowerCase() + ".example.com/");
+                channelsOut.writeEndObject();
+
+                logosOut.writeStartObject();
+                logosOut.writeStringField("channel", id);
+                logosOut.writeNumberField("width", 512);
+                logosOut.writeNumberField("height", 288);
+                logosOut.writeStringField("format", "PNG");
+                logosOut.writeStringField("url", "https://logos.example.com/" + Integer.toString(i, 36) + ".png");
+                logosOut.writeEndObject();
+
+                int streamCount = 1 + (random.nextInt(4) == 0 ? random.nextInt(3) : 0);
+                String revision = (i + generation) % 100 == 0 ? "?rev=" + generation : "";
+                for (int s = 0; s < streamCount; s++) {
+                    streamsOut.writeStartObject();
+                    streamsOut.writeStringField("channel", id);
+                    streamsOut.writeStringField("title", name);
+                    streamsOut.writeStringField("url", baseUrl() + "/hls/" + i + "/" + s + "/index.m3u8" + revision);
+                    streamsOut.writeStringField("quality", QUALITIES[random.nextInt(QUALITIES.length)]);
+                    streamsOut.writeEndObject();
+                }
+            }
+            channelsOut.writeEndArray();
+            logosOut.writeEndArray();
+            streamsOut.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Map.of("/channels.json", Feed.of(channelsJson.toByteArray()),
+                "/logos.json", Feed.of(logosJson.toByteArray()),
+                "/streams.json", Feed.of(streamsJson.toByteArray()));
+    }
+
+    private record Feed(byte[] body, String etag) {
+
+        static Feed of(byte[] body) {
+            return new Feed(body, "\"" + body.length + "-" + Integer.toHexString(Arrays.hashCode(body)) + "\"");
+        }
+    }
+}
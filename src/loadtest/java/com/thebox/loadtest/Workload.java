@@ -0,0 +1,134 @@
+package com.thebox.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Closed-loop clients, each picking its next request from a weighted mix of endpoints. Stats
+ * are collected per window: {@link #reset()} starts a new one, e.g. after the warmup.
+ */
+final class Workload {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * @param request builds a request from the client's random source
+     */
+    record Endpoint(String name, int weight, Function<Random, HttpRequest.Builder> request) {
+    }
+
+    private final HttpClient client;
+    private final List<Endpoint> endpoints;
+    private final int totalWeight;
+
+    private volatile Map<String, EndpointStats> window = new ConcurrentHashMap<>();
+
+    Workload(HttpClient client, List<Endpoint> endpoints) {
+        this.client = client;
+        this.endpoints = endpoints;
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+        reset();
+    }
+
+    /**
+     * Stats of the current window for an endpoint of the mix, or null for any other name.
+     */
+    EndpointStats stats(String endpoint) {
+        return endpoint != null ? window.get(endpoint) : null;
+    }
+
+    /**
+     * Stats of the current window, creating them for names outside the mix (e.g. refresh jobs).
+     */
+    EndpointStats record(String name) {
+        return window.computeIfAbsent(name, EndpointStats::new);
+    }
+
+    void reset() {
+        Map<String, EndpointStats> fresh = new ConcurrentHashMap<>();
+        endpoints.forEach(endpoint -> fresh.put(endpoint.name(), new EndpointStats(endpoint.name())));
+        window = fresh;
+    }
+
+    /**
+     * Stats of the current window in mix order, followed by any recorded outside the mix.
+     */
+    List<EndpointStats> snapshot() {
+        Map<String, EndpointStats> current = window;
+        Map<String, EndpointStats> ordered = new LinkedHashMap<>();
+        endpoints.forEach(endpoint -> ordered.put(endpoint.name(), current.get(endpoint.name())));
+        current.forEach(ordered::putIfAbsent);
+        return new ArrayList<>(ordered.values());
+    }
+
+    /**
+     * Runs {@code clients} closed-loop clients for {@code duration}, each pausing
+     * {@code thinkTime} between its requests.
+     */
+    void run(int clients, Duration duration, Duration thinkTime) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Random random = new Random(i);
+            Thread thread = new Thread(() -> loop(random, deadline, thinkTime), "loadtest-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void loop(Random random, long deadline, Duration thinkTime) {
+        while (System.nanoTime() < deadline) {
+            Endpoint endpoint = pick(random);
+            HttpRequest request = endpoint.request().apply(random)
+                    .header(AllocationFilter.ENDPOINT_HEADER, endpoint.name())
+                    .header("Accept-Encoding", "gzip")
+                    .timeout(REQUEST_TIMEOUT)
+                    .build();
+            long started = System.nanoTime();
+            boolean failed;
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 400;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            record(endpoint.name()).record(System.nanoTime() - started, failed);
+            if (!thinkTime.isZero()) {
+                try {
+                    Thread.sleep(thinkTime.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Endpoint pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            ticket -= endpoint.weight();
+            if (ticket < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Empty workload mix");
+    }
+}
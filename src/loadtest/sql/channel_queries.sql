@@ -0,0 +1,83 @@
+-- Query plans and timings for the ChannelRepository reads on a generated catalog: 120k channels
+-- across 10 countries, 12k of them in C00, the country every query below asks for.
+--
+--   psql "$DATABASE_URL" -f src/loadtest/sql/channel_queries.sql
+--
+-- Run it against a scratch database the application has migrated (so V2 and V4's indexes exist)
+-- and that has no channels yet. Everything happens in one transaction that is rolled back at the end.
+-- Each read is shown as it was before the indexed queries (loading rows to filter in Java) and
+-- as the repository issues it now. Only the database side is measured: the Java filtering that
+-- followed the old reads is not part of these numbers.
+
+\timing on
+BEGIN;
+
+INSERT INTO channels (channel_id, name, stream_url, logo_url, category, language, country_code, is_active,
+                      created_at, updated_at)
+SELECT 'ch' || n || '.c' || lpad((n % 10)::text, 2, '0'),
+       (ARRAY['News', 'Sport', 'Cinema', 'Music', 'Kids', 'Radio', 'Travel', 'Shop'])[1 + n % 8]
+           || ' ' || substr(md5(n::text), 1, 6) || ' ' || n,
+       CASE WHEN n % 3 = 0 THEN 'http://stream' || n % 50 || '.example/live/' || n || '.ts'
+            ELSE 'http://stream' || n % 50 || '.example/live/' || n || '/index.m3u8' END,
+       'http://logos.example/' || n || '.png',
+       (ARRAY['news', 'sports', 'movies', 'music', 'kids', 'general', 'documentary', 'entertainment',
+              'religious', 'shop', 'travel', 'weather', 'business', 'education', 'culture', 'lifestyle',
+              'comedy', 'series', 'auto', 'outdoor'])[1 + (n / 10) % 20],
+       'eng',
+       'C' || lpad((n % 10)::text, 2, '0'),
+       n % 17 <> 0,
+       now(), now()
+FROM generate_series(1, 120000) AS n;
+
+-- Some channels failing their probes, so the live-first ordering has two groups
+UPDATE channels SET consecutive_failures = CASE WHEN id % 9 = 0 THEN 3 ELSE 0 END;
+
+ANALYZE channels;
+
+-- Category listing. Before: the whole country, filtered in Java
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM channels WHERE country_code = 'C00' AND is_active ORDER BY name;
+
+-- Category listing. Now: findActiveChannelsByCountryAndCategory
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM channels WHERE country_code = 'C00' AND category = 'news' AND is_active
+ORDER BY list_rank, sort_name, id;
+
+-- HLS listing. Now: findActiveHlsChannelsByCountry (before: the country query above)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM channels WHERE country_code = 'C00' AND is_active AND stream_url LIKE '%.m3u8%'
+ORDER BY list_rank, sort_name, id;
+
+-- Search. Before: every channel, matched in Java
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM channels;
+
+-- Search. Now: searchActiveChannels
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT * FROM channels c WHERE c.is_active AND c.name ILIKE '%' || 'sport 1a' || '%'
+  AND c.country_code = 'C00'
+ORDER BY similarity(c.name, 'sport 1a') DESC, c.name, c.id LIMIT 50;
+
+-- Keyset pages, first and a later one. Before: the live rank computed per row and compared
+-- with OR, which no index can order or seek by
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, channel_id, name, stream_url, logo_url, category, language, country_code, consecutive_failures
+FROM channels WHERE country_code = 'C00' AND is_active
+  AND (CASE WHEN COALESCE(consecutive_failures, 0) = 0 THEN 0 ELSE 1 END > 0
+       OR (CASE WHEN COALESCE(consecutive_failures, 0) = 0 THEN 0 ELSE 1 END = 0
+           AND (name > 'Music' OR (name = 'Music' AND id > 0))))
+ORDER BY CASE WHEN COALESCE(consecutive_failures, 0) = 0 THEN 0 ELSE 1 END, name, id LIMIT 51;
+
+-- Now: findActiveSummaries and findActiveChannelsAfter over the stored list_rank and sort_name
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, channel_id, name, stream_url, logo_url, category, language, country_code, consecutive_failures
+FROM channels WHERE country_code = 'C00' AND is_active
+ORDER BY list_rank, sort_name, id LIMIT 51;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, channel_id, name, stream_url, logo_url, category, language, country_code, consecutive_failures
+FROM channels WHERE country_code = 'C00' AND is_active
+  AND (list_rank, sort_name, id) > (0, 'music', 0)
+ORDER BY list_rank, sort_name, id LIMIT 51;
+
+ROLLBACK;
@@ -1,14 +1,17 @@
 package com.thebox;
 
+import com.thebox.refresh.RefreshJob;
 import com.thebox.service.TheBoxService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling
 public class TheBoxApplication implements CommandLineRunner {
     
     @Autowired
@@ -22,7 +25,9 @@ public class TheBoxApplication implements CommandLineRunner {
     public void run(String... args) throws Exception {
         System.out.println("Starting TheBox application...");
         System.out.println("Fetching channels...");
-        iptvService.fetchAndUpdateChannels();
+        // Runs in the background; reads are served from the stored catalog until it finishes
+        RefreshJob job = iptvService.startRefresh("startup");
+        System.out.println("Startup refresh running as job " + job.getId());
         System.out.println("TheBox application started successfully!");
         System.out.println("API available at: http://localhost:8080/api");
         System.out.println("H2 Console at: http://localhost:8080/h2-console");
@@ -0,0 +1,48 @@
+package com.thebox.catalog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Reports whether there is a catalog to serve and how recently a refresh confirmed it against
+ * upstream. Part of the readiness group: an instance with no catalog, or one older than
+ * {@code thebox.catalog.max-age}, is taken out of service.
+ */
+@Component
+public class CatalogHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private CatalogHolder catalogHolder;
+
+    @Value("${thebox.catalog.max-age:24h}")
+    private Duration maxAge;
+
+    @Override
+    public Health health() {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        Instant refreshedAt = catalogHolder.getRefreshedAt();
+        Health.Builder builder;
+        if (snapshot.isEmpty()) {
+            builder = Health.outOfService().withDetail("reason", "No catalog loaded yet");
+        } else if (refreshedAt != null && !maxAge.isZero() && refreshedAt.plus(maxAge).isBefore(Instant.now())) {
+            builder = Health.outOfService().withDetail("reason", "Not refreshed for over " + maxAge);
+        } else {
+            builder = Health.up();
+        }
+        builder.withDetail("version", snapshot.getVersion())
+                .withDetail("channels", snapshot.getChannelCount())
+                .withDetail("source", catalogHolder.isRestored() ? "disk" : "database")
+                .withDetail("builtAt", snapshot.getBuiltAt());
+        if (refreshedAt != null) {
+            builder.withDetail("refreshedAt", refreshedAt)
+                    .withDetail("ageSeconds", Duration.between(refreshedAt, Instant.now()).toSeconds());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,214 @@
+package com.thebox.catalog;
+
+import com.thebox.model.Channel;
+import com.thebox.model.Country;
+import com.thebox.model.StreamVariant;
+import com.thebox.repository.ChannelRepository;
+import com.thebox.repository.CountryRepository;
+import com.thebox.repository.StreamVariantRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the current {@link CatalogSnapshot}. Reads are a single volatile load; a rebuild
+ * loads the catalog from the database and swaps the new snapshot in atomically. At startup the
+ * last good catalog is restored from {@link CatalogSnapshotStore} when there is one, and read
+ * from the database otherwise; the disk copy carries no stream variants, so until the first
+ * rebuild channels are served their own stream URL, and its search index is built in the
+ * background after it is published. Probe results are applied to the current snapshot in memory,
+ * without reloading the catalog.
+ */
+@Component
+public class CatalogHolder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogHolder.class);
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private StreamVariantRepository streamVariantRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogSnapshotStore snapshotStore;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>(CatalogSnapshot.empty());
+    private final AtomicLong versions = new AtomicLong();
+
+    // Set while the current snapshot is the one restored from disk, until the first rebuild
+    private volatile boolean restored;
+
+    // When a refresh last confirmed the catalog against upstream; null if not known
+    private volatile Instant refreshedAt;
+
+    // Not synchronized: a virtual thread blocked on JDBC inside a monitor would pin its carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    @PostConstruct
+    public void loadInitialSnapshot() {
+        long started = System.currentTimeMillis();
+        CatalogSnapshotStore.Stored stored = snapshotStore.load();
+        if (stored != null) {
+            CatalogSnapshot snapshot = CatalogSnapshot.restore(versions.incrementAndGet(), stored.builtAt(), stored.countries(), stored.channels());
+            restored = true;
+            refreshedAt = stored.refreshedAt();
+            current.set(snapshot);
+            logger.info("Restored catalog snapshot v{} built at {}: {} countries, {} channels in {} ms",
+                    snapshot.getVersion(), snapshot.getBuiltAt(), stored.countries().size(), stored.channels().size(),
+                    System.currentTimeMillis() - started);
+            eventPublisher.publishEvent(new CatalogUpdatedEvent(snapshot));
+
+            // Off the startup path; a search arriving first builds it instead
+            Thread indexing = new Thread(snapshot::getSearchIndex, "catalog-search-index");
+            indexing.setDaemon(true);
+            indexing.start();
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warn("Could not load initial catalog snapshot, starting empty: {}", e.getMessage());
+        }
+    }
+
+    public CatalogSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Whether the current snapshot was restored from disk and not yet rebuilt from the database.
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    public Instant getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    /**
+     * Records that a refresh has just confirmed the catalog against upstream, and stores the
+     * current snapshot as the last good one.
+     */
+    public void markRefreshed() {
+        refreshedAt = Instant.now();
+        snapshotStore.save(current(), refreshedAt);
+    }
+
+    /**
+     * Publishes a copy of the current snapshot with the health columns of {@code probed} and
+     * {@code probedVariants} applied. Content columns stay as in the snapshot; rows no longer in
+     * it are ignored.
+     */
+    public CatalogSnapshot applyHealth(Collection<Channel> probed, Collection<StreamVariant> probedVariants) {
+        rebuildLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            CatalogSnapshot snapshot = current();
+            Map<Long, Channel> byId = new HashMap<>(probed.size() * 2);
+            for (Channel channel : probed) {
+                byId.put(channel.getId(), channel);
+            }
+            Map<Long, StreamVariant> variantsById = new HashMap<>(probedVariants.size() * 2);
+            for (StreamVariant variant : probedVariants) {
+                variantsById.put(variant.getId(), variant);
+            }
+            List<Channel> channels = new ArrayList<>(snapshot.getChannelCount());
+            List<StreamVariant> variants = new ArrayList<>(snapshot.getChannelCount() * 2);
+            int applied = 0;
+            for (Channel channel : snapshot.getChannels()) {
+                Channel health = byId.get(channel.getId());
+                if (health != null) {
+                    channels.add(withHealth(channel, health));
+                    applied++;
+                } else {
+                    channels.add(channel);
+                }
+                for (StreamVariant variant : snapshot.getStreamVariants(channel.getId())) {
+                    StreamVariant variantHealth = variantsById.get(variant.getId());
+                    variants.add(variantHealth != null ? withHealth(variant, variantHealth) : variant);
+                }
+            }
+
+            CatalogSnapshot updated = CatalogSnapshot.build(versions.incrementAndGet(), snapshot.getCountries(), channels, variants);
+            current.set(updated);
+
+            logger.info("Published catalog snapshot v{} with health of {} channels in {} ms",
+                    updated.getVersion(), applied, System.currentTimeMillis() - started);
+            eventPublisher.publishEvent(new CatalogUpdatedEvent(updated));
+            return updated;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the database and publishes it.
+     */
+    public CatalogSnapshot rebuild() {
+        rebuildLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            List<Country> countries = countryRepository.findByIsActiveTrue();
+            List<Channel> channels = channelRepository.findAll();
+            List<StreamVariant> variants = streamVariantRepository.findAll();
+
+            CatalogSnapshot snapshot = CatalogSnapshot.build(versions.incrementAndGet(), countries, channels, variants);
+            current.set(snapshot);
+            restored = false;
+
+            logger.info("Published catalog snapshot v{}: {} countries, {} channels in {} ms",
+                    snapshot.getVersion(), countries.size(), channels.size(), System.currentTimeMillis() - started);
+            eventPublisher.publishEvent(new CatalogUpdatedEvent(snapshot));
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Snapshot channels are shared with readers, so health is applied to a copy
+    private static Channel withHealth(Channel channel, Channel health) {
+        Channel copy = new Channel(channel.getChannelId(), channel.getName(), channel.getStreamUrl(), channel.getLogoUrl(),
+                channel.getCategory(), channel.getLanguage(), channel.getCountryCode(), channel.getEpgId());
+        copy.setId(channel.getId());
+        copy.setCreatedAt(channel.getCreatedAt());
+        copy.setUpdatedAt(channel.getUpdatedAt());
+        copy.setIsActive(health.getIsActive());
+        copy.setConsecutiveFailures(health.getConsecutiveFailures());
+        copy.setLastProbedAt(health.getLastProbedAt());
+        copy.setLastOnlineAt(health.getLastOnlineAt());
+        copy.setNextProbeAt(health.getNextProbeAt());
+        return copy;
+    }
+
+    private static StreamVariant withHealth(StreamVariant variant, StreamVariant health) {
+        StreamVariant copy = new StreamVariant(variant.getUrl(), variant.getQuality(), variant.getPosition());
+        copy.setId(variant.getId());
+        copy.setChannelId(variant.getChannelId());
+        copy.setConsecutiveFailures(health.getConsecutiveFailures());
+        copy.setLatencyMs(health.getLatencyMs());
+        copy.setLastProbedAt(health.getLastProbedAt());
+        copy.setLastOnlineAt(health.getLastOnlineAt());
+        return copy;
+    }
+}
@@ -0,0 +1,268 @@
+package com.thebox.catalog;
+
+import com.thebox.model.Channel;
+import com.thebox.model.Country;
+import com.thebox.model.StreamVariant;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, fully indexed view of the catalog as of one refresh. Instances are built off to
+ * the side and published in a single reference swap, so readers always see one consistent
+ * version. The {@link Channel} and {@link StreamVariant} instances are shared between readers
+ * and must not be mutated.
+ */
+public final class CatalogSnapshot {
+
+    // Live channels first, then the ones whose latest probes failed; by name, then id, within each.
+    // Names compare like the database's (list_rank, sort_name, id) order, so lists and keyset
+    // pages read from Postgres before the first snapshot come in the same order. A total order,
+    // so keyset pages can resume from (live, name, id).
+    private static final Comparator<Channel> LIVE_FIRST =
+            Comparator.comparing((Channel channel) -> !isLive(channel))
+                    .thenComparing(Channel::getName, Comparator.nullsLast(CatalogSnapshot::compareSortNames))
+                    .thenComparing(Channel::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final long version;
+    private final Instant builtAt;
+    private final List<Country> countries;
+    private final Map<Long, Channel> channelsById;
+    private final Map<String, Channel> channelsByChannelId;
+    private final Map<String, List<Channel>> activeChannelsByCountry;
+    private final Map<String, Map<String, List<Channel>>> activeChannelsByCountryAndCategory;
+    private final Map<Long, List<StreamVariant>> streamVariantsByChannel;
+    private final List<Channel> activeChannels;
+
+    // Built on first use; see restore
+    private volatile ChannelSearchIndex searchIndex;
+
+    private CatalogSnapshot(long version,
+                            Instant builtAt,
+                            List<Country> countries,
+                            Map<Long, Channel> channelsById,
+                            Map<String, Channel> channelsByChannelId,
+                            Map<String, List<Channel>> activeChannelsByCountry,
+                            Map<String, Map<String, List<Channel>>> activeChannelsByCountryAndCategory,
+                            Map<Long, List<StreamVariant>> streamVariantsByChannel,
+                            List<Channel> activeChannels) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.countries = countries;
+        this.channelsById = channelsById;
+        this.channelsByChannelId = channelsByChannelId;
+        this.activeChannelsByCountry = activeChannelsByCountry;
+        this.activeChannelsByCountryAndCategory = activeChannelsByCountryAndCategory;
+        this.streamVariantsByChannel = streamVariantsByChannel;
+        this.activeChannels = activeChannels;
+    }
+
+    public static CatalogSnapshot empty() {
+        return new CatalogSnapshot(0, Instant.EPOCH, List.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), List.of());
+    }
+
+    public static CatalogSnapshot build(long version, List<Country> activeCountries, List<Channel> channels,
+                                        Collection<StreamVariant> streamVariants) {
+        return build(version, Instant.now(), activeCountries, channels, streamVariants);
+    }
+
+    /**
+     * A snapshot of a catalog restored from disk, with no stream variants. Unlike {@link #build},
+     * the search index is left to be built on first use, which is most of the cost of building a
+     * snapshot; lists and lookups are ready as soon as this returns.
+     *
+     * @param builtAt when the catalog was read from the database
+     */
+    public static CatalogSnapshot restore(long version, Instant builtAt, List<Country> activeCountries, List<Channel> channels) {
+        return index(version, builtAt, activeCountries, channels, List.of());
+    }
+
+    /**
+     * @param streamVariants every channel's variants; channels without any are served their own stream URL
+     */
+    public static CatalogSnapshot build(long version, Instant builtAt, List<Country> activeCountries, List<Channel> channels,
+                                        Collection<StreamVariant> streamVariants) {
+        CatalogSnapshot snapshot = index(version, builtAt, activeCountries, channels, streamVariants);
+        snapshot.getSearchIndex();
+        return snapshot;
+    }
+
+    private static CatalogSnapshot index(long version, Instant builtAt, List<Country> activeCountries, List<Channel> channels,
+                                         Collection<StreamVariant> streamVariants) {
+        Map<Long, Channel> byId = new HashMap<>(channels.size() * 2);
+        Map<String, Channel> byChannelId = new HashMap<>(channels.size() * 2);
+        Map<String, List<Channel>> byCountry = new HashMap<>();
+        List<Channel> active = new ArrayList<>(channels.size());
+
+        for (Channel channel : channels) {
+            byId.put(channel.getId(), channel);
+            byChannelId.put(channel.getChannelId(), channel);
+            if (Boolean.TRUE.equals(channel.getIsActive())) {
+                byCountry.computeIfAbsent(channel.getCountryCode(), code -> new ArrayList<>()).add(channel);
+                active.add(channel);
+            }
+        }
+
+        Map<String, List<Channel>> activeByCountry = new HashMap<>(byCountry.size() * 2);
+        Map<String, Map<String, List<Channel>>> activeByCountryAndCategory = new HashMap<>(byCountry.size() * 2);
+        byCountry.forEach((countryCode, countryChannels) -> {
+            countryChannels.sort(LIVE_FIRST);
+            activeByCountry.put(countryCode, Collections.unmodifiableList(countryChannels));
+
+            // Categories keep first-seen order within the sorted list
+            Map<String, List<Channel>> byCategory = new LinkedHashMap<>();
+            for (Channel channel : countryChannels) {
+                if (channel.getCategory() != null) {
+                    byCategory.computeIfAbsent(channel.getCategory(), category -> new ArrayList<>()).add(channel);
+                }
+            }
+            byCategory.replaceAll((category, categoryChannels) -> Collections.unmodifiableList(categoryChannels));
+            activeByCountryAndCategory.put(countryCode, Collections.unmodifiableMap(byCategory));
+        });
+
+        Map<Long, List<StreamVariant>> variantsByChannel = new HashMap<>(channels.size() * 2);
+        for (StreamVariant variant : streamVariants) {
+            variantsByChannel.computeIfAbsent(variant.getChannelId(), id -> new ArrayList<>(2)).add(variant);
+        }
+        variantsByChannel.replaceAll((id, variants) -> Collections.unmodifiableList(variants));
+
+        return new CatalogSnapshot(
+                version,
+                builtAt,
+                List.copyOf(activeCountries),
+                Collections.unmodifiableMap(byId),
+                Collections.unmodifiableMap(byChannelId),
+                Collections.unmodifiableMap(activeByCountry),
+                Collections.unmodifiableMap(activeByCountryAndCategory),
+                Collections.unmodifiableMap(variantsByChannel),
+                active);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    public boolean isEmpty() {
+        return channelsById.isEmpty() && countries.isEmpty();
+    }
+
+    public List<Country> getCountries() {
+        return countries;
+    }
+
+    public Channel getChannel(Long id) {
+        return id != null ? channelsById.get(id) : null;
+    }
+
+    public Channel getChannelByChannelId(String channelId) {
+        return channelId != null ? channelsByChannelId.get(channelId) : null;
+    }
+
+    /**
+     * Every channel, active or not, in no particular order.
+     */
+    public Collection<Channel> getChannels() {
+        return channelsById.values();
+    }
+
+    public int getChannelCount() {
+        return channelsById.size();
+    }
+
+    /**
+     * The channel's stream variants in no particular order; empty if it has no variant rows.
+     */
+    public List<StreamVariant> getStreamVariants(Long channelId) {
+        return channelId != null ? streamVariantsByChannel.getOrDefault(channelId, List.of()) : List.of();
+    }
+
+    public List<Channel> getActiveChannels(String countryCode) {
+        return activeChannelsByCountry.getOrDefault(countryCode, List.of());
+    }
+
+    public List<Channel> getActiveChannels(String countryCode, String category) {
+        return activeChannelsByCountryAndCategory.getOrDefault(countryCode, Map.of()).getOrDefault(category, List.of());
+    }
+
+    /**
+     * Up to {@code limit} active channels of a country that come after the given position in
+     * list order: live channels first, then by name and id.
+     *
+     * @param category null for all categories
+     * @param id       null to start from the beginning of the list
+     */
+    public List<Channel> getActiveChannelsAfter(String countryCode, String category, boolean live, String name, Long id, int limit) {
+        List<Channel> channels = category != null ? getActiveChannels(countryCode, category) : getActiveChannels(countryCode);
+        int start = 0;
+        if (id != null) {
+            Channel position = new Channel();
+            position.setId(id);
+            position.setName(name);
+            position.setConsecutiveFailures(live ? 0 : 1);
+            int found = Collections.binarySearch(channels, position, LIVE_FIRST);
+            start = found >= 0 ? found + 1 : -found - 1;
+        }
+        return channels.subList(start, Math.min(channels.size(), start + limit));
+    }
+
+    public List<String> getCategories(String countryCode) {
+        return List.copyOf(activeChannelsByCountryAndCategory.getOrDefault(countryCode, Map.of()).keySet());
+    }
+
+    public ChannelSearchIndex getSearchIndex() {
+        ChannelSearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    index = ChannelSearchIndex.build(activeChannels);
+                    searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    public Map<String, List<Channel>> getActiveChannelsByCountry() {
+        return activeChannelsByCountry;
+    }
+
+    private static boolean isLive(Channel channel) {
+        return channel.getConsecutiveFailures() == null || channel.getConsecutiveFailures() == 0;
+    }
+
+    /**
+     * Compares {@link Channel#sortName} of both names by code point, the byte order of UTF-8
+     * under collation "C", without building either key.
+     */
+    static int compareSortNames(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+            if (x != y) {
+                int foldedX = x >= 'A' && x <= 'Z' ? x + ('a' - 'A') : x;
+                int foldedY = y >= 'A' && y <= 'Z' ? y + ('a' - 'A') : y;
+                if (foldedX != foldedY) {
+                    return Integer.compare(foldedX, foldedY);
+                }
+            }
+        }
+        // One is a prefix of the other; the shorter comes first
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
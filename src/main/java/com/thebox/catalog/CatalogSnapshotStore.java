@@ -0,0 +1,301 @@
+package com.thebox.catalog;
+
+import com.thebox.model.Channel;
+import com.thebox.model.Country;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the last good catalog in a local binary file, so a restart can serve it before the
+ * database or upstream are consulted. The file is replaced atomically on each save and
+ * memory-mapped on load; a missing, truncated or corrupt file is reported as absent.
+ *
+ * <p>Layout, big-endian: magic, format version, built-at and refreshed-at (epoch millis), body
+ * length and CRC32, then the body: a table of distinct strings, the countries and the channels,
+ * active ones in list order. Strings are stored once and referenced by index, with -1 for null.
+ */
+@Component
+public class CatalogSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotStore.class);
+
+    private static final int MAGIC = 0x54425843; // "TBXC"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    /**
+     * A catalog read back from disk, with when a refresh last confirmed it against upstream.
+     */
+    public record Stored(Instant builtAt, Instant refreshedAt, List<Country> countries, List<Channel> channels) {
+    }
+
+    @Value("${thebox.catalog.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${thebox.catalog.snapshot.path:${java.io.tmpdir}/thebox-catalog.snapshot}")
+    private Path path;
+
+    /**
+     * Reads the stored catalog, or returns null if there is none that can be used.
+     */
+    public Stored load() {
+        if (!enabled) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        } catch (NoSuchFileException e) {
+            logger.info("No catalog snapshot at {}", path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable catalog snapshot {}: {}", path, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the stored catalog. Failures are logged; the previous file stays in place.
+     */
+    public void save(CatalogSnapshot snapshot, Instant refreshedAt) {
+        if (!enabled || snapshot.isEmpty()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            byte[] body = encodeBody(snapshot);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(snapshot.getBuiltAt().toEpochMilli())
+                    .putLong(refreshedAt.toEpochMilli())
+                    .putInt(body.length)
+                    .putInt((int) crc.getValue())
+                    .flip();
+
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    channel.write(new ByteBuffer[]{header, ByteBuffer.wrap(body)});
+                    channel.force(true);
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            logger.info("Saved catalog snapshot v{} to {} ({} KB) in {} ms",
+                    snapshot.getVersion(), path, (HEADER_SIZE + body.length) / 1024, System.currentTimeMillis() - started);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not save catalog snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static byte[] encodeBody(CatalogSnapshot snapshot) throws IOException {
+        List<Country> countries = snapshot.getCountries();
+        Strings strings = new Strings();
+
+        // Active channels country by country in list order, then the inactive ones: restoring
+        // sorts each country's list again, which is a single pass over input already in order
+        List<Channel> channels = new ArrayList<>(snapshot.getChannelCount());
+        snapshot.getActiveChannelsByCountry().values().forEach(channels::addAll);
+        for (Channel channel : snapshot.getChannels()) {
+            if (!Boolean.TRUE.equals(channel.getIsActive())) {
+                channels.add(channel);
+            }
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream(channels.size() * 96);
+        DataOutputStream out = new DataOutputStream(records);
+        out.writeInt(countries.size());
+        for (Country country : countries) {
+            out.writeLong(country.getId());
+            out.writeInt(strings.index(country.getName()));
+            out.writeInt(strings.index(country.getCode()));
+            out.writeInt(strings.index(country.getFlagUrl()));
+            out.writeByte(encode(country.getIsActive()));
+            out.writeLong(encode(country.getCreatedAt()));
+        }
+        out.writeInt(channels.size());
+        for (Channel channel : channels) {
+            out.writeLong(channel.getId());
+            out.writeInt(strings.index(channel.getChannelId()));
+            out.writeInt(strings.index(channel.getName()));
+            out.writeInt(strings.index(channel.getStreamUrl()));
+            out.writeInt(strings.index(channel.getLogoUrl()));
+            out.writeInt(strings.index(channel.getCategory()));
+            out.writeInt(strings.index(channel.getLanguage()));
+            out.writeInt(strings.index(channel.getCountryCode()));
+            out.writeInt(strings.index(channel.getEpgId()));
+            out.writeByte(encode(channel.getIsActive()));
+            out.writeInt(channel.getConsecutiveFailures() != null ? channel.getConsecutiveFailures() : NULL_INT);
+            out.writeLong(encode(channel.getLastProbedAt()));
+            out.writeLong(encode(channel.getLastOnlineAt()));
+            out.writeLong(encode(channel.getNextProbeAt()));
+            out.writeLong(encode(channel.getCreatedAt()));
+            out.writeLong(encode(channel.getUpdatedAt()));
+        }
+        out.flush();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(records.size() + strings.values.size() * 32);
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        bodyOut.writeInt(strings.values.size());
+        for (String value : strings.values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            bodyOut.writeInt(bytes.length);
+            bodyOut.write(bytes);
+        }
+        records.writeTo(bodyOut);
+        bodyOut.flush();
+        return body.toByteArray();
+    }
+
+    private static Stored decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("not a catalog snapshot");
+        }
+        int format = buffer.getInt();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("unsupported format version " + format);
+        }
+        Instant builtAt = Instant.ofEpochMilli(buffer.getLong());
+        Instant refreshedAt = Instant.ofEpochMilli(buffer.getLong());
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (buffer.remaining() != length) {
+            throw new IOException("expected " + length + " bytes of body, found " + buffer.remaining());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("checksum mismatch");
+        }
+
+        String[] strings = new String[buffer.getInt()];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int size = buffer.getInt();
+            if (size > scratch.length) {
+                scratch = new byte[Math.max(size, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, size);
+            strings[i] = new String(scratch, 0, size, StandardCharsets.UTF_8);
+        }
+
+        int countryCount = buffer.getInt();
+        List<Country> countries = new ArrayList<>(countryCount);
+        for (int i = 0; i < countryCount; i++) {
+            Country country = new Country();
+            country.setId(buffer.getLong());
+            country.setName(string(strings, buffer.getInt()));
+            country.setCode(string(strings, buffer.getInt()));
+            country.setFlagUrl(string(strings, buffer.getInt()));
+            country.setIsActive(decodeBoolean(buffer.get()));
+            country.setCreatedAt(decodeTime(buffer.getLong()));
+            countries.add(country);
+        }
+
+        int channelCount = buffer.getInt();
+        List<Channel> channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            Channel channel = new Channel();
+            channel.setId(buffer.getLong());
+            channel.setChannelId(string(strings, buffer.getInt()));
+            channel.setName(string(strings, buffer.getInt()));
+            channel.setStreamUrl(string(strings, buffer.getInt()));
+            channel.setLogoUrl(string(strings, buffer.getInt()));
+            channel.setCategory(string(strings, buffer.getInt()));
+            channel.setLanguage(string(strings, buffer.getInt()));
+            channel.setCountryCode(string(strings, buffer.getInt()));
+            channel.setEpgId(string(strings, buffer.getInt()));
+            channel.setIsActive(decodeBoolean(buffer.get()));
+            int failures = buffer.getInt();
+            channel.setConsecutiveFailures(failures != NULL_INT ? failures : null);
+            channel.setLastProbedAt(decodeTime(buffer.getLong()));
+            channel.setLastOnlineAt(decodeTime(buffer.getLong()));
+            channel.setNextProbeAt(decodeTime(buffer.getLong()));
+            channel.setCreatedAt(decodeTime(buffer.getLong()));
+            channel.setUpdatedAt(decodeTime(buffer.getLong()));
+            channels.add(channel);
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException(buffer.remaining() + " unexpected trailing bytes");
+        }
+        return new Stored(builtAt, refreshedAt, countries, channels);
+    }
+
+    private static String string(String[] strings, int index) {
+        return index >= 0 ? strings[index] : null;
+    }
+
+    private static byte encode(Boolean value) {
+        return value == null ? -1 : (byte) (value ? 1 : 0);
+    }
+
+    private static long encode(LocalDateTime time) {
+        if (time == null) {
+            return NULL_TIME;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static Boolean decodeBoolean(byte value) {
+        return value < 0 ? null : value == 1;
+    }
+
+    private static LocalDateTime decodeTime(long micros) {
+        if (micros == NULL_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Assigns each distinct string an index, in first-seen order.
+     */
+    private static final class Strings {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int index(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return indexes.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+    }
+}
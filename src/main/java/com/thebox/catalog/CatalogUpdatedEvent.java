@@ -0,0 +1,7 @@
+package com.thebox.catalog;
+
+/**
+ * Published after a new {@link CatalogSnapshot} has been swapped in.
+ */
+public record CatalogUpdatedEvent(CatalogSnapshot snapshot) {
+}
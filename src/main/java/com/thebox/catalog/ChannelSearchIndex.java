@@ -0,0 +1,215 @@
+package com.thebox.catalog;
+
+import com.thebox.model.Channel;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted trigram index over active channel names. Every name containing the query is
+ * returned; names that only share most of the query's trigrams are returned as typo-tolerant
+ * matches ranked below them. Built once per {@link CatalogSnapshot} and never modified.
+ */
+public final class ChannelSearchIndex {
+
+    private static final int GRAM = 3;
+
+    // Share of the query's trigrams (including word-boundary grams) a name needs to qualify as a fuzzy match
+    private static final float MIN_FUZZY_SIMILARITY = 0.5f;
+
+    // A name can share at most a few hundred grams with a query, so inner hits fit above this
+    private static final int INNER_HIT = 1 << 16;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Channel[] channels;
+    private final String[] names;
+    private final Map<String, int[]> postings;
+
+    private ChannelSearchIndex(Channel[] channels, String[] names, Map<String, int[]> postings) {
+        this.channels = channels;
+        this.names = names;
+        this.postings = postings;
+    }
+
+    public static ChannelSearchIndex build(List<Channel> activeChannels) {
+        Channel[] channels = activeChannels.toArray(new Channel[0]);
+        String[] names = new String[channels.length];
+        Map<String, List<Integer>> building = new HashMap<>();
+
+        for (int doc = 0; doc < channels.length; doc++) {
+            names[doc] = normalize(channels[doc].getName());
+            for (String gram : trigrams(" " + names[doc] + " ")) {
+                building.computeIfAbsent(gram, key -> new ArrayList<>()).add(doc);
+            }
+        }
+
+        Map<String, int[]> postings = new HashMap<>(building.size() * 2);
+        building.forEach((gram, docs) -> postings.put(gram, docs.stream().mapToInt(Integer::intValue).toArray()));
+        return new ChannelSearchIndex(channels, names, postings);
+    }
+
+    /**
+     * @param countryCode optional country filter
+     * @param category    optional category filter (case-insensitive)
+     * @param limit       maximum number of results, or {@code <= 0} for all
+     */
+    public List<Channel> search(String query, String countryCode, String category, int limit) {
+        String needle = normalize(query);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+
+        String wordPrefix = " " + needle;
+        float[] scores = new float[channels.length];
+        int[] hits = new int[channels.length];
+        int hitCount = 0;
+
+        if (needle.length() < GRAM) {
+            // Too short for trigrams: a scan over the pre-normalized names is still sub-millisecond
+            for (int doc = 0; doc < names.length; doc++) {
+                if (names[doc].contains(needle) && matchesFilters(doc, countryCode, category)) {
+                    scores[doc] = score(doc, needle, wordPrefix, 1f);
+                    hits[hitCount++] = doc;
+                }
+            }
+        } else {
+            // Word-boundary grams only help fuzzy matching; substring matches need every inner gram.
+            // Inner hits are counted in the upper bits so one array tracks both.
+            Set<String> inner = trigrams(needle);
+            Set<String> boundary = trigrams(" " + needle + " ");
+            boundary.removeAll(inner);
+
+            int[] shared = new int[channels.length];
+            int[] touched = new int[channels.length];
+            int touchedCount = 0;
+            for (String gram : inner) {
+                touchedCount = countShared(gram, INNER_HIT, shared, touched, touchedCount);
+            }
+            for (String gram : boundary) {
+                touchedCount = countShared(gram, 1, shared, touched, touchedCount);
+            }
+
+            int totalGrams = inner.size() + boundary.size();
+            for (int i = 0; i < touchedCount; i++) {
+                int doc = touched[i];
+                int innerShared = shared[doc] / INNER_HIT;
+                float similarity = (float) (innerShared + shared[doc] % INNER_HIT) / totalGrams;
+                boolean substring = innerShared == inner.size() && names[doc].contains(needle);
+                if ((substring || similarity >= MIN_FUZZY_SIMILARITY) && matchesFilters(doc, countryCode, category)) {
+                    scores[doc] = score(doc, needle, wordPrefix, similarity);
+                    hits[hitCount++] = doc;
+                }
+            }
+        }
+
+        return topResults(hits, hitCount, scores, limit);
+    }
+
+    private int countShared(String gram, int weight, int[] shared, int[] touched, int touchedCount) {
+        int[] docs = postings.get(gram);
+        if (docs != null) {
+            for (int doc : docs) {
+                if (shared[doc] == 0) {
+                    touched[touchedCount++] = doc;
+                }
+                shared[doc] += weight;
+            }
+        }
+        return touchedCount;
+    }
+
+    public int size() {
+        return channels.length;
+    }
+
+    private boolean matchesFilters(int doc, String countryCode, String category) {
+        Channel channel = channels[doc];
+        return (countryCode == null || countryCode.equals(channel.getCountryCode()))
+                && (category == null || category.equalsIgnoreCase(channel.getCategory()));
+    }
+
+    /**
+     * Exact names rank first, then prefixes, word prefixes, other substrings and finally
+     * fuzzy matches by trigram similarity.
+     */
+    private float score(int doc, String needle, String wordPrefix, float similarity) {
+        String name = names[doc];
+        if (name.equals(needle)) {
+            return 1000f;
+        }
+        if (name.startsWith(needle)) {
+            return 500f;
+        }
+        if (name.contains(wordPrefix)) {
+            return 300f;
+        }
+        if (name.contains(needle)) {
+            return 200f;
+        }
+        return 100f * similarity;
+    }
+
+    private List<Channel> topResults(int[] hits, int hitCount, float[] scores, int limit) {
+        Comparator<Integer> ranking = (a, b) -> {
+            int byScore = Float.compare(scores[b], scores[a]);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byLength = Integer.compare(names[a].length(), names[b].length());
+            return byLength != 0 ? byLength : names[a].compareTo(names[b]);
+        };
+
+        int count = limit > 0 ? Math.min(limit, hitCount) : hitCount;
+        Integer[] ranked = new Integer[count];
+        if (count < hitCount) {
+            // Only the best `limit` hits are needed: keep them in a bounded heap, worst on top
+            PriorityQueue<Integer> best = new PriorityQueue<>(count + 1, ranking.reversed());
+            for (int i = 0; i < hitCount; i++) {
+                best.offer(hits[i]);
+                if (best.size() > count) {
+                    best.poll();
+                }
+            }
+            best.toArray(ranked);
+        } else {
+            for (int i = 0; i < hitCount; i++) {
+                ranked[i] = hits[i];
+            }
+        }
+        Arrays.sort(ranked, ranking);
+
+        Channel[] results = new Channel[count];
+        for (int i = 0; i < count; i++) {
+            results[i] = channels[ranked[i]];
+        }
+        return Arrays.asList(results);
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALPHANUMERIC.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,70 @@
+package com.thebox.catalog;
+
+import com.thebox.model.Channel;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * An extended M3U playlist of catalog channels, written entry by entry to an output stream.
+ * The channel list belongs to one catalog snapshot, so the playlist for a given
+ * {@link #etag()} never changes and clients can revalidate instead of downloading it again.
+ * <p>
+ * Each entry carries {@code tvg-id}, {@code tvg-logo} and {@code group-title}, the attributes
+ * common IPTV players (and {@code SimpleTheBox}) read.
+ */
+public record M3uPlaylist(String etag, Instant lastModified, List<Channel> channels) {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    public static M3uPlaylist of(CatalogSnapshot snapshot, String key, List<Channel> channels) {
+        // builtAt tells apart snapshots with the same version number from different runs
+        String etag = "\"m3u-" + snapshot.getVersion() + "-" + snapshot.getBuiltAt().toEpochMilli() + "-" + key + "\"";
+        return new M3uPlaylist(etag, snapshot.getBuiltAt(), channels);
+    }
+
+    /**
+     * Writes the playlist; only a small buffer is held, never the whole document.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write("#EXTM3U\n");
+        for (Channel channel : channels) {
+            writer.write("#EXTINF:-1");
+            attribute(writer, "tvg-id", channel.getEpgId() != null ? channel.getEpgId() : channel.getChannelId());
+            attribute(writer, "tvg-logo", channel.getLogoUrl());
+            attribute(writer, "group-title", channel.getCategory());
+            writer.write(',');
+            writer.write(singleLine(channel.getName()));
+            writer.write('\n');
+            writer.write(singleLine(channel.getStreamUrl()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static void attribute(Writer writer, String name, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        writer.write(' ');
+        writer.write(name);
+        writer.write("=\"");
+        // Attribute values cannot be escaped in M3U; a double quote would end the value
+        writer.write(singleLine(value).replace('"', '\''));
+        writer.write('"');
+    }
+
+    private static String singleLine(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.indexOf('\n') < 0 && value.indexOf('\r') < 0 ? value : value.replaceAll("[\\r\\n]+", " ");
+    }
+}
@@ -0,0 +1,158 @@
+package com.thebox.catalog;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Catalog list responses serialized and compressed once per snapshot version. The first
+ * request for a list after a refresh renders it; every other request is served the stored
+ * bytes. Renderings of older versions are dropped as soon as a newer snapshot is seen.
+ */
+@Component
+public class RenderedCatalog implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderedCatalog.class);
+
+    @Autowired
+    private CatalogHolder catalogHolder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${thebox.api.prerender.max-entries:1000}")
+    private long maxEntries;
+
+    @Value("${thebox.api.prerender.brotli-quality:9}")
+    private int brotliQuality;
+
+    private volatile Renderings renderings;
+
+    // Across snapshot versions; each version starts with a fresh cache
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    private record Renderings(CatalogSnapshot snapshot, LoadingCache<String, RenderedJson> bodies) {
+    }
+
+    public RenderedJson countries() {
+        return get("countries");
+    }
+
+    public RenderedJson categories(String countryCode) {
+        return get("categories:" + countryCode);
+    }
+
+    /**
+     * Every active channel of a country as full entities.
+     */
+    public RenderedJson channels(String countryCode) {
+        return get("channels:" + countryCode);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, catalog -> catalog.requests.sum() - catalog.renders.sum())
+                .tags("cache", "prerendered", "cache.manager", "renderedCatalog", "name", "prerendered", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", renders, LongAdder::sum)
+                .tags("cache", "prerendered", "cache.manager", "renderedCatalog", "name", "prerendered", "result", "miss")
+                .register(registry);
+    }
+
+    private RenderedJson get(String key) {
+        requests.increment();
+        return current().bodies().get(key);
+    }
+
+    private Renderings current() {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        Renderings current = renderings;
+        if (current == null || current.snapshot() != snapshot) {
+            synchronized (this) {
+                current = renderings;
+                if (current == null || current.snapshot() != snapshot) {
+                    current = new Renderings(snapshot, Caffeine.newBuilder()
+                            .maximumSize(maxEntries)
+                            .recordStats()
+                            .build(key -> render(snapshot, key)));
+                    renderings = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private RenderedJson render(CatalogSnapshot snapshot, String key) {
+        renders.increment();
+        long started = System.nanoTime();
+        Object value;
+        if (key.equals("countries")) {
+            value = snapshot.getCountries();
+        } else if (key.startsWith("categories:")) {
+            value = snapshot.getCategories(key.substring("categories:".length()));
+        } else {
+            value = snapshot.getActiveChannels(key.substring("channels:".length()));
+        }
+
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(value);
+            RenderedJson rendered = new RenderedJson(identity, gzip(identity), brotli(identity), hash(identity));
+            logger.debug("Rendered {} for catalog v{} in {} ms: {} bytes, {} gzip, {} brotli", key, snapshot.getVersion(),
+                    (System.nanoTime() - started) / 1_000_000, identity.length, rendered.gzip().length,
+                    rendered.brotli() != null ? rendered.brotli().length : -1);
+            return rendered;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] brotli(byte[] data) throws IOException {
+        if (!Brotli4jLoader.isAvailable()) {
+            return null;
+        }
+        return Encoder.compress(data, new Encoder.Parameters().setQuality(brotliQuality));
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 18));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.thebox.catalog;
+
+/**
+ * A JSON response body rendered once per catalog version, in every encoding it is served
+ * with. All three encodings share one content hash; each gets its own strong ETag.
+ *
+ * @param brotli null when the Brotli encoder is not available on this platform
+ * @param hash   content hash of {@code identity}, the basis of the ETags
+ */
+public record RenderedJson(byte[] identity, byte[] gzip, byte[] brotli, String hash) {
+
+    public String etag(String contentEncoding) {
+        return contentEncoding == null ? "\"" + hash + "\"" : "\"" + hash + "-" + contentEncoding + "\"";
+    }
+
+    /**
+     * Whether an If-None-Match header names any encoding of this body.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.startsWith("\"" + hash + "\"") || trimmed.startsWith("\"" + hash + "-")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
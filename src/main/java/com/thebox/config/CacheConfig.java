@@ -0,0 +1,114 @@
+package com.thebox.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.thebox.catalog.CatalogHolder;
+import com.thebox.catalog.CatalogSnapshot;
+import com.thebox.catalog.CatalogUpdatedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded Caffeine caches for the service's {@code @Cacheable} methods. Each cache has a
+ * loader that recomputes an entry straight from the current catalog snapshot, which lets
+ * Caffeine refresh hot entries in the background instead of evicting them.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheTuningProperties.class)
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    public static final String CHANNELS = "channels";
+    public static final String COUNTRIES = "countries";
+    public static final String CATEGORIES = "categories";
+
+    @Autowired
+    private ObjectProvider<CacheManager> cacheManagerProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public CacheManager cacheManager(CacheTuningProperties properties, CatalogHolder catalogHolder) {
+        // Keys mirror the @Cacheable key expressions in TheBoxServiceImpl
+        Map<String, CacheLoader<Object, Object>> loaders = Map.of(
+                CHANNELS, key -> {
+                    CatalogSnapshot snapshot = catalogHolder.current();
+                    String[] parts = key.toString().split("_", 2);
+                    return parts.length == 2 ? snapshot.getActiveChannels(parts[0], parts[1]) : snapshot.getActiveChannels(parts[0]);
+                },
+                COUNTRIES, key -> catalogHolder.current().getCountries(),
+                CATEGORIES, key -> catalogHolder.current().getCategories(key.toString()));
+
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        manager.setCaffeine(builder(properties.getDefaults()));
+        for (String name : loaders.keySet()) {
+            CacheTuningProperties.Spec spec = properties.getCaches().getOrDefault(name, properties.getDefaults());
+            manager.registerCustomCache(name, builder(spec).build(loaders.get(name)));
+        }
+        return manager;
+    }
+
+    /**
+     * Reloads every cached entry from each new snapshot. Readers keep getting the previous value
+     * until the reload lands, so a refresh never turns hot keys into misses.
+     */
+    @EventListener
+    public void onCatalogUpdated(CatalogUpdatedEvent event) {
+        long started = System.nanoTime();
+        CacheManager cacheManager = cacheManagerProvider.getObject();
+        List<CompletableFuture<?>> reloads = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            org.springframework.cache.Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof Cache<?, ?> nativeCache) {
+                if (nativeCache instanceof LoadingCache<?, ?> loadingCache) {
+                    reloads.add(refreshAll(loadingCache));
+                } else {
+                    nativeCache.invalidateAll();
+                }
+            }
+        }
+        Timer timer = Timer.builder("thebox.cache.reload")
+                .description("Reloading every cached entry from a new catalog snapshot, until the last reload lands")
+                .register(meterRegistry);
+        CompletableFuture.allOf(reloads.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, error) -> timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS));
+        logger.debug("Refreshing caches for catalog snapshot v{}", event.snapshot().getVersion());
+    }
+
+    private static <K> CompletableFuture<?> refreshAll(LoadingCache<K, ?> cache) {
+        return cache.refreshAll(List.copyOf(cache.asMap().keySet()));
+    }
+
+    private static Caffeine<Object, Object> builder(CacheTuningProperties.Spec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .recordStats();
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getRefreshAfterWrite() != null) {
+            builder.refreshAfterWrite(spec.getRefreshAfterWrite());
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,57 @@
+package com.thebox.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Connection pool gauges for the shared WebClient, summed over all remote hosts. Reactor Netty
+ * keeps one pool per host and would otherwise publish gauges per host; probes reach thousands
+ * of hosts, which would mean thousands of series.
+ */
+final class PooledConnectionMetrics implements ConnectionProvider.MeterRegistrar {
+
+    private final Map<String, ConnectionPoolMetrics> pools = new ConcurrentHashMap<>();
+
+    PooledConnectionMetrics(String poolName, MeterRegistry registry) {
+        gauge(registry, poolName, "active", ConnectionPoolMetrics::acquiredSize);
+        gauge(registry, poolName, "idle", ConnectionPoolMetrics::idleSize);
+        gauge(registry, poolName, "pending", ConnectionPoolMetrics::pendingAcquireSize);
+        Gauge.builder("thebox.http.client.pool.hosts", pools, Map::size)
+                .description("Remote hosts with a connection pool")
+                .tag("pool", poolName)
+                .register(registry);
+    }
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.put(id, metrics);
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        pools.remove(id);
+    }
+
+    private void gauge(MeterRegistry registry, String poolName, String state, ToIntFunction<ConnectionPoolMetrics> size) {
+        Gauge.builder("thebox.http.client.pool.connections", pools, pools -> sum(pools, size))
+                .description("Outbound connections across all hosts; pending counts requests waiting for one")
+                .tag("pool", poolName)
+                .tag("state", state)
+                .register(registry);
+    }
+
+    private static double sum(Map<String, ConnectionPoolMetrics> pools, ToIntFunction<ConnectionPoolMetrics> size) {
+        long total = 0;
+        for (ConnectionPoolMetrics metrics : pools.values()) {
+            total += size.applyAsInt(metrics);
+        }
+        return total;
+    }
+}
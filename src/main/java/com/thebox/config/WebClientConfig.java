@@ -1,5 +1,6 @@
 package com.thebox.config;
 
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -18,12 +19,15 @@ public class WebClientConfig implements WebMvcConfigurer {
 
     @Bean
     public WebClient webClient() {
+        // Global registry: Spring Boot adds its registry to it, and this bean is also built by hand in benchmarks
+        PooledConnectionMetrics poolMetrics = new PooledConnectionMetrics("http-pool", Metrics.globalRegistry);
         ConnectionProvider provider = ConnectionProvider.builder("http-pool")
                 .maxConnections(500)
                 .maxIdleTime(Duration.ofSeconds(20))
                 .maxLifeTime(Duration.ofSeconds(60))
                 .pendingAcquireTimeout(Duration.ofSeconds(60))
                 .evictInBackground(Duration.ofSeconds(120))
+                .metrics(true, () -> poolMetrics)
                 .build();
 
         HttpClient httpClient = HttpClient.create(provider)
@@ -34,7 +38,7 @@ public class WebClientConfig implements WebMvcConfigurer {
         return WebClient.builder()
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .codecs(configurer -> {
-                    configurer.defaultCodecs().maxInMemorySize(1024 * 1024 * 1024); // 250 MB for very large responses
+                    configurer.defaultCodecs().maxInMemorySize(16 * 1024 * 1024); // Feeds are streamed; this only bounds playlist bodies
                     configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder());
                     configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder());
                 })
@@ -0,0 +1,45 @@
+package com.thebox.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Threads for {@code StreamingResponseBody} responses on the servlet stack: relayed segments and
+ * M3U exports. Each one holds its thread until the last byte is written to the player, so the
+ * pool is sized for concurrent streams rather than CPU work. It has no queue: a stream that would
+ * wait behind others is rejected and the controller answers 503, so players retry instead of
+ * stalling. The executor is deliberately not a bean, which leaves Boot's
+ * {@code applicationTaskExecutor} for everything else.
+ */
+@Configuration
+@Profile("!reactive")
+public class WebMvcConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ThreadPoolTaskExecutor streamingExecutor = new ThreadPoolTaskExecutor();
+
+    public WebMvcConfig(@Value("${thebox.relay.segments.threads:64}") int threads) {
+        streamingExecutor.setCorePoolSize(threads);
+        streamingExecutor.setMaxPoolSize(threads);
+        streamingExecutor.setQueueCapacity(0);
+        streamingExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        streamingExecutor.setThreadNamePrefix("streaming-");
+        streamingExecutor.initialize();
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor);
+    }
+
+    @Override
+    public void destroy() {
+        streamingExecutor.shutdown();
+    }
+}
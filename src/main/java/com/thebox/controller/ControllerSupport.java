@@ -0,0 +1,159 @@
+package com.thebox.controller;
+
+import com.thebox.catalog.RenderedJson;
+import com.thebox.dto.ChannelSummary;
+import com.thebox.model.StreamVariant;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Response building shared by the servlet and reactive controllers.
+ */
+final class ControllerSupport {
+
+    private ControllerSupport() {
+    }
+
+    /**
+     * Serves a pre-rendered body in the best encoding the client accepts, or 304 if the
+     * client already has it. Compressed variants are ready-made bytes, so nothing is
+     * serialized or compressed per request.
+     */
+    static ResponseEntity<byte[]> rendered(RenderedJson body, String acceptEncoding, String ifNoneMatch) {
+        String encoding = null;
+        byte[] bytes = body.identity();
+        if (body.brotli() != null && accepts(acceptEncoding, "br")) {
+            encoding = "br";
+            bytes = body.brotli();
+        } else if (accepts(acceptEncoding, "gzip")) {
+            encoding = "gzip";
+            bytes = body.gzip();
+        }
+
+        ResponseEntity.BodyBuilder response = body.matches(ifNoneMatch)
+                ? ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                : ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).contentLength(bytes.length);
+        response.eTag(body.etag(encoding))
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CacheControl.noCache());
+        if (encoding != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        return body.matches(ifNoneMatch) ? response.build() : response.body(bytes);
+    }
+
+    static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (params[0].trim().equalsIgnoreCase(coding)) {
+                // An explicit q=0 means "not acceptable"
+                return params.length < 2 || !params[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 400 naming the first unknown summary field, or null if all are known.
+     */
+    static ResponseEntity<Map<String, Object>> invalidFields(Set<String> fields) {
+        if (fields == null) {
+            return null;
+        }
+        for (String field : fields) {
+            if (!ChannelSummary.isField(field)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Unknown field: " + field));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a stream request asked for the ranked JSON form rather than the bare URL: by
+     * {@code ranked=true}, or by an Accept header that prefers {@code application/json} to
+     * {@code text/plain}. Headers that merely list JSON, like axios's default
+     * {@code application/json, text/plain, *}{@code /*}, still get the URL.
+     */
+    static boolean wantsRankedStream(boolean ranked, String accept) {
+        if (ranked) {
+            return true;
+        }
+        if (accept == null) {
+            return false;
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            return quality(accepted, MediaType.APPLICATION_JSON) > quality(accepted, MediaType.TEXT_PLAIN);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The q-value the most specific matching range gives {@code type}, or 0 if none matches.
+     */
+    private static double quality(List<MediaType> accepted, MediaType type) {
+        int bestSpecificity = -1;
+        double quality = 0;
+        for (MediaType range : accepted) {
+            if (range.includes(type)) {
+                int specificity = (range.isWildcardType() ? 0 : 1) + (range.isWildcardSubtype() ? 0 : 1);
+                if (specificity > bestSpecificity) {
+                    bestSpecificity = specificity;
+                    quality = range.getQualityValue();
+                }
+            }
+        }
+        return quality;
+    }
+
+    /**
+     * The best stream with the remaining variants as ordered fallbacks.
+     */
+    static Map<String, Object> stream(Long channelId, List<StreamVariant> variants) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("channelId", channelId);
+        response.put("streamUrl", variants.get(0).getUrl());
+        response.put("quality", variants.get(0).getQuality());
+        response.put("variants", variants);
+        response.put("fallbacks", variants.stream().skip(1).map(StreamVariant::getUrl).toList());
+        return response;
+    }
+
+    /**
+     * Result of an HLS validation: the playlist's first 200 characters, or why it failed.
+     */
+    static Map<String, Object> hlsValidation(String streamUrl, String content, Throwable error) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("streamUrl", streamUrl);
+        response.put("timestamp", System.currentTimeMillis());
+        if (!streamUrl.contains(".m3u8")) {
+            response.put("valid", false);
+            response.put("message", "URL is not an HLS stream. Only .m3u8 files are supported.");
+            response.put("format", "Not HLS");
+        } else if (error == null) {
+            response.put("valid", true);
+            response.put("message", "HLS stream is valid and accessible");
+            response.put("format", "HLS (.m3u8)");
+            response.put("contentPreview", content.substring(0, Math.min(200, content.length())));
+        } else {
+            response.put("valid", false);
+            response.put("message", "HLS stream validation failed: " + error.getMessage());
+            response.put("format", "HLS (.m3u8) - Invalid");
+        }
+        return response;
+    }
+}
@@ -1,23 +1,50 @@
 package com.thebox.controller;
 
+import com.thebox.catalog.M3uPlaylist;
+import com.thebox.health.HealthSweep;
+import com.thebox.health.ProbeResult;
 import com.thebox.model.Channel;
+import com.thebox.model.ChannelHealthHistory;
 import com.thebox.model.Country;
+import com.thebox.model.StreamVariant;
+import com.thebox.refresh.RefreshJob;
+import com.thebox.relay.RelayedManifest;
+import com.thebox.relay.RelayedSegment;
 import com.thebox.service.TheBoxService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/iptv")
 @CrossOrigin(origins = "*")
 public class IPTVController {
     
+    private static final MediaType HLS_PLAYLIST = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+    private static final MediaType M3U_PLAYLIST = MediaType.parseMediaType("audio/x-mpegurl;charset=UTF-8");
+    
     @Autowired
     private TheBoxService iptvService;
     
@@ -31,28 +58,38 @@ public class IPTVController {
     }
     
     @GetMapping("/countries")
-    public ResponseEntity<List<Country>> getCountries() {
+    public ResponseEntity<byte[]> getCountries(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Country> countries = iptvService.getAvailableCountries();
-            if (countries.isEmpty()) {
-                return ResponseEntity.ok(new ArrayList<>());
-            }
-            return ResponseEntity.ok(countries);
+            return ControllerSupport.rendered(iptvService.getRenderedCountries(), acceptEncoding, ifNoneMatch);
         } catch (Exception e) {
             System.err.println("Error getting countries: " + e.getMessage());
             e.printStackTrace();
-            return ResponseEntity.internalServerError().body(new ArrayList<>());
+            return ResponseEntity.internalServerError().build();
         }
     }
     
+    /**
+     * Active channels of a country as pages of {@link com.thebox.dto.ChannelSummary}: live channels
+     * first, then the ones whose latest probes failed, each group by name and then id, the same
+     * order as {@code all=true} and the M3U playlists. {@code fields} picks the summary fields to return; {@code all=true} returns every
+     * channel as full entities, unpaginated, as before.
+     */
     @GetMapping("/countries/{countryCode}/channels")
-    public ResponseEntity<List<Channel>> getChannelsByCountry(@PathVariable String countryCode) {
+    public ResponseEntity<?> getChannelsByCountry(
+            @PathVariable String countryCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean all,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Channel> channels = iptvService.getChannelsByCountry(countryCode.toUpperCase());
-            if (channels.isEmpty()) {
-                return ResponseEntity.ok(new ArrayList<>());
+            if (!all) {
+                return channelPage(countryCode.toUpperCase(), null, cursor, limit, fields);
             }
-            return ResponseEntity.ok(channels);
+            return ControllerSupport.rendered(iptvService.getRenderedChannels(countryCode.toUpperCase()), acceptEncoding, ifNoneMatch);
         } catch (Exception e) {
             System.err.println("Error getting channels for country " + countryCode + ": " + e.getMessage());
             e.printStackTrace();
@@ -60,21 +97,47 @@ public class IPTVController {
         }
     }
     
+    @GetMapping("/countries/{countryCode}/playlist.m3u")
+    public ResponseEntity<StreamingResponseBody> getCountryPlaylist(
+            @PathVariable String countryCode,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        return m3uPlaylist(countryCode.toUpperCase(), null, acceptEncoding, request);
+    }
+    
+    @GetMapping("/countries/{countryCode}/categories/{category}/playlist.m3u")
+    public ResponseEntity<StreamingResponseBody> getCategoryPlaylist(
+            @PathVariable String countryCode,
+            @PathVariable String category,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        return m3uPlaylist(countryCode.toUpperCase(), category, acceptEncoding, request);
+    }
+    
     @GetMapping("/countries/{countryCode}/categories")
-    public ResponseEntity<List<String>> getCategoriesByCountry(@PathVariable String countryCode) {
+    public ResponseEntity<byte[]> getCategoriesByCountry(
+            @PathVariable String countryCode,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<String> categories = iptvService.getCategoriesByCountry(countryCode.toUpperCase());
-            return ResponseEntity.ok(categories);
+            return ControllerSupport.rendered(iptvService.getRenderedCategories(countryCode.toUpperCase()), acceptEncoding, ifNoneMatch);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
     
     @GetMapping("/countries/{countryCode}/categories/{category}/channels")
-    public ResponseEntity<List<Channel>> getChannelsByCategory(
+    public ResponseEntity<?> getChannelsByCategory(
             @PathVariable String countryCode,
-            @PathVariable String category) {
+            @PathVariable String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean all) {
         try {
+            if (!all) {
+                return channelPage(countryCode.toUpperCase(), category, cursor, limit, fields);
+            }
             List<Channel> channels = iptvService.getChannelsByCategory(countryCode.toUpperCase(), category);
             return ResponseEntity.ok(channels);
         } catch (Exception e) {
@@ -82,22 +145,33 @@ public class IPTVController {
         }
     }
     
+    /**
+     * Ranked search. With {@code cursor}, {@code fields} or {@code paged=true} results come as
+     * pages of summaries; otherwise as before, up to {@code limit} full entities.
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<Channel>> searchChannels(
+    public ResponseEntity<?> searchChannels(
             @RequestParam String query,
-            @RequestParam(required = false) String countryCode) {
+            @RequestParam(required = false) String countryCode,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean paged) {
         try {
-            List<Channel> channels;
-            if (countryCode != null && !countryCode.isEmpty()) {
-                channels = iptvService.searchChannels(query, countryCode.toUpperCase());
-            } else {
-                // Search across all countries
-                channels = iptvService.getAvailableCountries()
-                        .stream()
-                        .flatMap(country -> iptvService.searchChannels(query, country.getCode()).stream())
-                        .toList();
+            // A missing countryCode searches across all countries in a single index lookup
+            String country = countryCode != null && !countryCode.isEmpty() ? countryCode.toUpperCase() : null;
+            if (paged || cursor != null || fields != null) {
+                ResponseEntity<Map<String, Object>> invalid = ControllerSupport.invalidFields(fields);
+                if (invalid != null) {
+                    return invalid;
+                }
+                return ResponseEntity.ok(iptvService.searchChannelPage(query, country, category, cursor, limit, fields));
             }
+            List<Channel> channels = iptvService.searchChannels(query, country, category, limit);
             return ResponseEntity.ok(channels);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -117,31 +191,121 @@ public class IPTVController {
         }
     }
     
+    /**
+     * The URL of the channel's best stream right now, as plain text. With {@code ranked=true}
+     * or an Accept header preferring {@code application/json} to {@code text/plain}, a JSON
+     * object that also lists the remaining variants as ordered fallbacks.
+     */
     @GetMapping("/channels/{channelId}/stream")
-    public ResponseEntity<String> getChannelStream(@PathVariable Long channelId) {
+    public ResponseEntity<?> getChannelStream(
+            @PathVariable Long channelId,
+            @RequestParam(defaultValue = "false") boolean ranked,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
-            String streamUrl = iptvService.getChannelStreamUrl(channelId);
-            if (streamUrl != null) {
-                return ResponseEntity.ok(streamUrl);
-            } else {
+            List<StreamVariant> variants = iptvService.getRankedStreamVariants(channelId);
+            if (variants.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
+            if (!ControllerSupport.wantsRankedStream(ranked, accept)) {
+                return ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(variants.get(0).getUrl());
+            }
+            return ResponseEntity.ok(ControllerSupport.stream(channelId, variants));
         } catch (Exception e) {
+            System.err.println("Error getting stream for channel " + channelId + ": " + e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    /**
+     * Relays the channel's HLS playlist; with {@code variant}, one of the playlists a master
+     * playlist refers to. Served from a short-lived cache shared by all viewers.
+     */
+    @GetMapping("/channels/{channelId}/playlist.m3u8")
+    public Mono<ResponseEntity<byte[]>> getChannelPlaylist(
+            @PathVariable Long channelId,
+            @RequestParam(required = false) Integer variant,
+            @RequestParam(required = false) String src,
+            @RequestParam(required = false) String sig) {
+        return iptvService.getRelayedPlaylist(channelId, variant, src, sig)
+                .map(manifest -> ResponseEntity.ok()
+                        .contentType(HLS_PLAYLIST)
+                        .cacheControl(CacheControl.maxAge(manifest.remainingTtl()).cachePublic())
+                        .body(manifest.body()))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(e -> {
+                    System.err.println("Error relaying playlist for channel " + channelId + ": " + e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY).build());
+                });
+    }
+
+    @GetMapping("/channels/{channelId}/segment")
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> getChannelSegment(
+            @PathVariable Long channelId,
+            @RequestParam String uri,
+            @RequestParam String sig) {
+        // Not a Mono: if the player has gone by the time the segment arrives, its upstream
+        // response has to be released rather than silently dropped
+        DeferredResult<ResponseEntity<StreamingResponseBody>> result = new DeferredResult<>();
+        Disposable fetch = iptvService.getRelayedSegment(channelId, uri, sig)
+                .subscribe(segment -> {
+                            if (!result.setResult(segmentResponse(segment))) {
+                                segment.discard().run();
+                            }
+                        },
+                        e -> {
+                            System.err.println("Error relaying segment for channel " + channelId + ": " + e.getMessage());
+                            result.setResult(ResponseEntity.status(HttpStatus.BAD_GATEWAY).build());
+                        },
+                        () -> result.setResult(ResponseEntity.notFound().build()));
+        result.onTimeout(fetch::dispose);
+        result.onError(e -> fetch.dispose());
+        return result;
+    }
+
+    /**
+     * Every streaming thread is busy writing a segment or an export (see {@code WebMvcConfig}).
+     * The rejected response's headers have already been copied over, so the ones that describe
+     * its body are overwritten.
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Void> streamingThreadsExhausted(HttpServletResponse response) {
+        response.setContentLengthLong(0);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    @GetMapping("/relay/stats")
+    public ResponseEntity<Map<String, Object>> getRelayStats() {
+        return ResponseEntity.ok(iptvService.getRelayStats());
+    }
+    
     @PostMapping("/refresh")
-    public ResponseEntity<String> refreshChannels() {
+    public ResponseEntity<Map<String, Object>> refreshChannels() {
         try {
             System.out.println("Refreshing channels...");
-            iptvService.fetchAndUpdateChannels();
-            System.out.println("Channels refreshed successfully");
-            return ResponseEntity.ok("Channels refreshed successfully");
+            RefreshJob job = iptvService.startRefresh("api");
+            return jobAccepted(job);
         } catch (Exception e) {
             System.err.println("Error refreshing channels: " + e.getMessage());
             e.printStackTrace();
-            return ResponseEntity.internalServerError().body("Error refreshing channels: " + e.getMessage());
+            return jobError("Error refreshing channels: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/refresh/jobs")
+    public ResponseEntity<List<RefreshJob>> getRefreshJobs() {
+        return ResponseEntity.ok(iptvService.getRecentRefreshJobs());
+    }
+    
+    @GetMapping("/refresh/jobs/{jobId}")
+    public ResponseEntity<RefreshJob> getRefreshJob(@PathVariable String jobId) {
+        RefreshJob job = iptvService.getRefreshJob(jobId);
+        if (job != null) {
+            return ResponseEntity.ok(job);
+        } else {
+            return ResponseEntity.notFound().build();
         }
     }
     
@@ -164,30 +328,28 @@ public class IPTVController {
     }
     
     @PostMapping("/create-sample-channels")
-    public ResponseEntity<String> createSampleChannels() {
+    public ResponseEntity<Map<String, Object>> createSampleChannels() {
         try {
             System.out.println("Creating sample channels...");
             // Force refresh and create sample channels
-            iptvService.fetchAndUpdateChannels();
-            return ResponseEntity.ok("Sample channels created successfully");
+            return jobAccepted(iptvService.startRefresh("api"));
         } catch (Exception e) {
             System.err.println("Error creating sample channels: " + e.getMessage());
             e.printStackTrace();
-            return ResponseEntity.internalServerError().body("Error creating sample channels: " + e.getMessage());
+            return jobError("Error creating sample channels: " + e.getMessage());
         }
     }
     
     @PostMapping("/create-working-channels")
-    public ResponseEntity<String> createWorkingChannels() {
+    public ResponseEntity<Map<String, Object>> createWorkingChannels() {
         try {
             System.out.println("Creating working IPTV channels...");
-            // Use the new method to create real working channels
-            iptvService.createRealWorkingChannels();
-            return ResponseEntity.ok("Working channels created successfully");
+            // Working channels come from the global streams refresh
+            return jobAccepted(iptvService.startRefresh("api"));
         } catch (Exception e) {
             System.err.println("Error creating working channels: " + e.getMessage());
             e.printStackTrace();
-            return ResponseEntity.internalServerError().body("Error creating working channels: " + e.getMessage());
+            return jobError("Error creating working channels: " + e.getMessage());
         }
     }
     
@@ -219,36 +381,84 @@ public class IPTVController {
         }
     }
     
+    @GetMapping("/channels/{channelId}/health/history")
+    public ResponseEntity<List<ChannelHealthHistory>> getChannelHealthHistory(
+            @PathVariable Long channelId,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<ChannelHealthHistory> history = iptvService.getChannelHealthHistory(channelId, Math.min(Math.max(limit, 1), 1000));
+            return ResponseEntity.ok(history);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @PostMapping("/health/sweeps")
+    public ResponseEntity<Map<String, Object>> startHealthSweep(
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String category) {
+        try {
+            String countryCode = country != null ? country.toUpperCase() : null;
+            HealthSweep sweep = iptvService.startHealthSweep(countryCode, category);
+            Map<String, Object> response = new HashMap<>();
+            response.put("sweepId", sweep.getId());
+            response.put("total", sweep.getTotal());
+            response.put("status", sweep.getStatus());
+            response.put("statusUrl", ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/iptv/health/sweeps/{sweepId}")
+                    .buildAndExpand(sweep.getId())
+                    .toUriString());
+            return ResponseEntity.accepted().body(response);
+        } catch (Exception e) {
+            System.err.println("Error starting health sweep: " + e.getMessage());
+            e.printStackTrace();
+            return jobError("Error starting health sweep: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/health/sweeps")
+    public ResponseEntity<List<HealthSweep>> getHealthSweeps() {
+        return ResponseEntity.ok(iptvService.getRecentHealthSweeps());
+    }
+    
+    @GetMapping("/health/sweeps/{sweepId}")
+    public ResponseEntity<HealthSweep> getHealthSweep(@PathVariable String sweepId) {
+        HealthSweep sweep = iptvService.getHealthSweep(sweepId);
+        if (sweep != null) {
+            return ResponseEntity.ok(sweep);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @GetMapping("/health/sweeps/{sweepId}/results")
+    public ResponseEntity<List<ProbeResult>> getHealthSweepResults(
+            @PathVariable String sweepId,
+            @RequestParam(required = false) ProbeResult.Outcome outcome) {
+        HealthSweep sweep = iptvService.getHealthSweep(sweepId);
+        if (sweep != null) {
+            return ResponseEntity.ok(sweep.getResults(outcome));
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
     @PostMapping("/validate-hls")
     public ResponseEntity<Map<String, Object>> validateHLSStream(@RequestParam String streamUrl) {
-        Map<String, Object> response = new HashMap<>();
         try {
-            response.put("streamUrl", streamUrl);
-            response.put("timestamp", System.currentTimeMillis());
-            
-            // Check if URL is HLS format
             if (!streamUrl.contains(".m3u8")) {
-                response.put("valid", false);
-                response.put("message", "URL is not an HLS stream. Only .m3u8 files are supported.");
-                response.put("format", "Not HLS");
-                return ResponseEntity.ok(response);
+                return ResponseEntity.ok(ControllerSupport.hlsValidation(streamUrl, null, null));
             }
             
             // Try to fetch the stream to validate it
             try {
                 String streamContent = iptvService.validateHLSStream(streamUrl);
-                response.put("valid", true);
-                response.put("message", "HLS stream is valid and accessible");
-                response.put("format", "HLS (.m3u8)");
-                response.put("contentPreview", streamContent.substring(0, Math.min(200, streamContent.length())));
+                return ResponseEntity.ok(ControllerSupport.hlsValidation(streamUrl, streamContent, null));
             } catch (Exception e) {
-                response.put("valid", false);
-                response.put("message", "HLS stream validation failed: " + e.getMessage());
-                response.put("format", "HLS (.m3u8) - Invalid");
+                return ResponseEntity.ok(ControllerSupport.hlsValidation(streamUrl, null, e));
             }
-            
-            return ResponseEntity.ok(response);
         } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
             response.put("valid", false);
             response.put("message", "Error validating stream: " + e.getMessage());
             response.put("timestamp", System.currentTimeMillis());
@@ -257,21 +467,29 @@ public class IPTVController {
     }
     
     @PostMapping("/global-streams/fetch")
-    public ResponseEntity<String> fetchGlobalStreams() {
+    public ResponseEntity<Map<String, Object>> fetchGlobalStreams() {
         try {
             System.out.println("Fetching channels from global IPTV streams JSON...");
-            iptvService.fetchChannelsFromGlobalStreams();
-            return ResponseEntity.ok("Global streams fetched successfully");
+            return jobAccepted(iptvService.startGlobalStreamsRefresh("api"));
         } catch (Exception e) {
             System.err.println("Error fetching global streams: " + e.getMessage());
             e.printStackTrace();
-            return ResponseEntity.internalServerError().body("Error fetching global streams: " + e.getMessage());
+            return jobError("Error fetching global streams: " + e.getMessage());
         }
     }
     
     @GetMapping("/global-streams/countries/{countryCode}/channels")
-    public ResponseEntity<List<Channel>> getGlobalChannelsByCountry(@PathVariable String countryCode) {
+    public ResponseEntity<?> getGlobalChannelsByCountry(
+            @PathVariable String countryCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean all) {
         try {
+            if (!all) {
+                // Every stored channel is an HLS stream from the global feed
+                return channelPage(countryCode.toUpperCase(), null, cursor, limit, fields);
+            }
             List<Channel> channels = iptvService.getChannelsFromGlobalStreams(countryCode.toUpperCase());
             if (channels.isEmpty()) {
                 return ResponseEntity.ok(new ArrayList<>());
@@ -297,6 +515,85 @@ public class IPTVController {
             return ResponseEntity.internalServerError().body("Error creating global channels: " + e.getMessage());
         }
     }
+    
+    /**
+     * Streams an M3U playlist, gzip-compressed on the fly when the client accepts it. The
+     * playlist only changes with the catalog, so repeat requests are answered with 304.
+     */
+    private ResponseEntity<StreamingResponseBody> m3uPlaylist(String countryCode, String category,
+                                                              String acceptEncoding, WebRequest request) {
+        try {
+            M3uPlaylist playlist = iptvService.getM3uPlaylist(countryCode, category);
+            if (playlist.channels().isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (request.checkNotModified(playlist.etag(), playlist.lastModified().toEpochMilli())) {
+                return null;
+            }
+            boolean gzip = ControllerSupport.accepts(acceptEncoding, "gzip");
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    // checkNotModified has already set ETag and Last-Modified
+                    .contentType(M3U_PLAYLIST)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache());
+            if (!gzip) {
+                return response.body(playlist::writeTo);
+            }
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 16 * 1024);
+                playlist.writeTo(compressed);
+                compressed.finish();
+            });
+        } catch (Exception e) {
+            System.err.println("Error exporting playlist for " + countryCode + ": " + e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 
 
-} 
\ No newline at end of file
+    private ResponseEntity<?> channelPage(String countryCode, String category, String cursor, Integer limit, Set<String> fields) {
+        ResponseEntity<Map<String, Object>> invalid = ControllerSupport.invalidFields(fields);
+        if (invalid != null) {
+            return invalid;
+        }
+        try {
+            return ResponseEntity.ok(iptvService.getChannelPage(countryCode, category, cursor, limit, fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+
+    private ResponseEntity<StreamingResponseBody> segmentResponse(RelayedSegment segment) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(segment.contentType()))
+                .cacheControl(CacheControl.maxAge(segment.maxAge()).cachePublic());
+        if (segment.contentLength() >= 0) {
+            response.contentLength(segment.contentLength());
+        }
+        return response.body(segment.body());
+    }
+
+    /**
+     * 202 response pointing at the job-status endpoint. If a refresh was already running, the
+     * returned job is that one.
+     */
+    private ResponseEntity<Map<String, Object>> jobAccepted(RefreshJob job) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("scope", job.getScope());
+        response.put("status", job.getStatus());
+        response.put("statusUrl", ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/iptv/refresh/jobs/{jobId}")
+                .buildAndExpand(job.getId())
+                .toUriString());
+        return ResponseEntity.accepted().body(response);
+    }
+    
+    private ResponseEntity<Map<String, Object>> jobError(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", message);
+        return ResponseEntity.internalServerError().body(response);
+    }
+}
@@ -0,0 +1,467 @@
+package com.thebox.controller;
+
+import com.thebox.catalog.M3uPlaylist;
+import com.thebox.health.HealthSweep;
+import com.thebox.health.ProbeResult;
+import com.thebox.model.Channel;
+import com.thebox.model.ChannelHealthHistory;
+import com.thebox.refresh.RefreshJob;
+import com.thebox.relay.RelayedSegment;
+import com.thebox.service.ReactiveTheBoxService;
+import com.thebox.service.TheBoxService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The endpoints of {@link IPTVController} on WebFlux, for the reactive profile: same paths,
+ * parameters and response bodies. Reads never block a request thread. Refresh, sweep and
+ * history calls still go through JPA, and M3U exports and relayed segments are written by
+ * blocking writers, so those run on the bounded elastic pool. Only the legacy {@code /test} and
+ * {@code create-*} endpoints are left to the servlet stack.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/iptv")
+public class ReactiveIPTVController {
+
+    private static final MediaType HLS_PLAYLIST = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+    private static final MediaType M3U_PLAYLIST = MediaType.parseMediaType("audio/x-mpegurl;charset=UTF-8");
+
+    @Autowired
+    private ReactiveTheBoxService reactiveService;
+
+    // Pre-rendered catalog bodies and the playlist relay, both non-blocking
+    @Autowired
+    private TheBoxService iptvService;
+
+    @GetMapping("/health")
+    public Mono<ResponseEntity<String>> health() {
+        return Mono.just(ResponseEntity.ok("TheBox Backend is running!"));
+    }
+
+    @GetMapping("/countries")
+    public Mono<ResponseEntity<?>> getCountries(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Mono<ResponseEntity<?>> response = reactiveService.isCatalogLoaded()
+                ? Mono.fromSupplier(() -> ControllerSupport.rendered(iptvService.getRenderedCountries(), acceptEncoding, ifNoneMatch))
+                : reactiveService.getAvailableCountries().map(ResponseEntity::ok);
+        return response.onErrorResume(e -> {
+            System.err.println("Error getting countries: " + e.getMessage());
+            return Mono.just(ResponseEntity.internalServerError().build());
+        });
+    }
+
+    @GetMapping("/countries/{countryCode}/channels")
+    public Mono<ResponseEntity<?>> getChannelsByCountry(
+            @PathVariable String countryCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean all,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String country = countryCode.toUpperCase();
+        Mono<ResponseEntity<?>> response;
+        if (!all) {
+            response = channelPage(country, null, cursor, limit, fields);
+        } else if (reactiveService.isCatalogLoaded()) {
+            response = Mono.fromSupplier(() -> ControllerSupport.rendered(iptvService.getRenderedChannels(country), acceptEncoding, ifNoneMatch));
+        } else {
+            response = reactiveService.getChannelsByCountry(country).map(ResponseEntity::ok);
+        }
+        return response.onErrorResume(e -> {
+            System.err.println("Error getting channels for country " + countryCode + ": " + e.getMessage());
+            return Mono.just(ResponseEntity.internalServerError().body(List.of()));
+        });
+    }
+
+    @GetMapping("/countries/{countryCode}/playlist.m3u")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getCountryPlaylist(
+            @PathVariable String countryCode,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return m3uPlaylist(countryCode.toUpperCase(), null, acceptEncoding);
+    }
+
+    @GetMapping("/countries/{countryCode}/categories/{category}/playlist.m3u")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getCategoryPlaylist(
+            @PathVariable String countryCode,
+            @PathVariable String category,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return m3uPlaylist(countryCode.toUpperCase(), category, acceptEncoding);
+    }
+
+    @GetMapping("/countries/{countryCode}/categories")
+    public Mono<ResponseEntity<?>> getCategoriesByCountry(
+            @PathVariable String countryCode,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String country = countryCode.toUpperCase();
+        Mono<ResponseEntity<?>> response = reactiveService.isCatalogLoaded()
+                ? Mono.fromSupplier(() -> ControllerSupport.rendered(iptvService.getRenderedCategories(country), acceptEncoding, ifNoneMatch))
+                : reactiveService.getCategoriesByCountry(country).map(ResponseEntity::ok);
+        return response.onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().build()));
+    }
+
+    @GetMapping("/countries/{countryCode}/categories/{category}/channels")
+    public Mono<ResponseEntity<?>> getChannelsByCategory(
+            @PathVariable String countryCode,
+            @PathVariable String category,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean all) {
+        Mono<ResponseEntity<?>> response = !all
+                ? channelPage(countryCode.toUpperCase(), category, cursor, limit, fields)
+                : reactiveService.getChannelsByCategory(countryCode.toUpperCase(), category).map(ResponseEntity::ok);
+        return response.onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().build()));
+    }
+
+    @GetMapping("/search")
+    public Mono<ResponseEntity<?>> searchChannels(
+            @RequestParam String query,
+            @RequestParam(required = false) String countryCode,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean paged) {
+        String country = countryCode != null && !countryCode.isEmpty() ? countryCode.toUpperCase() : null;
+        Mono<ResponseEntity<?>> response;
+        if (paged || cursor != null || fields != null) {
+            ResponseEntity<Map<String, Object>> invalid = ControllerSupport.invalidFields(fields);
+            if (invalid != null) {
+                return Mono.just(invalid);
+            }
+            response = Mono.defer(() -> reactiveService.searchChannelPage(query, country, category, cursor, limit, fields))
+                    .map(ResponseEntity::ok);
+        } else {
+            response = reactiveService.searchChannels(query, country, category, limit).map(ResponseEntity::ok);
+        }
+        return response.onErrorResume(e -> Mono.just(errorResponse(e)));
+    }
+
+    @GetMapping("/channels/{channelId}")
+    public Mono<ResponseEntity<Channel>> getChannel(@PathVariable Long channelId) {
+        return reactiveService.getChannelById(channelId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().build()));
+    }
+
+    @GetMapping("/channels/{channelId}/stream")
+    public Mono<ResponseEntity<?>> getChannelStream(
+            @PathVariable Long channelId,
+            @RequestParam(defaultValue = "false") boolean ranked,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean json = ControllerSupport.wantsRankedStream(ranked, accept);
+        return reactiveService.getRankedStreamVariants(channelId)
+                .<ResponseEntity<?>>map(variants -> {
+                    if (variants.isEmpty()) {
+                        return ResponseEntity.notFound().build();
+                    }
+                    return json
+                            ? ResponseEntity.ok(ControllerSupport.stream(channelId, variants))
+                            : ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(variants.get(0).getUrl());
+                })
+                .onErrorResume(e -> {
+                    System.err.println("Error getting stream for channel " + channelId + ": " + e.getMessage());
+                    return Mono.just(ResponseEntity.internalServerError().build());
+                });
+    }
+
+    @GetMapping("/channels/{channelId}/playlist.m3u8")
+    public Mono<ResponseEntity<byte[]>> getChannelPlaylist(
+            @PathVariable Long channelId,
+            @RequestParam(required = false) Integer variant,
+            @RequestParam(required = false) String src,
+            @RequestParam(required = false) String sig) {
+        return iptvService.getRelayedPlaylist(channelId, variant, src, sig)
+                .map(manifest -> ResponseEntity.ok()
+                        .contentType(HLS_PLAYLIST)
+                        .cacheControl(CacheControl.maxAge(manifest.remainingTtl()).cachePublic())
+                        .body(manifest.body()))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(e -> {
+                    System.err.println("Error relaying playlist for channel " + channelId + ": " + e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY).build());
+                });
+    }
+
+    @GetMapping("/channels/{channelId}/segment")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getChannelSegment(
+            @PathVariable Long channelId,
+            @RequestParam String uri,
+            @RequestParam String sig) {
+        return iptvService.getRelayedSegment(channelId, uri, sig)
+                .map(ReactiveIPTVController::segmentResponse)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(e -> {
+                    System.err.println("Error relaying segment for channel " + channelId + ": " + e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY).build());
+                });
+    }
+
+    @GetMapping("/relay/stats")
+    public Mono<ResponseEntity<Map<String, Object>>> getRelayStats() {
+        return Mono.fromSupplier(() -> ResponseEntity.ok(iptvService.getRelayStats()));
+    }
+
+    @PostMapping("/refresh")
+    public Mono<ResponseEntity<Map<String, Object>>> refreshChannels(UriComponentsBuilder uriBuilder) {
+        return blocking(() -> jobAccepted(iptvService.startRefresh("api"), uriBuilder))
+                .onErrorResume(e -> {
+                    System.err.println("Error refreshing channels: " + e.getMessage());
+                    return Mono.just(jobError("Error refreshing channels: " + e.getMessage()));
+                });
+    }
+
+    @GetMapping("/refresh/jobs")
+    public Mono<ResponseEntity<List<RefreshJob>>> getRefreshJobs() {
+        return Mono.fromSupplier(() -> ResponseEntity.ok(iptvService.getRecentRefreshJobs()));
+    }
+
+    @GetMapping("/refresh/jobs/{jobId}")
+    public Mono<ResponseEntity<RefreshJob>> getRefreshJob(@PathVariable String jobId) {
+        return Mono.fromSupplier(() -> {
+            RefreshJob job = iptvService.getRefreshJob(jobId);
+            return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+        });
+    }
+
+    @GetMapping("/channels/{channelId}/health")
+    public Mono<ResponseEntity<Map<String, Object>>> checkChannelHealth(@PathVariable Long channelId) {
+        return reactiveService.checkChannelHealth(channelId)
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    Map<String, Object> errorInfo = new HashMap<>();
+                    errorInfo.put("status", "error");
+                    errorInfo.put("message", e.getMessage());
+                    errorInfo.put("timestamp", System.currentTimeMillis());
+                    return Mono.just(ResponseEntity.ok(errorInfo));
+                });
+    }
+
+    @GetMapping("/channels/{channelId}/health/history")
+    public Mono<ResponseEntity<List<ChannelHealthHistory>>> getChannelHealthHistory(
+            @PathVariable Long channelId,
+            @RequestParam(defaultValue = "50") int limit) {
+        return blocking(() -> ResponseEntity.ok(iptvService.getChannelHealthHistory(channelId, Math.min(Math.max(limit, 1), 1000))))
+                .onErrorResume(e -> Mono.just(ResponseEntity.internalServerError().build()));
+    }
+
+    @PostMapping("/health/sweeps")
+    public Mono<ResponseEntity<Map<String, Object>>> startHealthSweep(
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) String category,
+            UriComponentsBuilder uriBuilder) {
+        String countryCode = country != null ? country.toUpperCase() : null;
+        return blocking(() -> {
+            HealthSweep sweep = iptvService.startHealthSweep(countryCode, category);
+            Map<String, Object> response = new HashMap<>();
+            response.put("sweepId", sweep.getId());
+            response.put("total", sweep.getTotal());
+            response.put("status", sweep.getStatus());
+            response.put("statusUrl", uriBuilder.path("/iptv/health/sweeps/{sweepId}")
+                    .buildAndExpand(sweep.getId())
+                    .toUriString());
+            return ResponseEntity.accepted().body(response);
+        }).onErrorResume(e -> {
+            System.err.println("Error starting health sweep: " + e.getMessage());
+            return Mono.just(jobError("Error starting health sweep: " + e.getMessage()));
+        });
+    }
+
+    @GetMapping("/health/sweeps")
+    public Mono<ResponseEntity<List<HealthSweep>>> getHealthSweeps() {
+        return Mono.fromSupplier(() -> ResponseEntity.ok(iptvService.getRecentHealthSweeps()));
+    }
+
+    @GetMapping("/health/sweeps/{sweepId}")
+    public Mono<ResponseEntity<HealthSweep>> getHealthSweep(@PathVariable String sweepId) {
+        return Mono.fromSupplier(() -> {
+            HealthSweep sweep = iptvService.getHealthSweep(sweepId);
+            return sweep != null ? ResponseEntity.ok(sweep) : ResponseEntity.notFound().build();
+        });
+    }
+
+    @GetMapping("/health/sweeps/{sweepId}/results")
+    public Mono<ResponseEntity<List<ProbeResult>>> getHealthSweepResults(
+            @PathVariable String sweepId,
+            @RequestParam(required = false) ProbeResult.Outcome outcome) {
+        return Mono.fromSupplier(() -> {
+            HealthSweep sweep = iptvService.getHealthSweep(sweepId);
+            return sweep != null ? ResponseEntity.ok(sweep.getResults(outcome)) : ResponseEntity.notFound().build();
+        });
+    }
+
+    @PostMapping("/validate-hls")
+    public Mono<ResponseEntity<Map<String, Object>>> validateHLSStream(@RequestParam String streamUrl) {
+        if (!streamUrl.contains(".m3u8")) {
+            return Mono.just(ResponseEntity.ok(ControllerSupport.hlsValidation(streamUrl, null, null)));
+        }
+        return reactiveService.validateHLSStream(streamUrl)
+                .map(content -> ControllerSupport.hlsValidation(streamUrl, content, null))
+                .onErrorResume(e -> Mono.just(ControllerSupport.hlsValidation(streamUrl, null, e)))
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/global-streams/fetch")
+    public Mono<ResponseEntity<Map<String, Object>>> fetchGlobalStreams(UriComponentsBuilder uriBuilder) {
+        return blocking(() -> jobAccepted(iptvService.startGlobalStreamsRefresh("api"), uriBuilder))
+                .onErrorResume(e -> {
+                    System.err.println("Error fetching global streams: " + e.getMessage());
+                    return Mono.just(jobError("Error fetching global streams: " + e.getMessage()));
+                });
+    }
+
+    @GetMapping("/global-streams/countries/{countryCode}/channels")
+    public Mono<ResponseEntity<?>> getGlobalChannelsByCountry(
+            @PathVariable String countryCode,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Set<String> fields,
+            @RequestParam(defaultValue = "false") boolean all) {
+        String country = countryCode.toUpperCase();
+        Mono<ResponseEntity<?>> response = !all
+                // Every stored channel is an HLS stream from the global feed
+                ? channelPage(country, null, cursor, limit, fields)
+                : blocking(() -> ResponseEntity.ok(iptvService.getChannelsFromGlobalStreams(country)));
+        return response.onErrorResume(e -> {
+            System.err.println("Error getting global channels for country " + countryCode + ": " + e.getMessage());
+            return Mono.just(ResponseEntity.internalServerError().body(List.of()));
+        });
+    }
+
+    @PostMapping("/global-streams/create")
+    public Mono<ResponseEntity<String>> createGlobalChannels(@RequestParam String countryCodes) {
+        return blocking(() -> {
+            iptvService.createChannelsFromGlobalStreams(countryCodes.split(","));
+            return ResponseEntity.ok("Global channels created successfully");
+        }).onErrorResume(e -> {
+            System.err.println("Error creating global channels: " + e.getMessage());
+            return Mono.just(ResponseEntity.internalServerError().body("Error creating global channels: " + e.getMessage()));
+        });
+    }
+
+    /**
+     * Like the servlet export, gzip-compressed on the fly when the client accepts it. The
+     * result handler answers 304 itself when the request's validators match the ETag or
+     * Last-Modified set here, without subscribing to the body.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> m3uPlaylist(String countryCode, String category, String acceptEncoding) {
+        return blocking(() -> {
+            M3uPlaylist playlist = iptvService.getM3uPlaylist(countryCode, category);
+            if (playlist.channels().isEmpty()) {
+                return ResponseEntity.notFound().<Flux<DataBuffer>>build();
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .eTag(playlist.etag())
+                    .lastModified(playlist.lastModified())
+                    .contentType(M3U_PLAYLIST)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache());
+            if (!ControllerSupport.accepts(acceptEncoding, "gzip")) {
+                return response.body(written(playlist::writeTo));
+            }
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(written(out -> {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 16 * 1024);
+                playlist.writeTo(compressed);
+                compressed.finish();
+            }));
+        }).onErrorResume(e -> {
+            System.err.println("Error exporting playlist for " + countryCode + ": " + e.getMessage());
+            return Mono.just(ResponseEntity.internalServerError().build());
+        });
+    }
+
+    private static ResponseEntity<Flux<DataBuffer>> segmentResponse(RelayedSegment segment) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(segment.contentType()))
+                .cacheControl(CacheControl.maxAge(segment.maxAge()).cachePublic());
+        if (segment.contentLength() >= 0) {
+            response.contentLength(segment.contentLength());
+        }
+        return response.body(written(segment.body()));
+    }
+
+    /**
+     * Runs an output-stream writer on the bounded elastic pool, handing its output to Netty in
+     * chunks as they fill; the writer blocks while the client is slower than upstream.
+     */
+    private static Flux<DataBuffer> written(StreamingResponseBody body) {
+        return Flux.from(DataBufferUtils.outputStreamPublisher(out -> {
+            try {
+                body.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DefaultDataBufferFactory.sharedInstance, task -> Schedulers.boundedElastic().schedule(task)));
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 202 response pointing at the job-status endpoint, as {@link IPTVController} answers.
+     */
+    private static ResponseEntity<Map<String, Object>> jobAccepted(RefreshJob job, UriComponentsBuilder uriBuilder) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", job.getId());
+        response.put("scope", job.getScope());
+        response.put("status", job.getStatus());
+        response.put("statusUrl", uriBuilder.path("/iptv/refresh/jobs/{jobId}")
+                .buildAndExpand(job.getId())
+                .toUriString());
+        return ResponseEntity.accepted().body(response);
+    }
+
+    private static ResponseEntity<Map<String, Object>> jobError(String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "error");
+        response.put("message", message);
+        return ResponseEntity.internalServerError().body(response);
+    }
+
+    private Mono<ResponseEntity<?>> channelPage(String countryCode, String category, String cursor, Integer limit, Set<String> fields) {
+        ResponseEntity<Map<String, Object>> invalid = ControllerSupport.invalidFields(fields);
+        if (invalid != null) {
+            return Mono.just(invalid);
+        }
+        return Mono.defer(() -> reactiveService.getChannelPage(countryCode, category, cursor, limit, fields))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))));
+    }
+
+    private static ResponseEntity<?> errorResponse(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.internalServerError().build();
+    }
+}
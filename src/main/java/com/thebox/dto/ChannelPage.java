@@ -0,0 +1,31 @@
+package com.thebox.dto;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One page of a channel list.
+ *
+ * @param items      {@link ChannelSummary} records, or maps of the selected fields
+ * @param nextCursor pass as {@code cursor} to get the next page; null on the last page
+ */
+public record ChannelPage(List<?> items, int limit, String nextCursor) {
+
+    /**
+     * A keyset page from up to {@code limit + 1} rows; the extra row only tells whether there
+     * is a next page.
+     */
+    public static ChannelPage keyset(List<ChannelSummary> rows, int limit, Set<String> fields) {
+        boolean more = rows.size() > limit;
+        List<ChannelSummary> items = more ? rows.subList(0, limit) : rows;
+        return new ChannelPage(select(items, fields), limit,
+                more ? PageCursor.after(items.get(items.size() - 1)).encode() : null);
+    }
+
+    public static List<?> select(List<ChannelSummary> items, Set<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return items;
+        }
+        return items.stream().map(item -> item.select(fields)).toList();
+    }
+}
@@ -0,0 +1,65 @@
+package com.thebox.dto;
+
+import com.thebox.model.Channel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * What channel lists need of a channel: no timestamps, probe bookkeeping or EPG id. Built
+ * directly by {@code ChannelRepository} queries, so list pages never load full entities.
+ *
+ * @param live false while the channel's latest probes are failing
+ */
+public record ChannelSummary(Long id, String channelId, String name, String streamUrl, String logoUrl,
+                             String category, String language, String countryCode, boolean live) {
+
+    // Selectable with the fields parameter, in output order
+    private static final Map<String, Function<ChannelSummary, Object>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("id", ChannelSummary::id);
+        FIELDS.put("channelId", ChannelSummary::channelId);
+        FIELDS.put("name", ChannelSummary::name);
+        FIELDS.put("streamUrl", ChannelSummary::streamUrl);
+        FIELDS.put("logoUrl", ChannelSummary::logoUrl);
+        FIELDS.put("category", ChannelSummary::category);
+        FIELDS.put("language", ChannelSummary::language);
+        FIELDS.put("countryCode", ChannelSummary::countryCode);
+        FIELDS.put("live", ChannelSummary::live);
+    }
+
+    /**
+     * Constructor used by the JPQL projections.
+     */
+    public ChannelSummary(Long id, String channelId, String name, String streamUrl, String logoUrl,
+                          String category, String language, String countryCode, Integer consecutiveFailures) {
+        this(id, channelId, name, streamUrl, logoUrl, category, language, countryCode,
+                consecutiveFailures == null || consecutiveFailures == 0);
+    }
+
+    public static ChannelSummary of(Channel channel) {
+        return new ChannelSummary(channel.getId(), channel.getChannelId(), channel.getName(), channel.getStreamUrl(),
+                channel.getLogoUrl(), channel.getCategory(), channel.getLanguage(), channel.getCountryCode(),
+                channel.getConsecutiveFailures());
+    }
+
+    public static boolean isField(String name) {
+        return FIELDS.containsKey(name);
+    }
+
+    /**
+     * Only the requested fields, in the record's order.
+     */
+    public Map<String, Object> select(Set<String> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        FIELDS.forEach((name, accessor) -> {
+            if (fields.contains(name)) {
+                selected.put(name, accessor.apply(this));
+            }
+        });
+        return selected;
+    }
+}
@@ -0,0 +1,50 @@
+package com.thebox.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a channel list. Country lists put live channels first and order by name,
+ * then id, within each group; they resume after the last channel returned (keyset pagination).
+ * Search results are ranked in memory and resume at an offset instead.
+ */
+public record PageCursor(boolean live, String name, Long id, int offset) {
+
+    public static PageCursor after(ChannelSummary last) {
+        return new PageCursor(last.live(), last.name(), last.id(), 0);
+    }
+
+    public static PageCursor atOffset(int offset) {
+        return new PageCursor(true, null, null, offset);
+    }
+
+    public String encode() {
+        // "k" for a live channel, "f" for a failing one
+        String raw = id != null ? (live ? "k" : "f") + id + ":" + name : "o" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code cursor} was not produced by {@link #encode()}
+     */
+    public static PageCursor decode(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        try {
+            if (raw.startsWith("k") || raw.startsWith("f")) {
+                int separator = raw.indexOf(':');
+                return new PageCursor(raw.startsWith("k"), raw.substring(separator + 1),
+                        Long.parseLong(raw.substring(1, separator)), 0);
+            }
+            if (raw.startsWith("o")) {
+                return atOffset(Integer.parseInt(raw.substring(1)));
+            }
+        } catch (RuntimeException e) {
+            // Falls through to the error below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    public boolean isKeyset() {
+        return id != null;
+    }
+}
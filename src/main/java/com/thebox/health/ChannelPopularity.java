@@ -0,0 +1,33 @@
+package com.thebox.health;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recent play counts per channel, used to probe popular channels more often. Counts are
+ * halved periodically so popularity follows what viewers watch now.
+ */
+@Component
+public class ChannelPopularity {
+
+    private final Map<Long, AtomicInteger> plays = new ConcurrentHashMap<>();
+
+    public void recordPlay(Long channelId) {
+        if (channelId != null) {
+            plays.computeIfAbsent(channelId, id -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    public int recentPlays(Long channelId) {
+        AtomicInteger count = plays.get(channelId);
+        return count != null ? count.get() : 0;
+    }
+
+    void decay() {
+        plays.values().forEach(count -> count.updateAndGet(value -> value / 2));
+        plays.values().removeIf(count -> count.get() == 0);
+    }
+}
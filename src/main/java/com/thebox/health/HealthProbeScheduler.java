@@ -0,0 +1,347 @@
+package com.thebox.health;
+
+import com.thebox.catalog.CatalogHolder;
+import com.thebox.model.Channel;
+import com.thebox.model.ChannelHealthHistory;
+import com.thebox.model.StreamVariant;
+import com.thebox.repository.ChannelHealthBatchRepository;
+import com.thebox.repository.ChannelRepository;
+import com.thebox.repository.StreamVariantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-probes channel streams in the background, each on its own adaptive schedule. Healthy
+ * channels are rechecked every {@code healthy-interval}, or every {@code popular-interval}
+ * if viewers are playing them. Failing channels back off exponentially from
+ * {@code retry-interval} up to {@code max-backoff}. After {@code deactivate-after}
+ * consecutive failures a channel is deactivated; it keeps being probed at the backoff rate
+ * and is reactivated by the first successful probe.
+ * <p>
+ * A channel with several stream variants has all of them probed; the channel counts as online
+ * if any variant is, and each variant keeps its own failure count and latency for ranking.
+ * <p>
+ * Health changes reach the catalog snapshot in memory, batched: once a round hides, restores or
+ * reorders a channel, or changes which of its variants are live, everything probed since the
+ * last publication is applied at most once per {@code publish-interval}, so the pre-rendered
+ * lists and their ETags survive between batches.
+ */
+@Component
+public class HealthProbeScheduler implements SchedulingConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthProbeScheduler.class);
+
+    @Autowired
+    private StreamProbeEngine probeEngine;
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Autowired
+    private ChannelHealthBatchRepository channelHealthBatchRepository;
+
+    @Autowired
+    private StreamVariantRepository streamVariantRepository;
+
+    @Autowired
+    private ChannelPopularity channelPopularity;
+
+    @Autowired
+    private CatalogHolder catalogHolder;
+
+    @Value("${thebox.health.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${thebox.health.scheduler.tick:30s}")
+    private Duration tick;
+
+    @Value("${thebox.health.scheduler.batch-size:500}")
+    private int batchSize;
+
+    @Value("${thebox.health.scheduler.healthy-interval:30m}")
+    private Duration healthyInterval;
+
+    @Value("${thebox.health.scheduler.popular-interval:5m}")
+    private Duration popularInterval;
+
+    @Value("${thebox.health.scheduler.popular-min-plays:3}")
+    private int popularMinPlays;
+
+    @Value("${thebox.health.scheduler.retry-interval:2m}")
+    private Duration retryInterval;
+
+    @Value("${thebox.health.scheduler.max-backoff:24h}")
+    private Duration maxBackoff;
+
+    @Value("${thebox.health.scheduler.deactivate-after:5}")
+    private int deactivateAfter;
+
+    @Value("${thebox.health.scheduler.publish-interval:5m}")
+    private Duration publishInterval;
+
+    @Value("${thebox.health.history-retention:7d}")
+    private Duration historyRetention;
+
+    @Value("${thebox.health.popularity-half-life:1h}")
+    private Duration popularityHalfLife;
+
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile Instant lastHousekeeping = Instant.now();
+
+    // Probed channels and variants not yet applied to the catalog snapshot, by id
+    private final Map<Long, Channel> unpublished = new ConcurrentHashMap<>();
+    private final Map<Long, StreamVariant> unpublishedVariants = new ConcurrentHashMap<>();
+    private volatile boolean unpublishedVisible;
+    private volatile Instant lastPublished = Instant.EPOCH;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (enabled) {
+            logger.info("Scheduling stream health probes every {} (up to {} channels per round)", tick, batchSize);
+            taskRegistrar.addFixedDelayTask(new FixedDelayTask(this::probeDueChannels, tick, tick));
+        } else {
+            logger.info("Background stream health probing disabled");
+        }
+    }
+
+    /**
+     * Probes the channels whose next probe is due. The probes themselves run on the
+     * WebClient's event loop; a round that is still running when the next tick fires is
+     * left to finish.
+     */
+    void probeDueChannels() {
+        if (!probing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            housekeeping();
+            publishHealth();
+            List<Channel> due = channelRepository.findDueForProbe(LocalDateTime.now(), PageRequest.of(0, batchSize));
+            if (due.isEmpty()) {
+                probing.set(false);
+                return;
+            }
+
+            List<StreamVariant> variants = streamVariantRepository.findByChannelIdIn(
+                    due.stream().map(Channel::getId).toList());
+            long started = System.nanoTime();
+            probeEngine.probeTargets(probeTargets(due, variants))
+                    .collectList()
+                    .publishOn(Schedulers.boundedElastic())
+                    .doFinally(signal -> probing.set(false))
+                    .subscribe(
+                            results -> applyResults(due, variants, results, started),
+                            error -> logger.error("Health probe round failed: {}", error.getMessage(), error));
+        } catch (Exception e) {
+            probing.set(false);
+            logger.error("Could not start health probe round: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Every variant of each channel; channels without variant rows (sample channels) are
+     * probed at their own stream URL.
+     */
+    private static List<ProbeTarget> probeTargets(List<Channel> due, List<StreamVariant> variants) {
+        Set<Long> withVariants = new HashSet<>();
+        List<ProbeTarget> targets = new ArrayList<>(due.size() + variants.size());
+        for (StreamVariant variant : variants) {
+            withVariants.add(variant.getChannelId());
+            targets.add(new ProbeTarget(variant.getChannelId(), variant.getUrl()));
+        }
+        for (Channel channel : due) {
+            if (!withVariants.contains(channel.getId())) {
+                targets.add(ProbeTarget.of(channel));
+            }
+        }
+        return targets;
+    }
+
+    private void applyResults(List<Channel> due, List<StreamVariant> variants, List<ProbeResult> results, long started) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, ProbeResult> bestByChannel = new HashMap<>(due.size() * 2);
+        Map<String, ProbeResult> byUrl = new HashMap<>(results.size() * 2);
+        for (ProbeResult result : results) {
+            bestByChannel.merge(result.channelId(), result, HealthProbeScheduler::better);
+            byUrl.put(result.channelId() + " " + result.streamUrl(), result);
+        }
+        // Only rows with a result are written: a skipped one may still carry NULL health columns
+        List<StreamVariant> probedVariants = new ArrayList<>(variants.size());
+        boolean rankingChanged = false;
+        for (StreamVariant variant : variants) {
+            ProbeResult result = byUrl.get(variant.getChannelId() + " " + variant.getUrl());
+            if (result != null) {
+                boolean wasLive = variant.getConsecutiveFailures() == null || variant.getConsecutiveFailures() == 0;
+                applyToVariant(variant, result, now);
+                probedVariants.add(variant);
+                // Live variants rank ahead of failing ones, so this can change the stream served
+                rankingChanged |= wasLive != (variant.getConsecutiveFailures() == 0);
+            }
+        }
+
+        List<Channel> probed = new ArrayList<>(due.size());
+        List<ChannelHealthHistory> history = new ArrayList<>(due.size());
+        int online = 0;
+        int deactivated = 0;
+        int reactivated = 0;
+        boolean orderChanged = false;
+
+        for (Channel channel : due) {
+            ProbeResult result = bestByChannel.get(channel.getId());
+            if (result == null) {
+                continue;
+            }
+            probed.add(channel);
+            int previousFailures = channel.getConsecutiveFailures() != null ? channel.getConsecutiveFailures() : 0;
+            boolean wasActive = Boolean.TRUE.equals(channel.getIsActive());
+
+            channel.setLastProbedAt(now);
+            if (result.isOnline()) {
+                online++;
+                channel.setConsecutiveFailures(0);
+                channel.setLastOnlineAt(now);
+                channel.setIsActive(true);
+                channel.setNextProbeAt(now.plus(jitter(isPopular(channel) ? popularInterval : healthyInterval)));
+                if (!wasActive) {
+                    reactivated++;
+                }
+            } else {
+                int failures = previousFailures + 1;
+                channel.setConsecutiveFailures(failures);
+                channel.setNextProbeAt(now.plus(jitter(backoff(failures))));
+                if (wasActive && failures >= deactivateAfter) {
+                    channel.setIsActive(false);
+                    deactivated++;
+                }
+            }
+            // Lists put live channels ahead of flaky ones, so going either way reorders them
+            orderChanged |= (previousFailures == 0) != (channel.getConsecutiveFailures() == 0);
+
+            history.add(new ChannelHealthHistory(
+                    channel.getId(),
+                    now,
+                    result.outcome(),
+                    result.httpStatus() != null ? result.httpStatus().shortValue() : null,
+                    result.ttfbMs() >= 0 ? (int) result.ttfbMs() : null,
+                    (int) result.totalMs()));
+        }
+
+        channelHealthBatchRepository.saveProbeResults(probed, probedVariants, history);
+        logger.info("Probed {} channels ({} streams) in {} ms: {} online, {} deactivated, {} reactivated",
+                due.size(), results.size(), Duration.ofNanos(System.nanoTime() - started).toMillis(), online, deactivated, reactivated);
+
+        for (Channel channel : probed) {
+            unpublished.put(channel.getId(), channel);
+        }
+        for (StreamVariant variant : probedVariants) {
+            unpublishedVariants.put(variant.getId(), variant);
+        }
+        if (deactivated > 0 || reactivated > 0 || orderChanged || rankingChanged) {
+            unpublishedVisible = true;
+        }
+        publishHealth();
+    }
+
+    /**
+     * Applies the pending health changes to the catalog snapshot once one of them affects the
+     * channel lists and {@code publish-interval} has passed since the last publication.
+     */
+    private void publishHealth() {
+        Instant now = Instant.now();
+        if (!unpublishedVisible || Duration.between(lastPublished, now).compareTo(publishInterval) < 0) {
+            return;
+        }
+        List<Channel> pending = new ArrayList<>(unpublished.values());
+        List<StreamVariant> pendingVariants = new ArrayList<>(unpublishedVariants.values());
+        unpublished.clear();
+        unpublishedVariants.clear();
+        unpublishedVisible = false;
+        lastPublished = now;
+        catalogHolder.applyHealth(pending, pendingVariants);
+    }
+
+    /**
+     * Online beats offline; between two online results the faster one wins.
+     */
+    private static ProbeResult better(ProbeResult a, ProbeResult b) {
+        if (a.isOnline() != b.isOnline()) {
+            return a.isOnline() ? a : b;
+        }
+        return b.isOnline() && b.ttfbMs() < a.ttfbMs() ? b : a;
+    }
+
+    /**
+     * Latency is an exponentially weighted average (weight 1/4 for the newest probe), so one
+     * slow response does not demote an otherwise fast variant.
+     */
+    private static void applyToVariant(StreamVariant variant, ProbeResult result, LocalDateTime now) {
+        variant.setLastProbedAt(now);
+        if (result.isOnline()) {
+            variant.setConsecutiveFailures(0);
+            variant.setLastOnlineAt(now);
+            if (result.ttfbMs() >= 0) {
+                Integer previous = variant.getLatencyMs();
+                variant.setLatencyMs(previous == null ? (int) result.ttfbMs() : (int) ((3L * previous + result.ttfbMs()) / 4));
+            }
+        } else {
+            int failures = variant.getConsecutiveFailures() != null ? variant.getConsecutiveFailures() : 0;
+            variant.setConsecutiveFailures(failures + 1);
+        }
+    }
+
+    private boolean isPopular(Channel channel) {
+        return channelPopularity.recentPlays(channel.getId()) >= popularMinPlays;
+    }
+
+    /**
+     * retry-interval doubled for every failure after the first, capped at max-backoff.
+     */
+    private Duration backoff(int failures) {
+        int doublings = Math.min(failures - 1, 30);
+        Duration delay = retryInterval.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    /**
+     * Spreads probes by +/-10% so channels first probed together do not stay in lockstep.
+     */
+    private static Duration jitter(Duration interval) {
+        long millis = interval.toMillis();
+        long spread = millis / 10;
+        return Duration.ofMillis(millis - spread + ThreadLocalRandom.current().nextLong(2 * spread + 1));
+    }
+
+    private void housekeeping() {
+        Instant now = Instant.now();
+        if (Duration.between(lastHousekeeping, now).compareTo(popularityHalfLife) < 0) {
+            return;
+        }
+        lastHousekeeping = now;
+        channelPopularity.decay();
+        int pruned = channelHealthBatchRepository.pruneHistory(LocalDateTime.now().minus(historyRetention));
+        if (pruned > 0) {
+            logger.info("Pruned {} health history rows older than {}", pruned, historyRetention);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.thebox.health;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * One bulk probe over a set of channels. Results accumulate while the sweep runs; the
+ * summary getters are what the sweep-status endpoint serializes.
+ */
+public class HealthSweep {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String countryCode;
+    private final String category;
+    private final int total;
+    private final Instant startedAt = Instant.now();
+    private final ConcurrentLinkedQueue<ProbeResult> results = new ConcurrentLinkedQueue<>();
+    private final AtomicIntegerArray outcomeCounts = new AtomicIntegerArray(ProbeResult.Outcome.values().length);
+
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    HealthSweep(String countryCode, String category, int total) {
+        this.countryCode = countryCode;
+        this.category = category;
+        this.total = total;
+    }
+
+    void record(ProbeResult result) {
+        results.add(result);
+        outcomeCounts.incrementAndGet(result.outcome().ordinal());
+    }
+
+    void complete() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void fail(Throwable t) {
+        finishedAt = Instant.now();
+        error = t.getMessage();
+        status = Status.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCountryCode() {
+        return countryCode;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCompleted() {
+        return results.size();
+    }
+
+    public Map<ProbeResult.Outcome, Integer> getOutcomes() {
+        Map<ProbeResult.Outcome, Integer> counts = new EnumMap<>(ProbeResult.Outcome.class);
+        for (ProbeResult.Outcome outcome : ProbeResult.Outcome.values()) {
+            counts.put(outcome, outcomeCounts.get(outcome.ordinal()));
+        }
+        return counts;
+    }
+
+    /**
+     * Median and 95th percentile time to first byte over online streams probed so far.
+     */
+    public Map<String, Long> getOnlineTtfbMs() {
+        long[] ttfbs = results.stream()
+                .filter(ProbeResult::isOnline)
+                .mapToLong(ProbeResult::ttfbMs)
+                .sorted()
+                .toArray();
+        if (ttfbs.length == 0) {
+            return Map.of();
+        }
+        return Map.of("p50", ttfbs[(ttfbs.length - 1) / 2], "p95", ttfbs[(int) Math.ceil(ttfbs.length * 0.95) - 1]);
+    }
+
+    public long getDurationMs() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(startedAt, end).toMillis();
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Results so far in completion order, optionally restricted to one outcome.
+     */
+    @JsonIgnore
+    public List<ProbeResult> getResults(ProbeResult.Outcome outcome) {
+        List<ProbeResult> matching = new ArrayList<>();
+        for (ProbeResult result : results) {
+            if (outcome == null || result.outcome() == outcome) {
+                matching.add(result);
+            }
+        }
+        return matching;
+    }
+}
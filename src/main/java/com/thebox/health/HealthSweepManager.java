@@ -0,0 +1,117 @@
+package com.thebox.health;
+
+import com.thebox.catalog.CatalogHolder;
+import com.thebox.catalog.CatalogSnapshot;
+import com.thebox.model.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Starts bulk probe sweeps over the active catalog and keeps the most recent ones for the
+ * status endpoint. Only one sweep runs at a time; asking for another while one is running
+ * returns the running sweep.
+ */
+@Component
+public class HealthSweepManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(HealthSweepManager.class);
+
+    @Autowired
+    private StreamProbeEngine probeEngine;
+
+    @Autowired
+    private CatalogHolder catalogHolder;
+
+    @Value("${thebox.health.sweep-history:10}")
+    private int sweepHistory;
+
+    private final AtomicReference<HealthSweep> running = new AtomicReference<>();
+
+    // Guarded by itself; insertion ordered so the eldest sweep is evicted first
+    private final Map<String, HealthSweep> recentSweeps = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HealthSweep> eldest) {
+            return size() > sweepHistory;
+        }
+    };
+
+    /**
+     * @param countryCode optional country filter
+     * @param category    optional category filter (case-insensitive)
+     */
+    public HealthSweep startSweep(String countryCode, String category) {
+        List<Channel> channels = selectChannels(catalogHolder.current(), countryCode, category);
+
+        HealthSweep sweep = new HealthSweep(countryCode, category, channels.size());
+        HealthSweep current = running.get();
+        if (current != null && current.getStatus() == HealthSweep.Status.RUNNING) {
+            logger.debug("Health sweep {} already running", current.getId());
+            return current;
+        }
+        if (!running.compareAndSet(current, sweep)) {
+            // Another caller started a sweep in the meantime
+            return running.get();
+        }
+        synchronized (recentSweeps) {
+            recentSweeps.put(sweep.getId(), sweep);
+        }
+
+        logger.info("Starting health sweep {} over {} channels", sweep.getId(), channels.size());
+        probeEngine.probeAll(channels)
+                .subscribe(
+                        sweep::record,
+                        error -> {
+                            sweep.fail(error);
+                            logger.error("Health sweep {} failed: {}", sweep.getId(), error.getMessage(), error);
+                        },
+                        () -> {
+                            sweep.complete();
+                            logger.info("Health sweep {} finished in {} ms: {}", sweep.getId(), sweep.getDurationMs(), sweep.getOutcomes());
+                        });
+        return sweep;
+    }
+
+    public HealthSweep getSweep(String id) {
+        synchronized (recentSweeps) {
+            return recentSweeps.get(id);
+        }
+    }
+
+    /**
+     * Recent sweeps, newest first.
+     */
+    public List<HealthSweep> getRecentSweeps() {
+        List<HealthSweep> sweeps;
+        synchronized (recentSweeps) {
+            sweeps = new ArrayList<>(recentSweeps.values());
+        }
+        Collections.reverse(sweeps);
+        return sweeps;
+    }
+
+    private static List<Channel> selectChannels(CatalogSnapshot snapshot, String countryCode, String category) {
+        Collection<List<Channel>> source = countryCode != null
+                ? List.of(snapshot.getActiveChannels(countryCode))
+                : snapshot.getActiveChannelsByCountry().values();
+        List<Channel> channels = new ArrayList<>();
+        for (List<Channel> countryChannels : source) {
+            for (Channel channel : countryChannels) {
+                if (category == null || category.equalsIgnoreCase(channel.getCategory())) {
+                    channels.add(channel);
+                }
+            }
+        }
+        return channels;
+    }
+}
@@ -0,0 +1,41 @@
+package com.thebox.health;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/**
+ * Outcome of probing one channel's stream URL.
+ *
+ * @param ttfbMs    time until response headers arrived, or -1 if none did
+ * @param totalMs   time until the probe finished, including reading the playlist head
+ * @param bytesRead playlist bytes inspected (at most the configured probe size)
+ */
+public record ProbeResult(
+        Long channelId,
+        String streamUrl,
+        String host,
+        Outcome outcome,
+        Integer httpStatus,
+        long ttfbMs,
+        long totalMs,
+        int bytesRead,
+        String error,
+        Instant probedAt) {
+
+    // Persisted by ordinal in channel_health_history: only ever append new values
+    public enum Outcome {
+        /** 2xx and the body starts like an HLS playlist */
+        ONLINE,
+        /** 2xx but the body is not an HLS playlist */
+        INVALID,
+        HTTP_ERROR,
+        TIMEOUT,
+        UNREACHABLE
+    }
+
+    @JsonIgnore
+    public boolean isOnline() {
+        return outcome == Outcome.ONLINE;
+    }
+}
@@ -0,0 +1,14 @@
+package com.thebox.health;
+
+import com.thebox.model.Channel;
+
+/**
+ * A stream URL to probe and the channel its result belongs to; a channel with several stream
+ * variants has one target per variant.
+ */
+public record ProbeTarget(Long channelId, String streamUrl) {
+
+    public static ProbeTarget of(Channel channel) {
+        return new ProbeTarget(channel.getId(), channel.getStreamUrl());
+    }
+}
@@ -0,0 +1,242 @@
+package com.thebox.health;
+
+import com.thebox.model.Channel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Probes channel stream URLs over the shared {@link WebClient}. Only the head of each playlist
+ * is read, so a probe costs one small response regardless of what the URL serves. Bulk probes
+ * run with a global concurrency limit and a separate limit per upstream host.
+ */
+@Component
+public class StreamProbeEngine {
+
+    private static final byte[] PLAYLIST_TAG = "#EXTM3U".getBytes(StandardCharsets.US_ASCII);
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${thebox.health.probe.concurrency:64}")
+    private int concurrency;
+
+    @Value("${thebox.health.probe.per-host-concurrency:4}")
+    private int perHostConcurrency;
+
+    @Value("${thebox.health.probe.timeout:5s}")
+    private Duration timeout;
+
+    @Value("${thebox.health.probe.max-bytes:4096}")
+    private int maxBytes;
+
+    /**
+     * Probes every channel, emitting results in completion order. Channels are interleaved by
+     * host first so one large provider does not hold all the global slots waiting on its own
+     * host limit.
+     */
+    public Flux<ProbeResult> probeAll(Collection<Channel> channels) {
+        return probeTargets(channels.stream().map(ProbeTarget::of).toList());
+    }
+
+    /**
+     * Like {@link #probeAll}, for arbitrary stream URLs such as a channel's variants.
+     */
+    public Flux<ProbeResult> probeTargets(Collection<ProbeTarget> targets) {
+        // Gates live only as long as this sweep
+        Map<String, HostGate> gates = new ConcurrentHashMap<>();
+        return Flux.fromIterable(interleaveByHost(targets))
+                .flatMap(target -> {
+                    String host = host(target.streamUrl());
+                    HostGate gate = gates.computeIfAbsent(host, key -> new HostGate(perHostConcurrency));
+                    return gate.acquire()
+                            .then(probe(target, host))
+                            .doFinally(signal -> gate.release());
+                }, concurrency);
+    }
+
+    public Mono<ProbeResult> probe(Channel channel) {
+        ProbeTarget target = ProbeTarget.of(channel);
+        return probe(target, host(target.streamUrl()));
+    }
+
+    private Mono<ProbeResult> probe(ProbeTarget target, String host) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            long[] headersAt = {-1};
+            // Parsed inside the chain so a malformed URL fails this probe alone, not the whole sweep
+            return Mono.fromCallable(() -> URI.create(target.streamUrl()))
+                    .flatMap(uri -> webClient.get().uri(uri).exchangeToMono(response -> {
+                        headersAt[0] = System.nanoTime();
+                        return inspect(response).map(head -> {
+                            ProbeResult.Outcome outcome;
+                            if (!response.statusCode().is2xxSuccessful()) {
+                                outcome = ProbeResult.Outcome.HTTP_ERROR;
+                            } else if (isPlaylist(head)) {
+                                outcome = ProbeResult.Outcome.ONLINE;
+                            } else {
+                                outcome = ProbeResult.Outcome.INVALID;
+                            }
+                            return result(target, host, outcome, response.statusCode().value(), started, headersAt[0], head.length, null);
+                        });
+                    }))
+                    .timeout(timeout)
+                    .onErrorResume(e -> {
+                        if (e instanceof TimeoutException) {
+                            return Mono.just(result(target, host, ProbeResult.Outcome.TIMEOUT, null, started, headersAt[0], 0,
+                                    "No complete response within " + timeout.toMillis() + " ms"));
+                        }
+                        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                        return Mono.just(result(target, host, ProbeResult.Outcome.UNREACHABLE, null, started, headersAt[0], 0, message));
+                    })
+                    .doOnNext(this::record);
+        });
+    }
+
+    private void record(ProbeResult result) {
+        Timer.builder("thebox.health.probe")
+                .description("Stream probes by outcome, sweeps, scheduled re-probes and on-demand checks alike")
+                .tag("outcome", result.outcome().name().toLowerCase())
+                .register(meterRegistry)
+                .record(result.totalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads at most {@code maxBytes} of a successful body; the rest is never downloaded.
+     */
+    private Mono<byte[]> inspect(ClientResponse response) {
+        if (!response.statusCode().is2xxSuccessful()) {
+            return response.releaseBody().thenReturn(new byte[0]);
+        }
+        return DataBufferUtils.join(DataBufferUtils.takeUntilByteCount(response.bodyToFlux(DataBuffer.class), maxBytes))
+                .map(buffer -> {
+                    byte[] head = new byte[buffer.readableByteCount()];
+                    buffer.read(head);
+                    DataBufferUtils.release(buffer);
+                    return head;
+                })
+                .defaultIfEmpty(new byte[0]);
+    }
+
+    private static ProbeResult result(ProbeTarget target, String host, ProbeResult.Outcome outcome, Integer httpStatus,
+                                      long started, long headersAt, int bytesRead, String error) {
+        long now = System.nanoTime();
+        long ttfbMs = headersAt < 0 ? -1 : Duration.ofNanos(headersAt - started).toMillis();
+        return new ProbeResult(target.channelId(), target.streamUrl(), host, outcome, httpStatus,
+                ttfbMs, Duration.ofNanos(now - started).toMillis(), bytesRead, error, Instant.now());
+    }
+
+    private static boolean isPlaylist(byte[] head) {
+        int offset = 0;
+        // Skip a UTF-8 byte order mark and leading whitespace
+        if (head.length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            offset = 3;
+        }
+        while (offset < head.length && Character.isWhitespace(head[offset])) {
+            offset++;
+        }
+        if (head.length - offset < PLAYLIST_TAG.length) {
+            return false;
+        }
+        for (int i = 0; i < PLAYLIST_TAG.length; i++) {
+            if (head[offset + i] != PLAYLIST_TAG[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String host(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static List<ProbeTarget> interleaveByHost(Collection<ProbeTarget> targets) {
+        Map<String, Deque<ProbeTarget>> byHost = new LinkedHashMap<>();
+        for (ProbeTarget target : targets) {
+            byHost.computeIfAbsent(host(target.streamUrl()), key -> new ArrayDeque<>()).add(target);
+        }
+
+        List<ProbeTarget> interleaved = new ArrayList<>(targets.size());
+        while (!byHost.isEmpty()) {
+            Iterator<Deque<ProbeTarget>> hosts = byHost.values().iterator();
+            while (hosts.hasNext()) {
+                Deque<ProbeTarget> queue = hosts.next();
+                interleaved.add(queue.poll());
+                if (queue.isEmpty()) {
+                    hosts.remove();
+                }
+            }
+        }
+        return interleaved;
+    }
+
+    /**
+     * Non-blocking counting semaphore: a released permit is handed straight to the oldest waiter.
+     */
+    private static final class HostGate {
+
+        private final int limit;
+        private final Deque<Sinks.Empty<Void>> waiting = new ArrayDeque<>();
+        private int inUse;
+
+        HostGate(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized Mono<Void> acquire() {
+            if (inUse < limit) {
+                inUse++;
+                return Mono.empty();
+            }
+            Sinks.Empty<Void> turn = Sinks.empty();
+            waiting.add(turn);
+            return turn.asMono();
+        }
+
+        void release() {
+            Sinks.Empty<Void> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    inUse--;
+                    return;
+                }
+            }
+            // Signalled outside the lock: the waiter starts its request on this thread
+            next.tryEmitEmpty();
+        }
+    }
+}
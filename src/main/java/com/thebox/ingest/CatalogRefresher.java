@@ -0,0 +1,367 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thebox.catalog.CatalogHolder;
+import com.thebox.ingest.UpstreamFeedCache.Revalidation;
+import com.thebox.model.Country;
+import com.thebox.repository.ChannelBatchRepository;
+import com.thebox.repository.ChannelRepository;
+import com.thebox.repository.CountryRepository;
+import com.thebox.repository.StreamVariantBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple3;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pulls the iptv-org feeds into the database. All three feeds are revalidated concurrently;
+ * channel and logo metadata are parsed as soon as their own download completes, and
+ * streams.json is parsed and upserted once that metadata is ready. Feeds are only committed
+ * in the {@link UpstreamFeedCache} once the database reflects them, so a failed ingest is
+ * retried on the next refresh even if upstream has not changed since.
+ */
+@Component
+public class CatalogRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogRefresher.class);
+
+    // Names of the on-disk cache entries for each feed
+    private static final String STREAMS_FEED = "streams";
+    private static final String CHANNELS_FEED = "channels";
+    private static final String LOGOS_FEED = "logos";
+
+    @Autowired
+    private UpstreamFeedCache feedCache;
+
+    @Autowired
+    private JsonArrayStreamReader jsonArrayStreamReader;
+
+    @Autowired
+    private ChannelBatchRepository channelBatchRepository;
+
+    @Autowired
+    private StreamVariantBatchRepository streamVariantBatchRepository;
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CatalogHolder catalogHolder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // iptv-org API feeds; overridable to point at a mirror or a local stub
+    @Value("${thebox.upstream.streams-url:https://iptv-org.github.io/api/streams.json}")
+    private String streamsUrl;
+
+    @Value("${thebox.upstream.channels-url:https://iptv-org.github.io/api/channels.json}")
+    private String channelsUrl;
+
+    @Value("${thebox.upstream.logos-url:https://iptv-org.github.io/api/logos.json}")
+    private String logosUrl;
+
+    @Value("${thebox.refresh.timeout:10m}")
+    private Duration refreshTimeout;
+
+    // Swapped for a new instance on each parse, so readers on other threads see a complete one
+    private final AtomicReference<UpstreamMetadata> metadata = new AtomicReference<>(UpstreamMetadata.EMPTY);
+
+    /**
+     * Full refresh. Returns without touching the database if no feed changed upstream and
+     * the catalog is already populated. The catalog only counts as refreshed if every feed
+     * answered; a refresh that fell back on a cached copy leaves its age as it was.
+     */
+    public void refresh(RefreshProgress progress) {
+        long started = System.nanoTime();
+        AtomicBoolean catalogChanged = new AtomicBoolean();
+        AtomicBoolean confirmed = new AtomicBoolean();
+
+        Mono<Revalidation> channels = timed("fetch channels.json", progress, feedCache.revalidateAsync(CHANNELS_FEED, channelsUrl))
+                .flatMap(outcome -> outcome == Revalidation.MODIFIED || metadata.get().channelCount() == 0
+                        ? timed("parse channels.json", progress, loadChannelMetadata(progress)).thenReturn(outcome)
+                        : Mono.just(outcome));
+        Mono<Revalidation> logos = timed("fetch logos.json", progress, feedCache.revalidateAsync(LOGOS_FEED, logosUrl))
+                .flatMap(outcome -> outcome == Revalidation.MODIFIED || metadata.get().logoCount() == 0
+                        ? timed("parse logos.json", progress, loadLogoMetadata(progress)).thenReturn(outcome)
+                        : Mono.just(outcome));
+        Mono<Revalidation> streams = timed("fetch streams.json", progress, feedCache.revalidateAsync(STREAMS_FEED, streamsUrl));
+        Mono<Void> countries = timed("upsert countries", progress, blocking(() -> {
+            if (upsertCountries() > 0) {
+                catalogChanged.set(true);
+            }
+        }));
+
+        // zip subscribes to every source at once, so the three downloads and the country upsert overlap
+        Mono.zip(channels, logos, streams)
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(changes -> {
+                    confirmed.set(noneFailed(changes));
+                    if (anyChanged(changes) || channelRepository.count() == 0) {
+                        catalogChanged.set(true);
+                        return timed("parse+upsert streams.json", progress, loadStreams(progress));
+                    }
+                    logger.info("Upstream feeds not modified, skipping parse and upsert");
+                    return Mono.empty();
+                })
+                .and(countries)
+                .block(refreshTimeout);
+        commitFeeds(CHANNELS_FEED, LOGOS_FEED, STREAMS_FEED);
+
+        // A catalog restored from disk may predate changes made in the database since, e.g. by probes
+        if (catalogChanged.get() || catalogHolder.current().isEmpty() || catalogHolder.isRestored()) {
+            publishSnapshot(progress);
+        }
+        markRefreshed(confirmed.get());
+
+        logger.info("Refresh completed in {} ms", elapsedMillis(started));
+    }
+
+    /**
+     * Refreshes channel, logo and country metadata only. The feeds are left uncommitted: the
+     * channel rows built from them are only rewritten by the next streams upsert.
+     */
+    public void refreshMetadata(RefreshProgress progress) {
+        Mono.when(
+                        timed("fetch channels.json", progress, feedCache.revalidateAsync(CHANNELS_FEED, channelsUrl))
+                                .then(timed("parse channels.json", progress, loadChannelMetadata(progress))),
+                        timed("fetch logos.json", progress, feedCache.revalidateAsync(LOGOS_FEED, logosUrl))
+                                .then(timed("parse logos.json", progress, loadLogoMetadata(progress))),
+                        timed("upsert countries", progress, blocking(this::upsertCountries)))
+                .block(refreshTimeout);
+        publishSnapshot(progress);
+    }
+
+    /**
+     * Refreshes streams.json against whatever channel metadata is currently loaded.
+     */
+    public void refreshStreams(RefreshProgress progress) {
+        Revalidation outcome = timed("fetch streams.json", progress, feedCache.revalidateAsync(STREAMS_FEED, streamsUrl))
+                .flatMap(fetched -> timed("parse+upsert streams.json", progress, loadStreams(progress)).thenReturn(fetched))
+                .block(refreshTimeout);
+        commitFeeds(STREAMS_FEED);
+        publishSnapshot(progress);
+        markRefreshed(outcome != Revalidation.FAILED);
+    }
+
+    private void markRefreshed(boolean confirmed) {
+        if (confirmed) {
+            catalogHolder.markRefreshed();
+        } else {
+            logger.warn("Upstream could not be reached for every feed; the catalog keeps its last refresh time {}",
+                    catalogHolder.getRefreshedAt());
+        }
+    }
+
+    private void commitFeeds(String... feeds) {
+        for (String feed : feeds) {
+            feedCache.commit(feed);
+        }
+    }
+
+    private void publishSnapshot(RefreshProgress progress) {
+        timed("publish snapshot", progress, blocking(catalogHolder::rebuild)).block(refreshTimeout);
+    }
+
+    private Mono<Void> loadChannelMetadata(RefreshProgress progress) {
+        return Mono.defer(() -> {
+            // Parsed entries are only held until they are compacted into the new metadata
+            Map<String, ChannelEntry> entries = new HashMap<>();
+            return parseFeed(CHANNELS_FEED, ChannelEntry.class, progress, entry -> {
+                if (entry.id() != null) {
+                    entries.put(entry.id(), entry);
+                }
+            }).doOnNext(parsed -> {
+                metadata.updateAndGet(current -> current.withChannels(entries));
+                logger.info("Fetched {} channel metadata entries ({} parsed).", entries.size(), parsed);
+            }).then();
+        });
+    }
+
+    private Mono<Void> loadLogoMetadata(RefreshProgress progress) {
+        return Mono.defer(() -> {
+            Map<String, String> logos = new HashMap<>();
+            return parseFeed(LOGOS_FEED, LogoEntry.class, progress, entry -> selectLogo(logos, entry)).doOnNext(parsed -> {
+                metadata.updateAndGet(current -> current.withLogos(logos));
+                logger.info("Fetched {} logo metadata entries ({} parsed).", logos.size(), parsed);
+            }).then();
+        });
+    }
+
+    private Mono<Void> loadStreams(RefreshProgress progress) {
+        return Mono.defer(() -> {
+            StreamsCollector collector = new StreamsCollector(metadata.get());
+            return parseFeed(STREAMS_FEED, StreamEntry.class, progress, collector::accept).flatMap(streamCount -> blocking(() -> {
+                if (streamCount == 0) {
+                    logger.warn("Received empty global streams JSON");
+                    return;
+                }
+                ChannelBatchRepository.UpsertResult result = channelBatchRepository.upsertChannels(collector.channels());
+                int variantsChanged = streamVariantBatchRepository.syncVariants(collector.variants());
+                countRows("channels", "inserted", result.inserted());
+                countRows("channels", "updated", result.updated());
+                countRows("channels", "skipped", result.skipped());
+                // Variants are written per channel, so these count channels rather than rows
+                countRows("stream_variants", "updated", variantsChanged);
+                countRows("stream_variants", "skipped", collector.variants().size() - variantsChanged);
+                logger.info("Parsed {} total streams, {} HLS channels for {} countries ({} inserted, {} updated, {} unchanged, variants changed for {})",
+                        streamCount, collector.channels().size(), collector.countryCount(), result.inserted(), result.updated(), result.skipped(), variantsChanged);
+            }));
+        });
+    }
+
+    /**
+     * Keeps the first logo listed for a channel unless a wider one (over 100 px) comes later.
+     */
+    static void selectLogo(Map<String, String> logos, LogoEntry entry) {
+        if (entry.channel() != null && entry.url() != null) {
+            // Prioritize high-quality logos if available, otherwise take the first one.
+            if (!logos.containsKey(entry.channel()) || (entry.width() != null && entry.width() > 100)) { // Example: prefer larger logos
+                logos.put(entry.channel(), entry.url());
+            }
+        }
+    }
+
+    private int upsertCountries() {
+        try (InputStream in = new ClassPathResource("countriesInfo.json").getInputStream()) {
+            JsonNode rootNode = objectMapper.readTree(in);
+            if (!rootNode.isArray()) {
+                return 0;
+            }
+
+            // Preload every existing country once instead of looking each one up
+            Map<String, Country> existingCountries = countryRepository.findAll()
+                    .stream()
+                    .collect(Collectors.toMap(Country::getCode, Function.identity(), (first, second) -> first));
+
+            List<Country> changed = new ArrayList<>();
+            int inserted = 0;
+            for (JsonNode countryNode : rootNode) {
+                if (!countryNode.has("code")) {
+                    continue;
+                }
+                String code = countryNode.get("code").asText();
+                String name = countryNode.get("name").asText();
+                String flagUrl = countryNode.has("image") ? countryNode.get("image").asText() : null;
+
+                Country existingCountry = existingCountries.get(code);
+                if (existingCountry != null) {
+                    // Update existing country if any field changed
+                    if (!Objects.equals(existingCountry.getName(), name) || !Objects.equals(existingCountry.getFlagUrl(), flagUrl)) {
+                        existingCountry.setName(name);
+                        existingCountry.setFlagUrl(flagUrl);
+                        changed.add(existingCountry);
+                        logger.debug("Updated country: {} ({})", name, code);
+                    }
+                } else {
+                    // Insert new country
+                    Country newCountry = new Country(name, code);
+                    newCountry.setFlagUrl(flagUrl);
+                    changed.add(newCountry);
+                    inserted++;
+                    // countriesInfo.json lists some codes twice; later duplicates compare against this one
+                    existingCountries.put(code, newCountry);
+                    logger.debug("Created country: {} ({})", name, code);
+                }
+            }
+
+            // saveAll runs in a single transaction, letting Hibernate batch the statements
+            if (!changed.isEmpty()) {
+                countryRepository.saveAll(changed);
+            }
+            countRows("countries", "inserted", inserted);
+            countRows("countries", "updated", changed.size() - inserted);
+            countRows("countries", "skipped", rootNode.size() - changed.size());
+            logger.info("Upserted {} of {} countries", changed.size(), rootNode.size());
+            return changed.size();
+        } catch (Exception e) {
+            logger.error("Error creating/updating countries from metadata: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Streams a cached JSON array feed element by element into {@code consumer}, without ever
+     * holding the whole document in memory. Emits the number of elements parsed.
+     */
+    private <T> Mono<Long> parseFeed(String feed, Class<T> elementType, RefreshProgress progress, Consumer<T> consumer) {
+        return jsonArrayStreamReader.readElements(feedCache.read(feed), elementType)
+                .doOnNext(consumer)
+                .doOnNext(element -> progress.itemsProcessed(1))
+                .count()
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Mono<Void> blocking(Runnable task) {
+        return Mono.fromRunnable(task).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private <T> Mono<T> timed(String phase, RefreshProgress progress, Mono<T> source) {
+        Timer timer = Timer.builder("thebox.refresh.phase")
+                .description("Duration of each refresh phase")
+                .tag("phase", phase)
+                .register(meterRegistry);
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            progress.phaseStarted(phase);
+            return source.doOnTerminate(() -> {
+                timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                long took = elapsedMillis(started);
+                progress.phaseFinished(phase, took);
+                logger.info("Refresh phase '{}' took {} ms", phase, took);
+            });
+        });
+    }
+
+    private void countRows(String table, String result, long rows) {
+        Counter.builder("thebox.ingest.rows")
+                .description("Rows written or skipped as unchanged by refreshes")
+                .tag("table", table)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(rows);
+    }
+
+    private static boolean anyChanged(Tuple3<Revalidation, Revalidation, Revalidation> changes) {
+        return changes.getT1() == Revalidation.MODIFIED || changes.getT2() == Revalidation.MODIFIED
+                || changes.getT3() == Revalidation.MODIFIED;
+    }
+
+    private static boolean noneFailed(Tuple3<Revalidation, Revalidation, Revalidation> changes) {
+        return changes.getT1() != Revalidation.FAILED && changes.getT2() != Revalidation.FAILED
+                && changes.getT3() != Revalidation.FAILED;
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return Duration.ofNanos(System.nanoTime() - startedNanos).toMillis();
+    }
+}
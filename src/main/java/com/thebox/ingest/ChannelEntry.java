@@ -0,0 +1,20 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * One element of iptv-org's channels.json, trimmed to the fields we ingest.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChannelEntry(String id, String name, String country, List<String> categories, List<String> languages) {
+
+    public String firstCategory() {
+        return categories != null && !categories.isEmpty() ? categories.get(0) : null;
+    }
+
+    public String firstLanguage() {
+        return languages != null && !languages.isEmpty() ? languages.get(0) : null;
+    }
+}
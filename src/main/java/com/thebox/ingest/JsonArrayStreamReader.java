@@ -0,0 +1,128 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a top-level JSON array from a stream of {@link DataBuffer}s one element at a time.
+ * Only the element currently being assembled is held in memory, so the footprint does not
+ * depend on the size of the upstream document.
+ */
+@Component
+public class JsonArrayStreamReader {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public <T> Flux<T> readElements(Flux<DataBuffer> body, Class<T> elementType) {
+        return Flux.defer(() -> {
+            ElementTokenizer<T> tokenizer = new ElementTokenizer<>(elementType);
+            return body.concatMapIterable(tokenizer::feed)
+                    .concatWith(Mono.fromCallable(tokenizer::endOfInput).flatMapIterable(elements -> elements))
+                    .doFinally(signal -> tokenizer.close());
+        });
+    }
+
+    private final class ElementTokenizer<T> {
+
+        private final Class<T> elementType;
+        private final JsonParser parser;
+        private TokenBuffer current;
+        private int depth;
+
+        ElementTokenizer(Class<T> elementType) {
+            this.elementType = elementType;
+            try {
+                this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<T> feed(DataBuffer dataBuffer) {
+            List<T> elements = new ArrayList<>();
+            try (DataBuffer.ByteBufferIterator iterator = dataBuffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    ByteBuffer byteBuffer = iterator.next();
+                    ((ByteBufferFeeder) parser.getNonBlockingInputFeeder()).feedInput(byteBuffer);
+                    drain(elements);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                DataBufferUtils.release(dataBuffer);
+            }
+            return elements;
+        }
+
+        List<T> endOfInput() throws IOException {
+            parser.getNonBlockingInputFeeder().endOfInput();
+            List<T> elements = new ArrayList<>();
+            drain(elements);
+            if (depth != 0) {
+                throw new IOException("Unexpected end of JSON input at depth " + depth);
+            }
+            return elements;
+        }
+
+        private void drain(List<T> elements) throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (depth == 0) {
+                    if (token != JsonToken.START_ARRAY) {
+                        throw new IOException("Expected a top-level JSON array but found " + token);
+                    }
+                    depth = 1;
+                    continue;
+                }
+
+                if (depth == 1 && token == JsonToken.END_ARRAY) {
+                    depth = 0;
+                    continue;
+                }
+
+                if (current == null) {
+                    current = new TokenBuffer(parser);
+                }
+                current.copyCurrentEvent(parser);
+
+                if (token.isStructStart()) {
+                    depth++;
+                } else if (token.isStructEnd()) {
+                    depth--;
+                }
+
+                // Back at array level: the element is complete
+                if (depth == 1) {
+                    try (JsonParser elementParser = current.asParser(objectMapper)) {
+                        elements.add(objectMapper.readValue(elementParser, elementType));
+                    }
+                    current = null;
+                }
+            }
+        }
+
+        void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One element of iptv-org's logos.json, trimmed to the fields we ingest.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record LogoEntry(String channel, String url, Integer width) {
+}
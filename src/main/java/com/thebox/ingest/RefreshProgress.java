@@ -0,0 +1,23 @@
+package com.thebox.ingest;
+
+/**
+ * Receives progress from a running {@link CatalogRefresher} pass. Phases may overlap, since
+ * the feeds are fetched and parsed concurrently.
+ */
+public interface RefreshProgress {
+
+    RefreshProgress NONE = new RefreshProgress() {
+    };
+
+    default void phaseStarted(String phase) {
+    }
+
+    default void phaseFinished(String phase, long durationMillis) {
+    }
+
+    /**
+     * Called as feed elements are parsed.
+     */
+    default void itemsProcessed(long count) {
+    }
+}
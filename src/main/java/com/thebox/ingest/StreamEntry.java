@@ -0,0 +1,10 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One element of iptv-org's streams.json, trimmed to the fields we ingest.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record StreamEntry(String channel, String url, String quality) {
+}
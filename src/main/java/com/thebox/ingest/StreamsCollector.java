@@ -0,0 +1,83 @@
+package com.thebox.ingest;
+
+import com.thebox.model.Channel;
+import com.thebox.model.StreamVariant;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns streams.json entries into channels and their stream variants. Only HLS entries with
+ * known metadata are kept. Every distinct URL of a channel becomes a variant; the first one
+ * listed is the channel's primary stream URL.
+ */
+final class StreamsCollector {
+
+    private final UpstreamMetadata metadata;
+
+    private final Map<String, Channel> channelsById = new LinkedHashMap<>();
+    private final Map<String, Map<String, String>> qualityByUrl = new HashMap<>();
+    private final Set<String> countries = new HashSet<>();
+
+    StreamsCollector(UpstreamMetadata metadata) {
+        this.metadata = metadata;
+    }
+
+    void accept(StreamEntry stream) {
+        if (stream.url() == null || !stream.url().contains(".m3u8") || stream.channel() == null) {
+            return;
+        }
+        UpstreamMetadata.ChannelInfo channelMetadata = metadata.channel(stream.channel());
+        if (channelMetadata == null) {
+            return;
+        }
+        Map<String, String> variants = qualityByUrl.computeIfAbsent(stream.channel(), key -> new LinkedHashMap<>());
+        if (variants.containsKey(stream.url())) {
+            // Listed twice; keep the first position but take a quality if it only comes now
+            if (variants.get(stream.url()) == null) {
+                variants.put(stream.url(), stream.quality());
+            }
+            return;
+        }
+        variants.put(stream.url(), stream.quality());
+        if (channelsById.containsKey(stream.channel())) {
+            return;
+        }
+        String channelName = channelMetadata.name() != null ? channelMetadata.name() : stream.channel();
+        String countryCode = channelMetadata.country() != null ? channelMetadata.country() : "US"; // Default to US if not found
+        String category = channelMetadata.category() != null ? channelMetadata.category() : "Global Stream";
+        String language = channelMetadata.language() != null ? channelMetadata.language() : "en"; // Default to English
+        String logoUrl = metadata.logo(stream.channel());
+
+        // EPG ID not available from this JSON
+        channelsById.put(stream.channel(), new Channel(stream.channel(), channelName, stream.url(), logoUrl, category, language, countryCode, null));
+        countries.add(countryCode);
+    }
+
+    Collection<Channel> channels() {
+        return channelsById.values();
+    }
+
+    int countryCount() {
+        return countries.size();
+    }
+
+    /**
+     * Variants in upstream order, keyed by iptv-org channel id.
+     */
+    Map<String, List<StreamVariant>> variants() {
+        Map<String, List<StreamVariant>> variantsByChannel = new HashMap<>(qualityByUrl.size() * 2);
+        qualityByUrl.forEach((channelId, urls) -> {
+            List<StreamVariant> variants = new ArrayList<>(urls.size());
+            urls.forEach((url, quality) -> variants.add(new StreamVariant(url, quality, variants.size())));
+            variantsByChannel.put(channelId, variants);
+        });
+        return variantsByChannel;
+    }
+}
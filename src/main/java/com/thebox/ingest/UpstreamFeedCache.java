@@ -0,0 +1,268 @@
+package com.thebox.ingest;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps a gzip-compressed copy of each upstream feed on local disk together with its
+ * ETag / Last-Modified validators. Revalidation issues a conditional GET, so an unchanged
+ * feed costs a single 304 round trip instead of a full download.
+ *
+ * <p>Validators for a newly stored body stay pending until {@link #commit(String)} confirms it
+ * was ingested. Until then revalidation is unconditional, so a body whose parse or upsert
+ * failed is downloaded and ingested again rather than answered with 304 forever.
+ */
+@Component
+public class UpstreamFeedCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamFeedCache.class);
+
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${thebox.upstream.cache-dir:${java.io.tmpdir}/thebox-feeds}")
+    private String cacheDir;
+
+    @Value("${thebox.upstream.timeout:30s}")
+    private Duration timeout;
+
+    /**
+     * How a revalidation ended.
+     */
+    public enum Revalidation {
+        /** Upstream sent a new body, now stored in the cache. */
+        MODIFIED,
+        /** Upstream answered 304: the cached body is current. */
+        NOT_MODIFIED,
+        /** Upstream could not be reached or answered an error; the cached body is kept as is. */
+        FAILED
+    }
+
+    /**
+     * Conditionally re-downloads {@code url} into the cache entry {@code name}.
+     *
+     * @throws IllegalStateException if the fetch failed and nothing is cached for {@code name}
+     */
+    public Revalidation revalidate(String name, String url) {
+        return revalidateAsync(name, url).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #revalidate(String, String)}. A failed fetch only
+     * completes with {@link Revalidation#FAILED} when a cached copy exists to fall back on;
+     * otherwise it errors.
+     */
+    public Mono<Revalidation> revalidateAsync(String name, String url) {
+        return Mono.defer(() -> {
+            Path body = bodyPath(name);
+            Properties validators = Files.exists(body) ? readValidators(name) : new Properties();
+            long started = System.nanoTime();
+
+            return webClient.get()
+                    .uri(url)
+                    .headers(headers -> {
+                        String etag = validators.getProperty(ETAG);
+                        String lastModified = validators.getProperty(LAST_MODIFIED);
+                        if (etag != null) {
+                            headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+                        }
+                        if (lastModified != null) {
+                            headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                        }
+                    })
+                    .exchangeToMono(response -> store(name, response))
+                    .timeout(timeout)
+                    .doOnNext(outcome -> {
+                        recordFetch(name, outcome, started);
+                        if (outcome == Revalidation.MODIFIED) {
+                            logger.info("Feed {} changed upstream, cached new copy", name);
+                        } else {
+                            logger.info("Feed {} not modified upstream", name);
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        recordFetch(name, Revalidation.FAILED, started);
+                        if (Files.exists(body)) {
+                            logger.warn("Revalidating feed {} failed, using cached copy: {}", name, e.getMessage());
+                            return Mono.just(Revalidation.FAILED);
+                        }
+                        return Mono.error(new IllegalStateException(
+                                "Unable to fetch feed " + name + " from " + url + ": " + e.getMessage(), e));
+                    });
+        });
+    }
+
+    /**
+     * Marks the body last stored for {@code name} as ingested, making its validators the ones
+     * sent on the next revalidation. A no-op if nothing new was stored since the last commit.
+     */
+    public void commit(String name) {
+        Path pending = pendingValidatorsPath(name);
+        try {
+            if (Files.exists(pending)) {
+                Files.move(pending, validatorsPath(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            // The feed is simply downloaded in full once more next time
+            logger.warn("Could not commit validators for feed {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Streams the decompressed cached body of {@code name}.
+     */
+    public Flux<DataBuffer> read(String name) {
+        Path body = bodyPath(name);
+        return DataBufferUtils.readInputStream(
+                () -> new GZIPInputStream(Files.newInputStream(body), READ_BUFFER_SIZE),
+                DefaultDataBufferFactory.sharedInstance,
+                READ_BUFFER_SIZE);
+    }
+
+    public boolean contains(String name) {
+        return Files.exists(bodyPath(name));
+    }
+
+    private Mono<Revalidation> store(String name, ClientResponse response) {
+        if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            return response.releaseBody().thenReturn(Revalidation.NOT_MODIFIED);
+        }
+        if (!response.statusCode().is2xxSuccessful()) {
+            return response.createError();
+        }
+
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        Properties validators = new Properties();
+        if (headers.getETag() != null) {
+            validators.setProperty(ETAG, headers.getETag());
+        }
+        if (headers.getFirst(HttpHeaders.LAST_MODIFIED) != null) {
+            validators.setProperty(LAST_MODIFIED, headers.getFirst(HttpHeaders.LAST_MODIFIED));
+        }
+
+        AtomicLong received = new AtomicLong();
+        return Mono.using(
+                () -> Files.createTempFile(cacheDirectory(), name, ".tmp"),
+                temp -> writeCompressed(response.bodyToFlux(DataBuffer.class)
+                                .doOnNext(buffer -> received.addAndGet(buffer.readableByteCount())), temp)
+                        .then(Mono.fromCallable(() -> {
+                            // Drop the old validators first: they must never be sent for the new body
+                            Files.deleteIfExists(validatorsPath(name));
+                            // Swap the body in atomically so readers never see a partial file
+                            Files.move(temp, bodyPath(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                            writePendingValidators(name, validators);
+                            DistributionSummary.builder("thebox.upstream.bytes")
+                                    .description("Body size of feed downloads, after transfer decoding")
+                                    .baseUnit("bytes")
+                                    .tag("feed", name)
+                                    .register(meterRegistry)
+                                    .record(received.get());
+                            return Revalidation.MODIFIED;
+                        })),
+                temp -> {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException ignored) {
+                        // Best effort cleanup of an aborted download
+                    }
+                });
+    }
+
+    private void recordFetch(String name, Revalidation outcome, long startedNanos) {
+        Timer.builder("thebox.upstream.fetch")
+                .description("Conditional feed downloads, from request to the body stored on disk")
+                .tag("feed", name)
+                .tag("result", outcome.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Mono<Void> writeCompressed(Flux<DataBuffer> body, Path target) {
+        return Mono.using(
+                () -> new GZIPOutputStream(Files.newOutputStream(target), READ_BUFFER_SIZE),
+                out -> DataBufferUtils.write(body.publishOn(Schedulers.boundedElastic()), out)
+                        .doOnNext(DataBufferUtils::release)
+                        .then(),
+                out -> {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private Properties readValidators(String name) {
+        Properties validators = new Properties();
+        Path path = validatorsPath(name);
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                validators.load(in);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable validators for feed {}: {}", name, e.getMessage());
+            }
+        }
+        return validators;
+    }
+
+    private void writePendingValidators(String name, Properties validators) throws IOException {
+        try (OutputStream out = Files.newOutputStream(pendingValidatorsPath(name))) {
+            validators.store(out, "Upstream validators for " + name);
+        }
+    }
+
+    private Path cacheDirectory() throws IOException {
+        return Files.createDirectories(Paths.get(cacheDir));
+    }
+
+    private Path bodyPath(String name) {
+        return Paths.get(cacheDir, name + ".json.gz");
+    }
+
+    private Path validatorsPath(String name) {
+        return Paths.get(cacheDir, name + ".properties");
+    }
+
+    private Path pendingValidatorsPath(String name) {
+        return Paths.get(cacheDir, name + ".properties.pending");
+    }
+}
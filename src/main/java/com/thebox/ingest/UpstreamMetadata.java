@@ -0,0 +1,114 @@
+package com.thebox.ingest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Channel and logo metadata from the last parse of channels.json and logos.json, holding only
+ * the fields a stream needs to become a channel. Immutable: a refresh builds a new instance
+ * and swaps it in whole. Entries are kept in parallel arrays sorted by channel id, and codes
+ * (country, category, language) share one String instance per distinct value.
+ */
+final class UpstreamMetadata {
+
+    static final UpstreamMetadata EMPTY = new UpstreamMetadata(new String[0], new String[0], new String[0],
+            new String[0], new String[0], new String[0], new String[0]);
+
+    /**
+     * Metadata of one channel; fields missing upstream are null.
+     */
+    record ChannelInfo(String name, String country, String category, String language) {
+    }
+
+    private final String[] channelIds;
+    private final String[] names;
+    private final String[] countries;
+    private final String[] categories;
+    private final String[] languages;
+
+    // Indexed separately from the channels, since logos.json is parsed on its own
+    private final String[] logoChannelIds;
+    private final String[] logoUrls;
+
+    private UpstreamMetadata(String[] channelIds, String[] names, String[] countries, String[] categories,
+                             String[] languages, String[] logoChannelIds, String[] logoUrls) {
+        this.channelIds = channelIds;
+        this.names = names;
+        this.countries = countries;
+        this.categories = categories;
+        this.languages = languages;
+        this.logoChannelIds = logoChannelIds;
+        this.logoUrls = logoUrls;
+    }
+
+    int channelCount() {
+        return channelIds.length;
+    }
+
+    int logoCount() {
+        return logoChannelIds.length;
+    }
+
+    ChannelInfo channel(String channelId) {
+        int index = Arrays.binarySearch(channelIds, channelId);
+        return index >= 0 ? new ChannelInfo(names[index], countries[index], categories[index], languages[index]) : null;
+    }
+
+    String logo(String channelId) {
+        int index = Arrays.binarySearch(logoChannelIds, channelId);
+        return index >= 0 ? logoUrls[index] : null;
+    }
+
+    /**
+     * A copy with the channels replaced by {@code entries}, keyed by channel id.
+     */
+    UpstreamMetadata withChannels(Map<String, ChannelEntry> entries) {
+        String[] ids = sortedKeys(entries, logoChannelIds);
+        String[] names = new String[ids.length];
+        String[] countries = new String[ids.length];
+        String[] categories = new String[ids.length];
+        String[] languages = new String[ids.length];
+        Map<String, String> codes = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            ChannelEntry entry = entries.get(ids[i]);
+            names[i] = entry.name();
+            countries[i] = shared(codes, entry.country());
+            categories[i] = shared(codes, entry.firstCategory());
+            languages[i] = shared(codes, entry.firstLanguage());
+        }
+        return new UpstreamMetadata(ids, names, countries, categories, languages, logoChannelIds, logoUrls);
+    }
+
+    /**
+     * A copy with the logos replaced by {@code logos}, the selected logo URL per channel id.
+     */
+    UpstreamMetadata withLogos(Map<String, String> logos) {
+        String[] ids = sortedKeys(logos, channelIds);
+        String[] urls = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            urls[i] = logos.get(ids[i]);
+        }
+        return new UpstreamMetadata(channelIds, names, countries, categories, languages, ids, urls);
+    }
+
+    /**
+     * The map's keys in sorted order, reusing the instance from {@code known} (the other table's
+     * ids) wherever the same id is already held.
+     */
+    private static String[] sortedKeys(Map<String, ?> map, String[] known) {
+        String[] keys = map.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            int index = Arrays.binarySearch(known, keys[i]);
+            if (index >= 0) {
+                keys[i] = known[index];
+            }
+        }
+        return keys;
+    }
+
+    private static String shared(Map<String, String> codes, String code) {
+        return code != null ? codes.computeIfAbsent(code, key -> key) : null;
+    }
+}
@@ -1,11 +1,13 @@
 package com.thebox.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
 import java.time.LocalDateTime;
 
+// Indexes are defined by the migrations in db/migration only
 @Entity
 @Table(name = "channels")
 public class Channel {
@@ -45,12 +47,34 @@ public class Channel {
     @Column(name = "epg_id")
     private String epgId;
     
+    // Stream health, maintained by the background prober
+    @Column(name = "consecutive_failures")
+    private Integer consecutiveFailures = 0;
+    
+    @Column(name = "last_probed_at")
+    private LocalDateTime lastProbedAt;
+    
+    @Column(name = "last_online_at")
+    private LocalDateTime lastOnlineAt;
+    
+    @JsonIgnore
+    @Column(name = "next_probe_at")
+    private LocalDateTime nextProbeAt;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // List order keys, generated by Postgres (V4) and only referenced by repository queries:
+    // 0 for a live channel, 1 while its latest probes fail; the name as sortName(String) folds it
+    @Column(name = "list_rank", insertable = false, updatable = false)
+    private Integer listRank;
+    
+    @Column(name = "sort_name", insertable = false, updatable = false)
+    private String sortName;
+    
     // Constructors
     public Channel() {}
     
@@ -157,6 +181,38 @@ public class Channel {
         this.epgId = epgId;
     }
     
+    public Integer getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+    
+    public void setConsecutiveFailures(Integer consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+    
+    public LocalDateTime getLastProbedAt() {
+        return lastProbedAt;
+    }
+    
+    public void setLastProbedAt(LocalDateTime lastProbedAt) {
+        this.lastProbedAt = lastProbedAt;
+    }
+    
+    public LocalDateTime getLastOnlineAt() {
+        return lastOnlineAt;
+    }
+    
+    public void setLastOnlineAt(LocalDateTime lastOnlineAt) {
+        this.lastOnlineAt = lastOnlineAt;
+    }
+    
+    public LocalDateTime getNextProbeAt() {
+        return nextProbeAt;
+    }
+    
+    public void setNextProbeAt(LocalDateTime nextProbeAt) {
+        this.nextProbeAt = nextProbeAt;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -177,4 +233,25 @@ public class Channel {
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
     }
+    
+    /**
+     * The sort_name column for {@code name}: ASCII letters lowercased, everything else as is.
+     * Compared by code point, this orders like the column does under collation "C".
+     */
+    public static String sortName(String name) {
+        if (name == null) {
+            return null;
+        }
+        char[] chars = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (chars == null) {
+                    chars = name.toCharArray();
+                }
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return chars != null ? new String(chars) : name;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.thebox.model;
+
+import com.thebox.health.ProbeResult;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One probe of one channel's stream. Rows are small and append-only; old rows are pruned by
+ * the health prober after the configured retention.
+ */
+@Entity
+@Table(name = "channel_health_history")
+public class ChannelHealthHistory {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "channel_id", nullable = false)
+    private Long channelId;
+    
+    @Column(name = "probed_at", nullable = false)
+    private LocalDateTime probedAt;
+    
+    // Stored as its ordinal (smallint)
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "outcome", nullable = false)
+    private ProbeResult.Outcome outcome;
+    
+    @Column(name = "http_status")
+    private Short httpStatus;
+    
+    @Column(name = "ttfb_ms")
+    private Integer ttfbMs;
+    
+    @Column(name = "total_ms")
+    private Integer totalMs;
+    
+    // Constructors
+    public ChannelHealthHistory() {}
+    
+    public ChannelHealthHistory(Long channelId, LocalDateTime probedAt, ProbeResult.Outcome outcome, Short httpStatus, Integer ttfbMs, Integer totalMs) {
+        this.channelId = channelId;
+        this.probedAt = probedAt;
+        this.outcome = outcome;
+        this.httpStatus = httpStatus;
+        this.ttfbMs = ttfbMs;
+        this.totalMs = totalMs;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getChannelId() {
+        return channelId;
+    }
+    
+    public void setChannelId(Long channelId) {
+        this.channelId = channelId;
+    }
+    
+    public LocalDateTime getProbedAt() {
+        return probedAt;
+    }
+    
+    public void setProbedAt(LocalDateTime probedAt) {
+        this.probedAt = probedAt;
+    }
+    
+    public ProbeResult.Outcome getOutcome() {
+        return outcome;
+    }
+    
+    public void setOutcome(ProbeResult.Outcome outcome) {
+        this.outcome = outcome;
+    }
+    
+    public Short getHttpStatus() {
+        return httpStatus;
+    }
+    
+    public void setHttpStatus(Short httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+    
+    public Integer getTtfbMs() {
+        return ttfbMs;
+    }
+    
+    public void setTtfbMs(Integer ttfbMs) {
+        this.ttfbMs = ttfbMs;
+    }
+    
+    public Integer getTotalMs() {
+        return totalMs;
+    }
+    
+    public void setTotalMs(Integer totalMs) {
+        this.totalMs = totalMs;
+    }
+}
@@ -0,0 +1,179 @@
+package com.thebox.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One of the stream URLs iptv-org lists for a channel, with the health the prober measured
+ * for it. The channel's own stream_url is the first variant listed upstream; requests are
+ * served from whichever variant currently ranks best.
+ */
+@Entity
+@Table(name = "stream_variants",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stream_variants_channel_url", columnNames = {"channel_id", "url"}))
+public class StreamVariant {
+
+    /**
+     * Live variants first, fastest first; then by fewest failures, highest quality and
+     * upstream order. Variants never probed rank after measured live ones.
+     */
+    public static final Comparator<StreamVariant> BEST_FIRST = Comparator
+            .comparing((StreamVariant variant) -> variant.failures() > 0)
+            .thenComparing(StreamVariant::getLatencyMs, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(StreamVariant::failures)
+            .thenComparing(Comparator.comparingInt(StreamVariant::qualityHeight).reversed())
+            .thenComparingInt(StreamVariant::getPosition);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "channel_id", nullable = false)
+    private Long channelId;
+
+    @Column(name = "url", nullable = false, length = 1000)
+    private String url;
+
+    // As listed upstream, e.g. "720p"; often missing
+    @Column(name = "quality")
+    private String quality;
+
+    // Order in streams.json
+    @Column(name = "position", nullable = false)
+    private int position;
+
+    @Column(name = "consecutive_failures")
+    private Integer consecutiveFailures = 0;
+
+    // Smoothed time to first byte of successful probes
+    @Column(name = "latency_ms")
+    private Integer latencyMs;
+
+    @Column(name = "last_probed_at")
+    private LocalDateTime lastProbedAt;
+
+    @Column(name = "last_online_at")
+    private LocalDateTime lastOnlineAt;
+
+    // Constructors
+    public StreamVariant() {}
+
+    public StreamVariant(String url, String quality, int position) {
+        this.url = url;
+        this.quality = quality;
+        this.position = position;
+    }
+
+    /**
+     * The channel's stream variants, best first. Ranked per request so the latest published
+     * probe results apply; channels without variant rows have only their own URL.
+     */
+    public static List<StreamVariant> ranked(Channel channel, List<StreamVariant> variants) {
+        if (variants.isEmpty()) {
+            StreamVariant primary = new StreamVariant(channel.getStreamUrl(), null, 0);
+            primary.setChannelId(channel.getId());
+            primary.setConsecutiveFailures(channel.getConsecutiveFailures());
+            return List.of(primary);
+        }
+        List<StreamVariant> ranked = new ArrayList<>(variants);
+        ranked.sort(BEST_FIRST);
+        return ranked;
+    }
+
+    /**
+     * Vertical resolution from the quality label ("1080p" -> 1080), 0 if unknown.
+     */
+    @JsonIgnore
+    public int qualityHeight() {
+        if (quality == null) {
+            return 0;
+        }
+        int height = 0;
+        for (int i = 0; i < quality.length() && Character.isDigit(quality.charAt(i)); i++) {
+            height = height * 10 + (quality.charAt(i) - '0');
+        }
+        return height;
+    }
+
+    private int failures() {
+        return consecutiveFailures != null ? consecutiveFailures : 0;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(Long channelId) {
+        this.channelId = channelId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getQuality() {
+        return quality;
+    }
+
+    public void setQuality(String quality) {
+        this.quality = quality;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public Integer getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(Integer consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public Integer getLatencyMs() {
+        return latencyMs;
+    }
+
+    public void setLatencyMs(Integer latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public LocalDateTime getLastProbedAt() {
+        return lastProbedAt;
+    }
+
+    public void setLastProbedAt(LocalDateTime lastProbedAt) {
+        this.lastProbedAt = lastProbedAt;
+    }
+
+    public LocalDateTime getLastOnlineAt() {
+        return lastOnlineAt;
+    }
+
+    public void setLastOnlineAt(LocalDateTime lastOnlineAt) {
+        this.lastOnlineAt = lastOnlineAt;
+    }
+}
@@ -0,0 +1,166 @@
+package com.thebox.refresh;
+
+import com.thebox.ingest.CatalogRefresher;
+import com.thebox.ingest.RefreshProgress;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs refreshes as background jobs on a dedicated thread, at most one at a time. A caller
+ * that asks for a refresh while one is in flight gets the running job instead of starting
+ * another download, whatever the scope of the run it joins. The most recent jobs are kept
+ * for the job-status endpoint.
+ */
+@Component
+public class RefreshCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshCoordinator.class);
+
+    @Autowired
+    private CatalogRefresher catalogRefresher;
+
+    @Value("${thebox.refresh.job-history:50}")
+    private int jobHistory;
+
+    private final AtomicReference<RefreshJob> inFlight = new AtomicReference<>();
+
+    // Guarded by itself; insertion ordered so the eldest job is evicted first
+    private final Map<String, RefreshJob> recentJobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RefreshJob> eldest) {
+            return size() > jobHistory;
+        }
+    };
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        // The refresh spends most of its time waiting on downloads and the database
+        ThreadFactory threads = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("catalog-refresh-").getVirtualThreadFactory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "catalog-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        executor = Executors.newSingleThreadExecutor(threads);
+    }
+
+    /**
+     * Starts a full refresh, or joins the one already running.
+     *
+     * @param trigger recorded on the job, e.g. "api" or "schedule"
+     */
+    public RefreshJob refresh(String trigger) {
+        return submit("full", trigger, catalogRefresher::refresh);
+    }
+
+    public RefreshJob refreshMetadata(String trigger) {
+        return submit("metadata", trigger, catalogRefresher::refreshMetadata);
+    }
+
+    public RefreshJob refreshStreams(String trigger) {
+        return submit("streams", trigger, catalogRefresher::refreshStreams);
+    }
+
+    public boolean isRefreshing() {
+        return inFlight.get() != null;
+    }
+
+    public RefreshJob getJob(String id) {
+        synchronized (recentJobs) {
+            return recentJobs.get(id);
+        }
+    }
+
+    /**
+     * Recent jobs, newest first.
+     */
+    public List<RefreshJob> getRecentJobs() {
+        List<RefreshJob> jobs;
+        synchronized (recentJobs) {
+            jobs = new ArrayList<>(recentJobs.values());
+        }
+        Collections.reverse(jobs);
+        return jobs;
+    }
+
+    private RefreshJob submit(String scope, String trigger, Consumer<RefreshProgress> task) {
+        while (true) {
+            RefreshJob running = inFlight.get();
+            if (running != null) {
+                logger.debug("Joining {} refresh {} instead of starting a {} refresh", running.getScope(), running.getId(), scope);
+                return running;
+            }
+
+            RefreshJob job = new RefreshJob(scope, trigger);
+            if (inFlight.compareAndSet(null, job)) {
+                synchronized (recentJobs) {
+                    recentJobs.put(job.getId(), job);
+                }
+                logger.info("Starting {} refresh {} ({})", scope, job.getId(), trigger);
+                executor.execute(() -> run(job, task));
+                return job;
+            }
+        }
+    }
+
+    private void run(RefreshJob job, Consumer<RefreshProgress> task) {
+        try {
+            task.accept(job);
+            inFlight.set(null);
+            job.succeed();
+            recordJob(job);
+            logger.info("Refresh {} finished: {} items in {} ms", job.getId(), job.getItemsProcessed(), job.getDurationMs());
+        } catch (Throwable t) {
+            inFlight.set(null);
+            job.fail(t);
+            recordJob(job);
+            logger.error("Refresh {} failed: {}", job.getId(), t.getMessage(), t);
+        }
+    }
+
+    private void recordJob(RefreshJob job) {
+        Timer.builder("thebox.refresh")
+                .description("Whole refresh jobs; see thebox.refresh.phase for where the time went")
+                .tag("scope", job.getScope())
+                .tag("trigger", job.getTrigger())
+                .tag("outcome", job.getStatus().name().toLowerCase())
+                .register(meterRegistry)
+                .record(job.getDurationMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,143 @@
+package com.thebox.refresh;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.thebox.ingest.RefreshProgress;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One background refresh run. Updated by the refresh thread while it runs and serialized as
+ * is by the job-status endpoint.
+ */
+public class RefreshJob implements RefreshProgress {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String scope;
+    private final String trigger;
+    private final Instant startedAt = Instant.now();
+    private final AtomicLong itemsProcessed = new AtomicLong();
+    private final Set<String> activePhases = new LinkedHashSet<>();
+    private final Map<String, Long> phaseDurations = new LinkedHashMap<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    RefreshJob(String scope, String trigger) {
+        this.scope = scope;
+        this.trigger = trigger;
+    }
+
+    @Override
+    public synchronized void phaseStarted(String phase) {
+        activePhases.add(phase);
+    }
+
+    @Override
+    public synchronized void phaseFinished(String phase, long durationMillis) {
+        activePhases.remove(phase);
+        phaseDurations.put(phase, durationMillis);
+    }
+
+    @Override
+    public void itemsProcessed(long count) {
+        itemsProcessed.addAndGet(count);
+    }
+
+    void succeed() {
+        finishedAt = Instant.now();
+        status = Status.SUCCEEDED;
+        completion.complete(null);
+    }
+
+    void fail(Throwable t) {
+        finishedAt = Instant.now();
+        error = t.getMessage();
+        status = Status.FAILED;
+        completion.completeExceptionally(t);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    /**
+     * What started the run: "api", "schedule", "startup" or "on-demand".
+     */
+    public String getTrigger() {
+        return trigger;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Phases currently running, in the order they started; empty once the job has finished.
+     */
+    public synchronized List<String> getPhases() {
+        return new ArrayList<>(activePhases);
+    }
+
+    public synchronized Map<String, Long> getPhaseDurationsMs() {
+        return new LinkedHashMap<>(phaseDurations);
+    }
+
+    public long getItemsProcessed() {
+        return itemsProcessed.get();
+    }
+
+    public double getItemsPerSecond() {
+        long millis = getDurationMs();
+        return millis == 0 ? 0 : itemsProcessed.get() * 1000.0 / millis;
+    }
+
+    public long getDurationMs() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(startedAt, end).toMillis();
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+
+    /**
+     * Completes when the run finishes, exceptionally if it failed.
+     */
+    @JsonIgnore
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+}
@@ -0,0 +1,51 @@
+package com.thebox.refresh;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+/**
+ * Registers the periodic full refresh from {@code thebox.refresh.schedule}. A cron expression
+ * takes precedence over a fixed interval; with neither set, refreshes only run on demand.
+ * The scheduler thread only submits the job, so a slow refresh never delays other tasks.
+ */
+@Component
+public class RefreshScheduler implements SchedulingConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshScheduler.class);
+
+    @Autowired
+    private RefreshCoordinator refreshCoordinator;
+
+    @Value("${thebox.refresh.schedule.cron:}")
+    private String cron;
+
+    @Value("${thebox.refresh.schedule.interval:}")
+    private Duration interval;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (StringUtils.hasText(cron)) {
+            logger.info("Scheduling catalog refresh with cron '{}'", cron);
+            taskRegistrar.addCronTask(this::scheduledRefresh, cron);
+        } else if (interval != null && !interval.isZero()) {
+            logger.info("Scheduling catalog refresh every {}", interval);
+            taskRegistrar.addFixedDelayTask(new FixedDelayTask(this::scheduledRefresh, interval, interval));
+        } else {
+            logger.info("No refresh schedule configured; refreshes run on demand only");
+        }
+    }
+
+    private void scheduledRefresh() {
+        RefreshJob job = refreshCoordinator.refresh("schedule");
+        logger.debug("Scheduled refresh submitted as job {}", job.getId());
+    }
+}
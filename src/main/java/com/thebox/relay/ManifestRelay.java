@@ -0,0 +1,197 @@
+package com.thebox.relay;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fetches HLS playlists on behalf of players and caches the rewritten result. Concurrent
+ * requests for a playlist that is not cached share one upstream fetch, and a cached playlist
+ * is served until its TTL runs out, so upstream sees roughly one request per TTL per playlist
+ * regardless of the number of viewers.
+ * <p>
+ * Live media playlists are cached for half their target duration (clamped to
+ * [min-ttl, max-ttl]), which keeps relayed playlists as fresh as players expect. Master
+ * playlists and finished (VOD) playlists do not change and use static-ttl.
+ * <p>
+ * With {@code thebox.relay.segments.enabled}, media URIs point at {@link SegmentRelay} as
+ * well, for origins that send no CORS headers or only serve some regions.
+ */
+@Component
+public class ManifestRelay implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManifestRelay.class);
+
+    private static final Pattern TARGET_DURATION = Pattern.compile("#EXT-X-TARGETDURATION:\\s*(\\d+(?:\\.\\d+)?)");
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private SegmentLinks segmentLinks;
+
+    @Value("${thebox.relay.segments.enabled:false}")
+    private boolean relaySegments;
+
+    @Value("${thebox.relay.manifest.cache-size:10000}")
+    private long cacheSize;
+
+    @Value("${thebox.relay.manifest.timeout:5s}")
+    private Duration timeout;
+
+    @Value("${thebox.relay.manifest.min-ttl:1s}")
+    private Duration minTtl;
+
+    @Value("${thebox.relay.manifest.max-ttl:10s}")
+    private Duration maxTtl;
+
+    @Value("${thebox.relay.manifest.static-ttl:60s}")
+    private Duration staticTtl;
+
+    @Value("${thebox.relay.manifest.max-redirects:5}")
+    private int maxRedirects;
+
+    private AsyncCache<ManifestKey, RelayedManifest> cache;
+
+    /**
+     * The same upstream URL is rewritten differently when it is the channel's root playlist
+     * and when it is served as a variant, so both are part of the key.
+     */
+    private record ManifestKey(String url, boolean root) {
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<ManifestKey, RelayedManifest>() {
+                    @Override
+                    public long expireAfterCreate(ManifestKey key, RelayedManifest manifest, long currentTime) {
+                        return manifest.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ManifestKey key, RelayedManifest manifest, long currentTime, long currentDuration) {
+                        return manifest.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(ManifestKey key, RelayedManifest manifest, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Same tag keys as the Spring caches' meters, which Prometheus requires for a shared name
+        CaffeineCacheMetrics.monitor(registry, cache, "manifests", "cache.manager", "manifestRelay", "name", "manifests");
+    }
+
+    /**
+     * The playlist at {@code streamUrl}, with playlist references rewritten to relay links.
+     */
+    public Mono<RelayedManifest> rootPlaylist(String streamUrl) {
+        return get(new ManifestKey(streamUrl, true));
+    }
+
+    /**
+     * Variant {@code index} of the root playlist at {@code streamUrl}; empty if there is no
+     * such variant.
+     */
+    public Mono<RelayedManifest> variantPlaylist(String streamUrl, int index) {
+        return rootPlaylist(streamUrl).flatMap(root -> index >= 0 && index < root.playlistUris().size()
+                ? get(new ManifestKey(root.playlistUris().get(index), false))
+                : Mono.empty());
+    }
+
+    private Mono<RelayedManifest> get(ManifestKey key) {
+        // suppressCancel: one viewer going away must not cancel the fetch shared with the others
+        return Mono.fromFuture(() -> cache.get(key, (k, executor) -> download(k).toFuture()), true);
+    }
+
+    private Mono<RelayedManifest> download(ManifestKey key) {
+        long started = System.nanoTime();
+        return fetch(key, URI.create(key.url()), 0)
+                .timeout(timeout)
+                .doOnNext(manifest -> logger.debug("Fetched playlist {} in {} ms, caching for {} ms",
+                        key.url(), Duration.ofNanos(System.nanoTime() - started).toMillis(), manifest.ttl().toMillis()))
+                .doOnError(e -> logger.warn("Fetching playlist {} failed: {}", key.url(), e.getMessage()));
+    }
+
+    /**
+     * Follows redirects by hand: relative URIs must resolve against the final URL, which the
+     * WebClient response does not expose.
+     */
+    private Mono<RelayedManifest> fetch(ManifestKey key, URI url, int redirects) {
+        return webClient.get()
+                .uri(url)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is3xxRedirection()) {
+                        String location = response.headers().asHttpHeaders().getFirst(HttpHeaders.LOCATION);
+                        if (location == null || redirects >= maxRedirects) {
+                            return response.releaseBody().then(Mono.error(new IllegalStateException(
+                                    "Too many or malformed redirects fetching " + url)));
+                        }
+                        return response.releaseBody().then(fetch(key, url.resolve(location), redirects + 1));
+                    }
+                    if (!response.statusCode().is2xxSuccessful()) {
+                        return response.createError();
+                    }
+                    return response.bodyToMono(String.class).map(body -> toManifest(body, url, key));
+                });
+    }
+
+    private RelayedManifest toManifest(String body, URI base, ManifestKey key) {
+        if (!body.replace("\uFEFF", "").stripLeading().startsWith("#EXTM3U")) {
+            throw new IllegalStateException("Not an HLS playlist: " + base);
+        }
+        boolean master = body.contains("#EXT-X-STREAM-INF");
+        // Variant links name the requested URL, which variantPlaylist looks the root up by
+        PlaylistRewriter.Result rewritten = PlaylistRewriter.rewrite(body, base,
+                key.root() ? index -> segmentLinks.variantLink(key.url(), index) : null,
+                relaySegments ? segmentLinks::link : url -> url);
+        return new RelayedManifest(
+                rewritten.body().getBytes(StandardCharsets.UTF_8),
+                master,
+                rewritten.playlistUris(),
+                ttl(body, master),
+                Instant.now());
+    }
+
+    private Duration ttl(String body, boolean master) {
+        if (master || body.contains("#EXT-X-ENDLIST")) {
+            return staticTtl;
+        }
+        Matcher matcher = TARGET_DURATION.matcher(body);
+        if (!matcher.find()) {
+            return minTtl;
+        }
+        Duration half = Duration.ofMillis((long) (Double.parseDouble(matcher.group(1)) * 500));
+        if (half.compareTo(minTtl) < 0) {
+            return minTtl;
+        }
+        return half.compareTo(maxTtl) > 0 ? maxTtl : half;
+    }
+}
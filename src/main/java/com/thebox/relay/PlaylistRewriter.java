@@ -0,0 +1,105 @@
+package com.thebox.relay;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the URIs in an HLS playlist so it can be served from the relay. Media URIs
+ * (segments, keys, init sections) are made absolute against the upstream playlist URL.
+ * In a root master playlist, references to other playlists become relative links back to the
+ * relay (see {@link SegmentLinks#variantLink}), so players poll variant playlists through the
+ * relay as well. When segment relaying is on, media URIs are passed through a link function that
+ * points them at the relay's segment endpoint.
+ */
+final class PlaylistRewriter {
+
+    private static final Pattern URI_ATTRIBUTE = Pattern.compile("URI=\"([^\"]*)\"");
+
+    private PlaylistRewriter() {
+    }
+
+    record Result(String body, List<String> playlistUris) {
+    }
+
+    /**
+     * @param base           final upstream URL of the playlist, after redirects
+     * @param variantLink maps the index of a referenced playlist to the relay link written in
+     *                    its place; null for playlists that are themselves served as a variant
+     * @param mediaLink   maps the absolute URL of a segment, key or init section to the
+     *                    link written into the playlist
+     */
+    static Result rewrite(String body, URI base, IntFunction<String> variantLink, UnaryOperator<String> mediaLink) {
+        StringBuilder out = new StringBuilder(body.length() + 256);
+        List<String> playlistUris = new ArrayList<>();
+        boolean nextIsPlaylist = false;
+
+        for (String line : body.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                out.append('\n');
+                continue;
+            }
+
+            if (trimmed.startsWith("#")) {
+                // Renditions and I-frame playlists are referenced through a URI attribute
+                boolean playlistTag = trimmed.startsWith("#EXT-X-MEDIA:") || trimmed.startsWith("#EXT-X-I-FRAME-STREAM-INF:");
+                out.append(rewriteAttributes(trimmed, base, playlistTag, variantLink, mediaLink, playlistUris)).append('\n');
+                if (trimmed.startsWith("#EXT-X-STREAM-INF")) {
+                    nextIsPlaylist = true;
+                }
+                continue;
+            }
+
+            String absolute = resolve(base, trimmed);
+            if (!nextIsPlaylist) {
+                out.append(mediaLink.apply(absolute));
+            } else if (variantLink != null) {
+                out.append(variantLink.apply(playlistUris.size()));
+                playlistUris.add(absolute);
+            } else {
+                out.append(absolute);
+            }
+            out.append('\n');
+            nextIsPlaylist = false;
+        }
+        return new Result(out.toString(), List.copyOf(playlistUris));
+    }
+
+    private static String rewriteAttributes(String tag, URI base, boolean playlistTag, IntFunction<String> variantLink,
+                                            UnaryOperator<String> mediaLink, List<String> playlistUris) {
+        Matcher matcher = URI_ATTRIBUTE.matcher(tag);
+        if (!matcher.find()) {
+            return tag;
+        }
+        StringBuilder out = new StringBuilder(tag.length() + 64);
+        do {
+            String absolute = resolve(base, matcher.group(1));
+            String replacement;
+            if (!playlistTag) {
+                replacement = mediaLink.apply(absolute);
+            } else if (variantLink != null) {
+                replacement = variantLink.apply(playlistUris.size());
+                playlistUris.add(absolute);
+            } else {
+                replacement = absolute;
+            }
+            matcher.appendReplacement(out, Matcher.quoteReplacement("URI=\"" + replacement + "\""));
+        } while (matcher.find());
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    private static String resolve(URI base, String reference) {
+        try {
+            return base.resolve(reference).toString();
+        } catch (IllegalArgumentException e) {
+            // Not a valid URI reference; pass it through untouched
+            return reference;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.thebox.relay;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte and request counters for the segment relay, globally and per channel. Counters are
+ * cumulative since startup.
+ */
+@Component
+public class RelayBandwidth implements MeterBinder {
+
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder bytesFetched = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder upstreamFetches = new LongAdder();
+    private final Map<Long, LongAdder> bytesServedByChannel = new ConcurrentHashMap<>();
+
+    void served(Long channelId, long bytes) {
+        bytesServed.add(bytes);
+        bytesServedByChannel.computeIfAbsent(channelId, id -> new LongAdder()).add(bytes);
+    }
+
+    void fetched(long bytes) {
+        bytesFetched.add(bytes);
+    }
+
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    /**
+     * A request that waited for another request's upstream fetch instead of making its own.
+     */
+    void coalesced() {
+        coalesced.increment();
+    }
+
+    void upstreamFetch() {
+        upstreamFetches.increment();
+    }
+
+    /**
+     * Segment cache lookups use the same meter name and tags as the other caches, so one
+     * dashboard query gives every hit ratio; a request that joined another's fetch counts as a miss.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", cacheHits, LongAdder::sum)
+                .tags("cache", "segments", "cache.manager", "segmentRelay", "name", "segments", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, bandwidth -> bandwidth.getUpstreamFetches() + bandwidth.getCoalesced())
+                .tags("cache", "segments", "cache.manager", "segmentRelay", "name", "segments", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("thebox.relay.segments.coalesced", coalesced, LongAdder::sum)
+                .description("Segment requests that waited for another request's upstream fetch")
+                .register(registry);
+        FunctionCounter.builder("thebox.relay.segments.bytes", bytesServed, LongAdder::sum)
+                .baseUnit("bytes")
+                .tag("direction", "served")
+                .register(registry);
+        FunctionCounter.builder("thebox.relay.segments.bytes", bytesFetched, LongAdder::sum)
+                .baseUnit("bytes")
+                .tag("direction", "fetched")
+                .register(registry);
+    }
+
+    public long getBytesServed() {
+        return bytesServed.sum();
+    }
+
+    public long getBytesFetched() {
+        return bytesFetched.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getUpstreamFetches() {
+        return upstreamFetches.sum();
+    }
+
+    public long getBytesServed(Long channelId) {
+        LongAdder bytes = bytesServedByChannel.get(channelId);
+        return bytes != null ? bytes.sum() : 0;
+    }
+
+    /**
+     * Channels with the most bytes served, highest first.
+     */
+    public Map<Long, Long> getTopChannels(int limit) {
+        Map<Long, Long> top = new LinkedHashMap<>();
+        bytesServedByChannel.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+}
@@ -0,0 +1,24 @@
+package com.thebox.relay;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A rewritten playlist ready to serve, as cached by {@link ManifestRelay}.
+ *
+ * @param body          the playlist with every URI rewritten (UTF-8)
+ * @param playlistUris  upstream URIs of the variant/rendition playlists a master playlist
+ *                      refers to, indexed by the {@code variant} parameter of the relay URL
+ * @param ttl           how long the manifest is served from cache
+ */
+public record RelayedManifest(byte[] body, boolean master, List<String> playlistUris, Duration ttl, Instant fetchedAt) {
+
+    /**
+     * Time left before the cached copy expires; used for Cache-Control max-age.
+     */
+    public Duration remainingTtl() {
+        Duration remaining = ttl.minus(Duration.between(fetchedAt, Instant.now()));
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+}
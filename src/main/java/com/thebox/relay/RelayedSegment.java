@@ -0,0 +1,18 @@
+package com.thebox.relay;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+
+/**
+ * A media segment ready to be written to a player, either from {@link SegmentRelay}'s cache or
+ * streamed from upstream as it arrives.
+ *
+ * @param contentLength length in bytes, or -1 if upstream did not send one
+ * @param maxAge        how long players and intermediaries may cache the segment
+ * @param discard       releases the upstream response when {@code body} will never be written,
+ *                      e.g. because the player went away first; a no-op once writing has started
+ */
+public record RelayedSegment(String contentType, long contentLength, Duration maxAge, StreamingResponseBody body,
+                             Runnable discard) {
+}
@@ -0,0 +1,70 @@
+package com.thebox.relay;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU of media segments held in direct (off-heap) buffers, so a large cache adds
+ * nothing to heap size or GC work. Entries are immutable once stored; readers get their own
+ * read-only view of the shared buffer. Entries also expire, because some origins reuse segment
+ * names in a rolling window.
+ */
+final class SegmentCache {
+
+    record Segment(ByteBuffer data, String contentType, Instant expiresAt) {
+
+        int size() {
+            return data.remaining();
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Segment> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    SegmentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized Segment get(String url) {
+        Segment segment = entries.get(url);
+        if (segment == null) {
+            return null;
+        }
+        if (segment.expiresAt().isBefore(Instant.now())) {
+            entries.remove(url);
+            usedBytes -= segment.size();
+            return null;
+        }
+        return new Segment(segment.data().asReadOnlyBuffer(), segment.contentType(), segment.expiresAt());
+    }
+
+    synchronized void put(String url, Segment segment) {
+        if (segment.size() > maxBytes) {
+            return;
+        }
+        Segment previous = entries.put(url, segment);
+        if (previous != null) {
+            usedBytes -= previous.size();
+        }
+        usedBytes += segment.size();
+
+        // Least recently used first
+        Iterator<Map.Entry<String, Segment>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+    }
+
+    synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
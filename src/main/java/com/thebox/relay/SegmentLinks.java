@@ -0,0 +1,86 @@
+package com.thebox.relay;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Builds and checks the signed links written into relayed playlists. Only URLs taken from a
+ * playlist the relay fetched itself carry a valid signature, which keeps the segment endpoint
+ * from being used as an open proxy. Variant links name the master playlist they came from, so
+ * a variant index always resolves against the master that viewer was served. Without a configured secret a random one is
+ * generated at startup; players re-fetch live playlists every few seconds, so links
+ * invalidated by a restart are replaced almost immediately.
+ */
+@Component
+public class SegmentLinks {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 16;
+    // Keeps a signed master URL from passing as a segment link, and the other way round
+    private static final String MASTER_PREFIX = "master:";
+
+    private final SecretKeySpec key;
+
+    public SegmentLinks(@Value("${thebox.relay.segments.secret:}") String secret) {
+        byte[] keyBytes;
+        if (StringUtils.hasText(secret)) {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        } else {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Relative link to the segment endpoint; resolves against the playlist URL it appears in.
+     */
+    public String link(String absoluteUrl) {
+        return "segment?uri=" + URLEncoder.encode(absoluteUrl, StandardCharsets.UTF_8) + "&sig=" + sign(absoluteUrl);
+    }
+
+    public boolean verify(String absoluteUrl, String signature) {
+        return absoluteUrl != null && matches(sign(absoluteUrl), signature);
+    }
+
+    /**
+     * Relative link to variant {@code index} of the master playlist at {@code masterUrl}.
+     */
+    public String variantLink(String masterUrl, int index) {
+        return "playlist.m3u8?variant=" + index + "&src=" + URLEncoder.encode(masterUrl, StandardCharsets.UTF_8)
+                + "&sig=" + sign(MASTER_PREFIX + masterUrl);
+    }
+
+    public boolean verifyMaster(String masterUrl, String signature) {
+        return masterUrl != null && matches(sign(MASTER_PREFIX + masterUrl), signature);
+    }
+
+    private static boolean matches(String expected, String signature) {
+        return signature != null && MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String url) {
+        try {
+            // Mac instances are not thread-safe and cheap to create
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] digest = mac.doFinal(url.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, SIGNATURE_BYTES));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC unavailable", e);
+        }
+    }
+}
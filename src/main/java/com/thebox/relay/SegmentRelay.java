@@ -0,0 +1,324 @@
+package com.thebox.relay;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Relays HLS media segments for origins players cannot reach directly. Segment bodies are
+ * written to the player buffer by buffer as they arrive from upstream and are never assembled
+ * on the heap; a copy is kept in an off-heap {@link SegmentCache}, so the other viewers of a
+ * live channel are served from memory. Requests for a segment that is still being fetched wait
+ * for that fetch instead of starting their own.
+ * <p>
+ * Only URLs signed by {@link SegmentLinks} are relayed; see {@link ManifestRelay}.
+ */
+@Component
+public class SegmentRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentRelay.class);
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int PREFETCH = 4;
+    private static final int INITIAL_COPY_SIZE = 1024 * 1024;
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "ts", "video/mp2t",
+            "m4s", "video/iso.segment",
+            "mp4", "video/mp4",
+            "aac", "audio/aac",
+            "vtt", "text/vtt");
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private RelayBandwidth bandwidth;
+
+    @Value("${thebox.relay.segments.enabled:false}")
+    private boolean enabled;
+
+    @Value("${thebox.relay.segments.cache-size:256MB}")
+    private DataSize cacheSize;
+
+    @Value("${thebox.relay.segments.max-segment-size:16MB}")
+    private DataSize maxSegmentSize;
+
+    @Value("${thebox.relay.segments.cache-ttl:60s}")
+    private Duration cacheTtl;
+
+    @Value("${thebox.relay.segments.timeout:15s}")
+    private Duration timeout;
+
+    @Value("${thebox.relay.segments.max-redirects:5}")
+    private int maxRedirects;
+
+    private SegmentCache cache;
+
+    private final Map<String, CompletableFuture<SegmentCache.Segment>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        cache = new SegmentCache(cacheSize.toBytes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCachedSegments() {
+        return cache.size();
+    }
+
+    public long getCachedBytes() {
+        return cache.usedBytes();
+    }
+
+    /**
+     * The segment at {@code url}, counted against {@code channelId}.
+     */
+    public Mono<RelayedSegment> relay(Long channelId, String url) {
+        SegmentCache.Segment cached = cache.get(url);
+        if (cached != null) {
+            bandwidth.cacheHit();
+            return Mono.just(fromCache(channelId, cached));
+        }
+
+        CompletableFuture<SegmentCache.Segment> pending = new CompletableFuture<>();
+        CompletableFuture<SegmentCache.Segment> leader = inFlight.putIfAbsent(url, pending);
+        if (leader != null) {
+            bandwidth.coalesced();
+            // A null segment means the leader could not cache it; fetch it ourselves
+            return Mono.fromFuture(leader, true)
+                    .flatMap(segment -> Mono.justOrEmpty(cache.get(url)))
+                    .map(segment -> fromCache(channelId, segment))
+                    .switchIfEmpty(Mono.defer(() -> fetchAndStream(channelId, url, null)));
+        }
+
+        // Followers give up waiting after the timeout; a leader that never starts streaming
+        // (its player went away first) must not hold up later requests either
+        pending.completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((segment, e) -> inFlight.remove(url, pending));
+        return fetchAndStream(channelId, url, pending);
+    }
+
+    /**
+     * @param pending completed with the cached copy once the body has been streamed, or null
+     *                if it was not cached; null when this request is not the leader
+     */
+    private Mono<RelayedSegment> fetchAndStream(Long channelId, String url, CompletableFuture<SegmentCache.Segment> pending) {
+        bandwidth.upstreamFetch();
+        return fetch(URI.create(url), 0)
+                .map(upstream -> streamed(channelId, url, upstream, pending))
+                .doOnError(e -> {
+                    logger.warn("Fetching segment {} failed: {}", url, e.getMessage());
+                    if (pending != null) {
+                        pending.complete(null);
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (pending != null) {
+                        pending.complete(null);
+                    }
+                });
+    }
+
+    /**
+     * Follows redirects by hand, like {@link ManifestRelay}: the shared client does not.
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> fetch(URI url, int redirects) {
+        return webClient.get()
+                .uri(url)
+                .retrieve()
+                .toEntityFlux(DataBuffer.class)
+                .timeout(timeout)
+                .flatMap(upstream -> {
+                    if (!upstream.getStatusCode().is3xxRedirection()) {
+                        return Mono.just(upstream);
+                    }
+                    upstream.getBody().subscribe(DataBufferUtils::release, e -> { });
+                    String location = upstream.getHeaders().getFirst(HttpHeaders.LOCATION);
+                    if (location == null || redirects >= maxRedirects) {
+                        return Mono.error(new IllegalStateException("Too many or malformed redirects fetching " + url));
+                    }
+                    return fetch(url.resolve(location), redirects + 1);
+                });
+    }
+
+    private RelayedSegment streamed(Long channelId, String url, ResponseEntity<Flux<DataBuffer>> upstream,
+                                    CompletableFuture<SegmentCache.Segment> pending) {
+        long contentLength = upstream.getHeaders().getContentLength();
+        String contentType = contentType(upstream.getHeaders().getContentType(), url);
+        // Whoever claims the upstream body first owns it: the writer streams it, discard cancels it.
+        // Claiming clears the reference, so the timer below holds on to nothing once it is moot
+        AtomicReference<Runnable> release = new AtomicReference<>(() -> {
+            // take(0) cancels the response right away, closing its connection
+            upstream.getBody().take(0).subscribe();
+            if (pending != null) {
+                pending.complete(null);
+            }
+        });
+        Runnable discard = () -> {
+            Runnable unclaimed = release.getAndSet(null);
+            if (unclaimed != null) {
+                unclaimed.run();
+            }
+        };
+        // Safety net for bodies nobody ever writes or discards, e.g. when the response was
+        // abandoned before its turn came
+        Schedulers.parallel().schedule(discard, timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        StreamingResponseBody body = out -> {
+            if (release.getAndSet(null) == null) {
+                throw new IOException("Segment " + url + " was discarded before it was written");
+            }
+            SegmentCopy copy = pending != null && contentLength <= maxSegmentSize.toBytes()
+                    ? new SegmentCopy(contentLength, (int) maxSegmentSize.toBytes())
+                    : null;
+            if (pending != null && copy == null) {
+                // Too large to cache; release the waiting followers right away
+                pending.complete(null);
+            }
+            byte[] scratch = new byte[CHUNK_SIZE];
+            long bytes = 0;
+            boolean complete = false;
+            // Consumed on the servlet async thread; at most PREFETCH buffers are held in between
+            try (Stream<DataBuffer> buffers = upstream.getBody()
+                    .timeout(timeout)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .toStream(PREFETCH)) {
+                Iterator<DataBuffer> iterator = buffers.iterator();
+                while (iterator.hasNext()) {
+                    DataBuffer buffer = iterator.next();
+                    try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+                        while (chunks.hasNext()) {
+                            ByteBuffer chunk = chunks.next();
+                            if (copy != null && !copy.append(chunk.duplicate())) {
+                                copy = null;
+                                pending.complete(null);
+                            }
+                            bytes += write(chunk, out, scratch);
+                        }
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                }
+                complete = true;
+            } finally {
+                bandwidth.fetched(bytes);
+                bandwidth.served(channelId, bytes);
+                SegmentCache.Segment segment = null;
+                if (complete && copy != null) {
+                    segment = new SegmentCache.Segment(copy.finish(), contentType, Instant.now().plus(cacheTtl));
+                    cache.put(url, segment);
+                }
+                if (pending != null) {
+                    pending.complete(segment);
+                }
+            }
+        };
+        return new RelayedSegment(contentType, contentLength, cacheTtl, body, discard);
+    }
+
+    private RelayedSegment fromCache(Long channelId, SegmentCache.Segment segment) {
+        Duration remaining = Duration.between(Instant.now(), segment.expiresAt());
+        StreamingResponseBody body = out -> {
+            long bytes = write(segment.data(), out, new byte[CHUNK_SIZE]);
+            bandwidth.served(channelId, bytes);
+        };
+        return new RelayedSegment(segment.contentType(), segment.size(),
+                remaining.isNegative() ? Duration.ZERO : remaining, body, () -> { });
+    }
+
+    /**
+     * Servlet streams only accept byte arrays; off-heap buffers go through a reused chunk.
+     */
+    private static long write(ByteBuffer source, OutputStream out, byte[] scratch) throws IOException {
+        int length = source.remaining();
+        if (source.hasArray()) {
+            out.write(source.array(), source.arrayOffset() + source.position(), length);
+            source.position(source.limit());
+            return length;
+        }
+        while (source.hasRemaining()) {
+            int n = Math.min(source.remaining(), scratch.length);
+            source.get(scratch, 0, n);
+            out.write(scratch, 0, n);
+        }
+        return length;
+    }
+
+    private static String contentType(MediaType upstream, String url) {
+        if (upstream != null && !MediaType.APPLICATION_OCTET_STREAM.equalsTypeAndSubtype(upstream)) {
+            return upstream.toString();
+        }
+        String path = URI.create(url).getPath();
+        int dot = path != null ? path.lastIndexOf('.') : -1;
+        String extension = dot >= 0 ? path.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return CONTENT_TYPES.getOrDefault(extension, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    }
+
+    /**
+     * Off-heap copy of a segment being streamed, sized from Content-Length when known.
+     */
+    private static final class SegmentCopy {
+
+        private final int maxSize;
+        private ByteBuffer data;
+
+        SegmentCopy(long contentLength, int maxSize) {
+            this.maxSize = maxSize;
+            this.data = ByteBuffer.allocateDirect(contentLength >= 0 ? (int) contentLength : Math.min(INITIAL_COPY_SIZE, maxSize));
+        }
+
+        /**
+         * @return false once the segment outgrows max-segment-size; it is then not cached
+         */
+        boolean append(ByteBuffer chunk) {
+            if (chunk.remaining() > data.remaining()) {
+                long needed = (long) data.position() + chunk.remaining();
+                if (needed > maxSize) {
+                    return false;
+                }
+                ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(maxSize, Math.max(needed, data.capacity() * 2L)));
+                grown.put(data.flip());
+                data = grown;
+            }
+            data.put(chunk);
+            return true;
+        }
+
+        ByteBuffer finish() {
+            return data.flip().asReadOnlyBuffer();
+        }
+    }
+}
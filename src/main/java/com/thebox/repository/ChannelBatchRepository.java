@@ -0,0 +1,134 @@
+package com.thebox.repository;
+
+import com.thebox.model.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based write path for channel refreshes. Existing rows are loaded with a single query and
+ * compared column by column, unchanged channels are skipped, and the rest are written as JDBC batches of
+ * {@code INSERT ... ON CONFLICT (channel_id) DO UPDATE}, one transaction per chunk.
+ */
+@Repository
+public class ChannelBatchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChannelBatchRepository.class);
+
+    private static final String SELECT_EXISTING_SQL =
+            "SELECT channel_id, name, stream_url, logo_url, category, language, country_code FROM channels";
+
+    // A new stream URL gets a clean health record, reactivating a channel the prober had given up on
+    private static final String UPSERT_SQL = """
+            INSERT INTO channels (channel_id, name, stream_url, logo_url, category, language, country_code, is_active, consecutive_failures, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, true, 0, ?, ?)
+            ON CONFLICT (channel_id) DO UPDATE SET
+                is_active = CASE WHEN channels.stream_url IS DISTINCT FROM EXCLUDED.stream_url THEN true ELSE channels.is_active END,
+                consecutive_failures = CASE WHEN channels.stream_url IS DISTINCT FROM EXCLUDED.stream_url THEN 0 ELSE channels.consecutive_failures END,
+                next_probe_at = CASE WHEN channels.stream_url IS DISTINCT FROM EXCLUDED.stream_url THEN NULL ELSE channels.next_probe_at END,
+                name = EXCLUDED.name,
+                stream_url = EXCLUDED.stream_url,
+                logo_url = EXCLUDED.logo_url,
+                category = EXCLUDED.category,
+                language = EXCLUDED.language,
+                country_code = EXCLUDED.country_code,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${thebox.ingest.batch-size:500}")
+    private int batchSize;
+
+    public UpsertResult upsertChannels(Collection<Channel> channels) {
+        Map<String, Columns> existing = loadExisting();
+
+        List<Channel> pending = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        int skipped = 0;
+        for (Channel channel : channels) {
+            Columns current = existing.get(channel.getChannelId());
+            if (current == null) {
+                inserted++;
+            } else if (current.equals(Columns.of(channel))) {
+                skipped++;
+                continue;
+            } else {
+                updated++;
+            }
+            pending.add(channel);
+        }
+
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Channel> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            transactionTemplate.executeWithoutResult(status -> writeChunk(chunk));
+        }
+
+        logger.debug("Channel upsert: {} inserted, {} updated, {} unchanged", inserted, updated, skipped);
+        return new UpsertResult(inserted, updated, skipped);
+    }
+
+    private void writeChunk(List<Channel> chunk) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, chunk, chunk.size(), (ps, channel) -> {
+            ps.setString(1, channel.getChannelId());
+            ps.setString(2, channel.getName());
+            ps.setString(3, channel.getStreamUrl());
+            ps.setString(4, channel.getLogoUrl());
+            ps.setString(5, channel.getCategory());
+            ps.setString(6, channel.getLanguage());
+            ps.setString(7, channel.getCountryCode());
+            ps.setTimestamp(8, now);
+            ps.setTimestamp(9, now);
+        });
+    }
+
+    private Map<String, Columns> loadExisting() {
+        Map<String, Columns> existing = new HashMap<>();
+        jdbcTemplate.query(SELECT_EXISTING_SQL, rs -> {
+            existing.put(rs.getString("channel_id"), new Columns(
+                    rs.getString("name"),
+                    rs.getString("stream_url"),
+                    rs.getString("logo_url"),
+                    rs.getString("category"),
+                    rs.getString("language"),
+                    rs.getString("country_code")));
+        });
+        return existing;
+    }
+
+    /** The upserted column values, compared as a whole so no change can slip through a hash collision. */
+    private record Columns(String name, String streamUrl, String logoUrl, String category,
+                           String language, String countryCode) {
+
+        static Columns of(Channel channel) {
+            return new Columns(
+                    channel.getName(),
+                    channel.getStreamUrl(),
+                    channel.getLogoUrl(),
+                    channel.getCategory(),
+                    channel.getLanguage(),
+                    channel.getCountryCode());
+        }
+    }
+
+    public record UpsertResult(int inserted, int updated, int skipped) {
+    }
+}
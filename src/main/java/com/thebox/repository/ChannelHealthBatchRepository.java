@@ -0,0 +1,99 @@
+package com.thebox.repository;
+
+import com.thebox.model.Channel;
+import com.thebox.model.ChannelHealthHistory;
+import com.thebox.model.StreamVariant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Write path for probe results: the health columns of each probed channel and stream variant
+ * and the history rows go out as JDBC batches in one transaction. Content columns and updated_at are left
+ * alone, so a probe never looks like a catalog change to the refresh fingerprinting.
+ */
+@Repository
+public class ChannelHealthBatchRepository {
+
+    private static final String UPDATE_HEALTH_SQL = """
+            UPDATE channels
+            SET consecutive_failures = ?, last_probed_at = ?, last_online_at = ?, next_probe_at = ?, is_active = ?
+            WHERE id = ?
+            """;
+
+    private static final String UPDATE_VARIANT_HEALTH_SQL = """
+            UPDATE stream_variants
+            SET consecutive_failures = ?, latency_ms = ?, last_probed_at = ?, last_online_at = ?
+            WHERE id = ?
+            """;
+
+    private static final String INSERT_HISTORY_SQL = """
+            INSERT INTO channel_health_history (channel_id, probed_at, outcome, http_status, ttfb_ms, total_ms)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String PRUNE_HISTORY_SQL = "DELETE FROM channel_health_history WHERE probed_at < ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public void saveProbeResults(List<Channel> channels, List<StreamVariant> variants, List<ChannelHealthHistory> history) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_HEALTH_SQL, channels, channels.size(), (ps, channel) -> {
+                ps.setInt(1, channel.getConsecutiveFailures() != null ? channel.getConsecutiveFailures() : 0);
+                ps.setTimestamp(2, timestamp(channel.getLastProbedAt()));
+                ps.setTimestamp(3, timestamp(channel.getLastOnlineAt()));
+                ps.setTimestamp(4, timestamp(channel.getNextProbeAt()));
+                ps.setBoolean(5, Boolean.TRUE.equals(channel.getIsActive()));
+                ps.setLong(6, channel.getId());
+            });
+            jdbcTemplate.batchUpdate(UPDATE_VARIANT_HEALTH_SQL, variants, variants.size(), (ps, variant) -> {
+                ps.setInt(1, variant.getConsecutiveFailures() != null ? variant.getConsecutiveFailures() : 0);
+                if (variant.getLatencyMs() != null) {
+                    ps.setInt(2, variant.getLatencyMs());
+                } else {
+                    ps.setNull(2, Types.INTEGER);
+                }
+                ps.setTimestamp(3, timestamp(variant.getLastProbedAt()));
+                ps.setTimestamp(4, timestamp(variant.getLastOnlineAt()));
+                ps.setLong(5, variant.getId());
+            });
+            jdbcTemplate.batchUpdate(INSERT_HISTORY_SQL, history, history.size(), (ps, row) -> {
+                ps.setLong(1, row.getChannelId());
+                ps.setTimestamp(2, timestamp(row.getProbedAt()));
+                ps.setShort(3, (short) row.getOutcome().ordinal());
+                if (row.getHttpStatus() != null) {
+                    ps.setShort(4, row.getHttpStatus());
+                } else {
+                    ps.setNull(4, Types.SMALLINT);
+                }
+                if (row.getTtfbMs() != null) {
+                    ps.setInt(5, row.getTtfbMs());
+                } else {
+                    ps.setNull(5, Types.INTEGER);
+                }
+                ps.setInt(6, row.getTotalMs());
+            });
+        });
+    }
+
+    /**
+     * @return number of history rows deleted
+     */
+    public int pruneHistory(LocalDateTime olderThan) {
+        return jdbcTemplate.update(PRUNE_HISTORY_SQL, timestamp(olderThan));
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.thebox.repository;
+
+import com.thebox.model.ChannelHealthHistory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChannelHealthHistoryRepository extends JpaRepository<ChannelHealthHistory, Long> {
+    
+    List<ChannelHealthHistory> findByChannelIdOrderByProbedAtDesc(Long channelId, Pageable pageable);
+}
@@ -1,11 +1,15 @@
 package com.thebox.repository;
 
+import com.thebox.dto.ChannelSummary;
 import com.thebox.model.Channel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,7 +24,11 @@ public interface ChannelRepository extends JpaRepository<Channel, Long> {
     
     List<Channel> findByLanguageContaining(String language);
     
-    @Query("SELECT c FROM Channel c WHERE c.countryCode = :countryCode AND c.isActive = true ORDER BY c.name")
+    // List order, the same as CatalogSnapshot's: live channels first (listRank 0, then 1 while the
+    // latest probes fail), then by sortName and id. Served by the V4 indexes on these columns.
+    String LIST_ORDER = "ORDER BY c.listRank, c.sortName, c.id";
+    
+    @Query("SELECT c FROM Channel c WHERE c.countryCode = :countryCode AND c.isActive = true " + LIST_ORDER)
     List<Channel> findActiveChannelsByCountry(@Param("countryCode") String countryCode);
     
     @Query("SELECT DISTINCT c.category FROM Channel c WHERE c.countryCode = :countryCode AND c.isActive = true")
@@ -33,4 +41,58 @@ public interface ChannelRepository extends JpaRepository<Channel, Long> {
     List<Channel> findByNameContainingIgnoreCase(String name);
     
     Optional<Channel> findByChannelId(String channelId);
+    
+    @Query("SELECT c FROM Channel c WHERE c.countryCode = :countryCode AND c.category = :category AND c.isActive = true "
+            + LIST_ORDER)
+    List<Channel> findActiveChannelsByCountryAndCategory(@Param("countryCode") String countryCode,
+                                                         @Param("category") String category);
+    
+    @Query("SELECT c FROM Channel c WHERE c.countryCode = :countryCode AND c.isActive = true "
+            + "AND c.streamUrl LIKE '%.m3u8%' " + LIST_ORDER)
+    List<Channel> findActiveHlsChannelsByCountry(@Param("countryCode") String countryCode);
+    
+    // Substring matches ranked by trigram similarity, served by idx_channels_name_trgm. The pattern
+    // must have LIKE wildcards escaped; country and category are optional.
+    @Query(value = "SELECT * FROM channels c WHERE c.is_active AND c.name ILIKE '%' || :pattern || '%' "
+            + "AND (CAST(:countryCode AS text) IS NULL OR c.country_code = :countryCode) "
+            + "AND (CAST(:category AS text) IS NULL OR c.category = :category) "
+            + "ORDER BY similarity(c.name, :query) DESC, c.name, c.id LIMIT :limit", nativeQuery = true)
+    List<Channel> searchActiveChannels(@Param("query") String query, @Param("pattern") String pattern,
+                                       @Param("countryCode") String countryCode, @Param("category") String category,
+                                       @Param("limit") int limit);
+    
+    // Keyset pages of active channels in list order. Only used until the first snapshot is
+    // published. The *After variants resume strictly after the last row of the previous page,
+    // given as its listRank, sortName (see Channel.sortName) and id. They are native because
+    // JPQL here cannot compare tuples, and the row comparison is what Postgres turns into an
+    // index condition, so a page costs the same wherever it starts.
+    String SUMMARY = "SELECT new com.thebox.dto.ChannelSummary(c.id, c.channelId, c.name, c.streamUrl, c.logoUrl, "
+            + "c.category, c.language, c.countryCode, c.consecutiveFailures) FROM Channel c ";
+    
+    String NATIVE_AFTER = "AND (c.list_rank, c.sort_name, c.id) > (:rank, :sortName, :id) "
+            + "ORDER BY c.list_rank, c.sort_name, c.id LIMIT :limit";
+    
+    @Query(SUMMARY + "WHERE c.countryCode = :countryCode AND c.isActive = true " + LIST_ORDER)
+    List<ChannelSummary> findActiveSummaries(@Param("countryCode") String countryCode, Limit limit);
+    
+    @Query(value = "SELECT * FROM channels c WHERE c.country_code = :countryCode AND c.is_active " + NATIVE_AFTER,
+            nativeQuery = true)
+    List<Channel> findActiveChannelsAfter(@Param("countryCode") String countryCode, @Param("rank") int rank,
+                                          @Param("sortName") String sortName, @Param("id") Long id,
+                                          @Param("limit") int limit);
+    
+    @Query(SUMMARY + "WHERE c.countryCode = :countryCode AND c.category = :category AND c.isActive = true " + LIST_ORDER)
+    List<ChannelSummary> findActiveSummariesByCategory(@Param("countryCode") String countryCode,
+                                                       @Param("category") String category, Limit limit);
+    
+    @Query(value = "SELECT * FROM channels c WHERE c.country_code = :countryCode AND c.category = :category "
+            + "AND c.is_active " + NATIVE_AFTER, nativeQuery = true)
+    List<Channel> findActiveChannelsByCategoryAfter(@Param("countryCode") String countryCode,
+                                                    @Param("category") String category, @Param("rank") int rank,
+                                                    @Param("sortName") String sortName, @Param("id") Long id,
+                                                    @Param("limit") int limit);
+    
+    // Channels never probed come first, then the most overdue
+    @Query("SELECT c FROM Channel c WHERE c.nextProbeAt IS NULL OR c.nextProbeAt <= :now ORDER BY c.nextProbeAt ASC NULLS FIRST")
+    List<Channel> findDueForProbe(@Param("now") LocalDateTime now, Pageable pageable);
 } 
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.thebox.repository;
+
+import com.thebox.dto.ChannelSummary;
+import com.thebox.dto.PageCursor;
+import com.thebox.model.Channel;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * The read queries of {@link ChannelRepository} over R2DBC, for the reactive profile. Same
+ * SQL, orderings and indexes; rows are mapped by hand since the entities are JPA-mapped.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveChannelRepository {
+
+    private static final String LIST_ORDER = "ORDER BY list_rank, sort_name, id";
+
+    private static final String SUMMARY = "SELECT id, channel_id, name, stream_url, logo_url, category, language, "
+            + "country_code, consecutive_failures FROM channels ";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<Channel> findById(Long id) {
+        return databaseClient.sql("SELECT * FROM channels WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveChannelRepository::channel)
+                .one();
+    }
+
+    public Flux<Channel> findActiveChannelsByCountry(String countryCode) {
+        return databaseClient.sql("SELECT * FROM channels WHERE country_code = :countryCode AND is_active "
+                        + LIST_ORDER)
+                .bind("countryCode", countryCode)
+                .map(ReactiveChannelRepository::channel)
+                .all();
+    }
+
+    public Flux<Channel> findActiveChannelsByCountryAndCategory(String countryCode, String category) {
+        return databaseClient.sql("SELECT * FROM channels WHERE country_code = :countryCode AND category = :category "
+                        + "AND is_active " + LIST_ORDER)
+                .bind("countryCode", countryCode)
+                .bind("category", category)
+                .map(ReactiveChannelRepository::channel)
+                .all();
+    }
+
+    public Flux<String> findCategoriesByCountry(String countryCode) {
+        return databaseClient.sql("SELECT DISTINCT category FROM channels WHERE country_code = :countryCode AND is_active")
+                .bind("countryCode", countryCode)
+                .map(row -> row.get("category", String.class))
+                .all();
+    }
+
+    /**
+     * See {@link ChannelRepository#searchActiveChannels}; the pattern must have LIKE wildcards escaped.
+     */
+    public Flux<Channel> searchActiveChannels(String query, String pattern, String countryCode, String category, int limit) {
+        String sql = "SELECT * FROM channels WHERE is_active AND name ILIKE '%' || :pattern || '%' "
+                + (countryCode != null ? "AND country_code = :countryCode " : "")
+                + (category != null ? "AND category = :category " : "")
+                + "ORDER BY similarity(name, :query) DESC, name, id LIMIT :limit";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("query", query)
+                .bind("pattern", pattern)
+                .bind("limit", limit);
+        if (countryCode != null) {
+            spec = spec.bind("countryCode", countryCode);
+        }
+        if (category != null) {
+            spec = spec.bind("category", category);
+        }
+        return spec.map(ReactiveChannelRepository::channel).all();
+    }
+
+    /**
+     * A keyset page of active channels in list order, like the {@code findActiveSummaries*}
+     * queries of {@link ChannelRepository}.
+     *
+     * @param category null for all categories
+     * @param after    null for the first page
+     */
+    public Flux<ChannelSummary> findActiveSummaries(String countryCode, String category, PageCursor after, int limit) {
+        String sql = SUMMARY + "WHERE country_code = :countryCode AND is_active "
+                + (category != null ? "AND category = :category " : "")
+                + (after != null ? "AND (list_rank, sort_name, id) > (:rank, :sortName, :id) " : "")
+                + LIST_ORDER + " LIMIT :limit";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("countryCode", countryCode)
+                .bind("limit", limit);
+        if (category != null) {
+            spec = spec.bind("category", category);
+        }
+        if (after != null) {
+            spec = spec.bind("rank", after.live() ? 0 : 1).bind("sortName", Channel.sortName(after.name())).bind("id", after.id());
+        }
+        return spec.map(row -> new ChannelSummary(row.get("id", Long.class), row.get("channel_id", String.class),
+                        row.get("name", String.class), row.get("stream_url", String.class),
+                        row.get("logo_url", String.class), row.get("category", String.class),
+                        row.get("language", String.class), row.get("country_code", String.class),
+                        row.get("consecutive_failures", Integer.class)))
+                .all();
+    }
+
+    private static Channel channel(Readable row) {
+        Channel channel = new Channel(row.get("channel_id", String.class), row.get("name", String.class),
+                row.get("stream_url", String.class), row.get("logo_url", String.class),
+                row.get("category", String.class), row.get("language", String.class),
+                row.get("country_code", String.class), row.get("epg_id", String.class));
+        channel.setId(row.get("id", Long.class));
+        channel.setIsActive(row.get("is_active", Boolean.class));
+        channel.setConsecutiveFailures(row.get("consecutive_failures", Integer.class));
+        channel.setLastProbedAt(row.get("last_probed_at", LocalDateTime.class));
+        channel.setLastOnlineAt(row.get("last_online_at", LocalDateTime.class));
+        channel.setNextProbeAt(row.get("next_probe_at", LocalDateTime.class));
+        channel.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        channel.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        return channel;
+    }
+}
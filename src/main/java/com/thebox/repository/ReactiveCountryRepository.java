@@ -0,0 +1,34 @@
+package com.thebox.repository;
+
+import com.thebox.model.Country;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+/**
+ * The read queries of {@link CountryRepository} over R2DBC, for the reactive profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveCountryRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<Country> findByIsActiveTrue() {
+        return databaseClient.sql("SELECT * FROM countries WHERE is_active")
+                .map(row -> {
+                    Country country = new Country(row.get("name", String.class), row.get("code", String.class));
+                    country.setId(row.get("id", Long.class));
+                    country.setFlagUrl(row.get("flag_url", String.class));
+                    country.setIsActive(row.get("is_active", Boolean.class));
+                    country.setCreatedAt(row.get("created_at", LocalDateTime.class));
+                    return country;
+                })
+                .all();
+    }
+}
@@ -0,0 +1,38 @@
+package com.thebox.repository;
+
+import com.thebox.model.StreamVariant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+/**
+ * The read queries of {@link StreamVariantRepository} over R2DBC, for the reactive profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveStreamVariantRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Flux<StreamVariant> findByChannelId(Long channelId) {
+        return databaseClient.sql("SELECT * FROM stream_variants WHERE channel_id = :channelId")
+                .bind("channelId", channelId)
+                .map(row -> {
+                    StreamVariant variant = new StreamVariant(row.get("url", String.class),
+                            row.get("quality", String.class), row.get("position", Integer.class));
+                    variant.setId(row.get("id", Long.class));
+                    variant.setChannelId(row.get("channel_id", Long.class));
+                    variant.setConsecutiveFailures(row.get("consecutive_failures", Integer.class));
+                    variant.setLatencyMs(row.get("latency_ms", Integer.class));
+                    variant.setLastProbedAt(row.get("last_probed_at", LocalDateTime.class));
+                    variant.setLastOnlineAt(row.get("last_online_at", LocalDateTime.class));
+                    return variant;
+                })
+                .all();
+    }
+}
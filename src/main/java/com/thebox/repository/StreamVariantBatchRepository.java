@@ -0,0 +1,122 @@
+package com.thebox.repository;
+
+import com.thebox.model.StreamVariant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based write path for stream variants during refreshes, compared per channel like
+ * {@link ChannelBatchRepository}. Only channels whose variant list changed are written: URLs
+ * no longer listed are deleted and the rest upserted, keeping the health already measured for
+ * URLs that stay. Must run after the channels themselves have been upserted.
+ */
+@Repository
+public class StreamVariantBatchRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamVariantBatchRepository.class);
+
+    private static final String SELECT_EXISTING_SQL = """
+            SELECT c.channel_id, v.url, v.quality, v.position
+            FROM stream_variants v JOIN channels c ON c.id = v.channel_id
+            ORDER BY c.channel_id, v.position
+            """;
+
+    private static final String DELETE_STALE_SQL = """
+            DELETE FROM stream_variants
+            WHERE channel_id = (SELECT id FROM channels WHERE channel_id = ?) AND url <> ALL (?)
+            """;
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO stream_variants (channel_id, url, quality, position, consecutive_failures)
+            SELECT id, ?, ?, ?, 0 FROM channels WHERE channel_id = ?
+            ON CONFLICT (channel_id, url) DO UPDATE SET
+                quality = EXCLUDED.quality,
+                position = EXCLUDED.position
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${thebox.ingest.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * @param variantsByChannel variants in upstream order, keyed by iptv-org channel id
+     * @return number of channels whose variants were rewritten
+     */
+    public int syncVariants(Map<String, List<StreamVariant>> variantsByChannel) {
+        Map<String, List<VariantColumns>> existing = loadExisting();
+
+        List<Map.Entry<String, List<StreamVariant>>> pending = new ArrayList<>();
+        for (Map.Entry<String, List<StreamVariant>> entry : variantsByChannel.entrySet()) {
+            if (!columns(entry.getValue()).equals(existing.get(entry.getKey()))) {
+                pending.add(entry);
+            }
+        }
+
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Map.Entry<String, List<StreamVariant>>> chunk = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            transactionTemplate.executeWithoutResult(status -> writeChunk(chunk));
+        }
+
+        logger.debug("Stream variants: {} of {} channels changed", pending.size(), variantsByChannel.size());
+        return pending.size();
+    }
+
+    private void writeChunk(List<Map.Entry<String, List<StreamVariant>>> chunk) {
+        jdbcTemplate.batchUpdate(DELETE_STALE_SQL, chunk, chunk.size(), (ps, entry) -> {
+            Array urls = ps.getConnection().createArrayOf("text",
+                    entry.getValue().stream().map(StreamVariant::getUrl).toArray());
+            ps.setString(1, entry.getKey());
+            ps.setArray(2, urls);
+        });
+
+        List<Map.Entry<String, StreamVariant>> rows = new ArrayList<>();
+        for (Map.Entry<String, List<StreamVariant>> entry : chunk) {
+            for (StreamVariant variant : entry.getValue()) {
+                rows.add(Map.entry(entry.getKey(), variant));
+            }
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.getValue().getUrl());
+            ps.setString(2, row.getValue().getQuality());
+            ps.setInt(3, row.getValue().getPosition());
+            ps.setString(4, row.getKey());
+        });
+    }
+
+    private Map<String, List<VariantColumns>> loadExisting() {
+        Map<String, List<VariantColumns>> existing = new HashMap<>();
+        jdbcTemplate.query(SELECT_EXISTING_SQL, rs -> {
+            existing.computeIfAbsent(rs.getString("channel_id"), key -> new ArrayList<>())
+                    .add(new VariantColumns(rs.getString("url"), rs.getString("quality"), rs.getInt("position")));
+        });
+        return existing;
+    }
+
+    private static List<VariantColumns> columns(List<StreamVariant> variants) {
+        List<VariantColumns> columns = new ArrayList<>(variants.size());
+        for (StreamVariant variant : variants) {
+            columns.add(new VariantColumns(variant.getUrl(), variant.getQuality(), variant.getPosition()));
+        }
+        return columns;
+    }
+
+    /** The upserted column values of one variant; lists of these compare exactly, in position order. */
+    private record VariantColumns(String url, String quality, int position) {
+    }
+}
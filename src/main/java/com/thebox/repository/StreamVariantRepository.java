@@ -0,0 +1,16 @@
+package com.thebox.repository;
+
+import com.thebox.model.StreamVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StreamVariantRepository extends JpaRepository<StreamVariant, Long> {
+
+    List<StreamVariant> findByChannelId(Long channelId);
+
+    List<StreamVariant> findByChannelIdIn(Collection<Long> channelIds);
+}
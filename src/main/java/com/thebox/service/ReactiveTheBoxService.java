@@ -0,0 +1,41 @@
+package com.thebox.service;
+
+import com.thebox.dto.ChannelPage;
+import com.thebox.model.Channel;
+import com.thebox.model.Country;
+import com.thebox.model.StreamVariant;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-blocking counterpart of the read side of {@link TheBoxService}, for the reactive profile.
+ * Reads come from the catalog snapshot when one is loaded and from R2DBC otherwise.
+ */
+public interface ReactiveTheBoxService {
+    boolean isCatalogLoaded();
+
+    Mono<List<Country>> getAvailableCountries();
+
+    Mono<List<String>> getCategoriesByCountry(String countryCode);
+
+    Mono<List<Channel>> getChannelsByCountry(String countryCode);
+
+    Mono<List<Channel>> getChannelsByCategory(String countryCode, String category);
+
+    Mono<List<Channel>> searchChannels(String query, String countryCode, String category, Integer limit);
+
+    Mono<ChannelPage> getChannelPage(String countryCode, String category, String cursor, Integer limit, Set<String> fields);
+
+    Mono<ChannelPage> searchChannelPage(String query, String countryCode, String category, String cursor, Integer limit, Set<String> fields);
+
+    Mono<Channel> getChannelById(Long channelId);
+
+    Mono<List<StreamVariant>> getRankedStreamVariants(Long channelId);
+
+    Mono<Map<String, Object>> checkChannelHealth(Long channelId);
+
+    Mono<String> validateHLSStream(String streamUrl);
+}
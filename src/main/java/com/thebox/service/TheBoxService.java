@@ -1,14 +1,34 @@
 package com.thebox.service;
 
+import com.thebox.catalog.M3uPlaylist;
+import com.thebox.catalog.RenderedJson;
+import com.thebox.dto.ChannelPage;
+import com.thebox.health.HealthSweep;
 import com.thebox.model.Channel;
+import com.thebox.model.ChannelHealthHistory;
+import com.thebox.relay.RelayedManifest;
+import com.thebox.relay.RelayedSegment;
 import com.thebox.model.Country;
+import com.thebox.model.StreamVariant;
+import com.thebox.refresh.RefreshJob;
+
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public interface TheBoxService {
     List<Country> getAvailableCountries();
 
+    RenderedJson getRenderedCountries();
+
+    RenderedJson getRenderedCategories(String countryCode);
+
+    RenderedJson getRenderedChannels(String countryCode);
+
+    M3uPlaylist getM3uPlaylist(String countryCode, String category);
+
     List<Channel> getChannelsByCountry(String countryCode);
 
     List<String> getCategoriesByCountry(String countryCode);
@@ -17,22 +37,60 @@ public interface TheBoxService {
 
     List<Channel> searchChannels(String query, String countryCode);
 
+    List<Channel> searchChannels(String query, String countryCode, String category, Integer limit);
+
+    ChannelPage getChannelPage(String countryCode, String category, String cursor, Integer limit, Set<String> fields);
+
+    ChannelPage searchChannelPage(String query, String countryCode, String category, String cursor, Integer limit, Set<String> fields);
+
     String getChannelStreamUrl(Long channelId);
 
+    List<StreamVariant> getRankedStreamVariants(Long channelId);
+
+    /**
+     * @param source    master playlist a variant link was written into, with its signature;
+     *                  without a valid one the variant is looked up in the channel's own URL
+     */
+    Mono<RelayedManifest> getRelayedPlaylist(Long channelId, Integer variant, String source, String signature);
+
+    Mono<RelayedSegment> getRelayedSegment(Long channelId, String segmentUrl, String signature);
+
+    Map<String, Object> getRelayStats();
+
     Channel getChannelById(Long channelId);
 
     void createRealWorkingChannels();
 
     Map<String, Object> checkChannelHealth(Long channelId);
 
+    Mono<Map<String, Object>> checkChannelHealthAsync(Long channelId);
+
 //    void refreshDDChannelsWithWorkingStreams();
 
     String validateHLSStream(String streamUrl);
 
+    Mono<String> validateHLSStreamAsync(String streamUrl);
+
     void fetchAndUpdateChannels();
 
     void fetchChannelsFromGlobalStreams();
 
+    RefreshJob startRefresh(String trigger);
+
+    RefreshJob startGlobalStreamsRefresh(String trigger);
+
+    RefreshJob getRefreshJob(String jobId);
+
+    List<RefreshJob> getRecentRefreshJobs();
+
+    HealthSweep startHealthSweep(String countryCode, String category);
+
+    HealthSweep getHealthSweep(String sweepId);
+
+    List<HealthSweep> getRecentHealthSweeps();
+
+    List<ChannelHealthHistory> getChannelHealthHistory(Long channelId, int limit);
+
     List<Channel> getChannelsFromGlobalStreams(String countryCode);
 
     void createChannelsFromGlobalStreams(String... countryCodes);
@@ -0,0 +1,214 @@
+package com.thebox.service.impl;
+
+import com.thebox.catalog.CatalogHolder;
+import com.thebox.catalog.CatalogSnapshot;
+import com.thebox.dto.ChannelPage;
+import com.thebox.dto.ChannelSummary;
+import com.thebox.dto.PageCursor;
+import com.thebox.health.ChannelPopularity;
+import com.thebox.model.Channel;
+import com.thebox.model.Country;
+import com.thebox.model.StreamVariant;
+import com.thebox.refresh.RefreshCoordinator;
+import com.thebox.repository.ReactiveChannelRepository;
+import com.thebox.repository.ReactiveCountryRepository;
+import com.thebox.repository.ReactiveStreamVariantRepository;
+import com.thebox.service.ReactiveTheBoxService;
+import com.thebox.service.TheBoxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@Profile("reactive")
+public class ReactiveTheBoxServiceImpl implements ReactiveTheBoxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveTheBoxServiceImpl.class);
+
+    @Autowired
+    private ReactiveChannelRepository channelRepository;
+
+    @Autowired
+    private ReactiveCountryRepository countryRepository;
+
+    @Autowired
+    private ReactiveStreamVariantRepository streamVariantRepository;
+
+    @Autowired
+    private CatalogHolder catalogHolder;
+
+    @Autowired
+    private RefreshCoordinator refreshCoordinator;
+
+    @Autowired
+    private ChannelPopularity channelPopularity;
+
+    // Health probes and HLS validation are WebClient calls already
+    @Autowired
+    private TheBoxService theBoxService;
+
+    @Value("${thebox.api.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${thebox.api.page.max-size:200}")
+    private int maxPageSize;
+
+    @Override
+    public boolean isCatalogLoaded() {
+        return catalogHolder.current().getVersion() > 0;
+    }
+
+    @Override
+    public Mono<List<Country>> getAvailableCountries() {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            return Mono.just(snapshot.getCountries());
+        }
+        return countryRepository.findByIsActiveTrue().collectList()
+                .doOnNext(countries -> {
+                    if (countries.isEmpty()) {
+                        logger.info("No countries found, requesting a background refresh from global sources...");
+                        refreshCoordinator.refresh("on-demand");
+                    }
+                });
+    }
+
+    @Override
+    public Mono<List<String>> getCategoriesByCountry(String countryCode) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            return Mono.just(snapshot.getCategories(countryCode));
+        }
+        return channelRepository.findCategoriesByCountry(countryCode).sort().collectList();
+    }
+
+    @Override
+    public Mono<List<Channel>> getChannelsByCountry(String countryCode) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            return Mono.just(snapshot.getActiveChannels(countryCode));
+        }
+        return channelRepository.findActiveChannelsByCountry(countryCode).collectList();
+    }
+
+    @Override
+    public Mono<List<Channel>> getChannelsByCategory(String countryCode, String category) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            return Mono.just(snapshot.getActiveChannels(countryCode, category));
+        }
+        return channelRepository.findActiveChannelsByCountryAndCategory(countryCode, category).collectList();
+    }
+
+    @Override
+    public Mono<List<Channel>> searchChannels(String query, String countryCode, String category, Integer limit) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            return Mono.just(snapshot.getSearchIndex().search(query, countryCode, category, limit != null ? limit : 0));
+        }
+        String needle = query != null ? query.trim() : "";
+        if (needle.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        String pattern = needle.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return channelRepository.searchActiveChannels(needle, pattern, countryCode, category,
+                limit != null && limit > 0 ? limit : Integer.MAX_VALUE).collectList();
+    }
+
+    @Override
+    public Mono<ChannelPage> getChannelPage(String countryCode, String category, String cursor, Integer limit, Set<String> fields) {
+        int size = pageSize(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+        if (after != null && !after.isKeyset()) {
+            return Mono.error(new IllegalArgumentException("Invalid cursor"));
+        }
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            List<ChannelSummary> channels = (after == null
+                    ? snapshot.getActiveChannelsAfter(countryCode, category, true, null, null, size + 1)
+                    : snapshot.getActiveChannelsAfter(countryCode, category, after.live(), after.name(), after.id(), size + 1))
+                    .stream()
+                    .map(ChannelSummary::of)
+                    .toList();
+            return Mono.just(ChannelPage.keyset(channels, size, fields));
+        }
+        return channelRepository.findActiveSummaries(countryCode, category, after, size + 1)
+                .collectList()
+                .map(channels -> ChannelPage.keyset(channels, size, fields));
+    }
+
+    @Override
+    public Mono<ChannelPage> searchChannelPage(String query, String countryCode, String category, String cursor, Integer limit, Set<String> fields) {
+        int size = pageSize(limit);
+        PageCursor at = cursor != null ? PageCursor.decode(cursor) : PageCursor.atOffset(0);
+        if (at.isKeyset()) {
+            return Mono.error(new IllegalArgumentException("Invalid cursor"));
+        }
+        return searchChannels(query, countryCode, category, at.offset() + size + 1)
+                .map(ranked -> {
+                    List<ChannelSummary> items = ranked.stream()
+                            .skip(at.offset())
+                            .limit(size)
+                            .map(ChannelSummary::of)
+                            .toList();
+                    boolean more = ranked.size() > at.offset() + size;
+                    return new ChannelPage(ChannelPage.select(items, fields), size,
+                            more ? PageCursor.atOffset(at.offset() + size).encode() : null);
+                });
+    }
+
+    @Override
+    public Mono<Channel> getChannelById(Long channelId) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            return Mono.justOrEmpty(snapshot.getChannel(channelId));
+        }
+        return channelRepository.findById(channelId);
+    }
+
+    @Override
+    public Mono<List<StreamVariant>> getRankedStreamVariants(Long channelId) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (snapshot.getVersion() > 0) {
+            Channel channel = snapshot.getChannel(channelId);
+            if (channel == null) {
+                return Mono.just(List.of());
+            }
+            channelPopularity.recordPlay(channelId);
+            return Mono.just(StreamVariant.ranked(channel, snapshot.getStreamVariants(channelId)));
+        }
+        return getChannelById(channelId)
+                .flatMap(channel -> {
+                    // A stream URL request is a play; popular channels get probed more often
+                    channelPopularity.recordPlay(channelId);
+                    return streamVariantRepository.findByChannelId(channelId).collectList()
+                            .map(variants -> StreamVariant.ranked(channel, variants));
+                })
+                .defaultIfEmpty(List.of());
+    }
+
+    @Override
+    public Mono<Map<String, Object>> checkChannelHealth(Long channelId) {
+        return theBoxService.checkChannelHealthAsync(channelId);
+    }
+
+    @Override
+    public Mono<String> validateHLSStream(String streamUrl) {
+        return theBoxService.validateHLSStreamAsync(streamUrl);
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+}
@@ -1,21 +1,44 @@
 package com.thebox.service.impl;
 
+import com.thebox.catalog.CatalogHolder;
+import com.thebox.catalog.CatalogSnapshot;
+import com.thebox.catalog.M3uPlaylist;
+import com.thebox.catalog.RenderedCatalog;
+import com.thebox.catalog.RenderedJson;
+import com.thebox.dto.ChannelPage;
+import com.thebox.dto.ChannelSummary;
+import com.thebox.dto.PageCursor;
+import com.thebox.health.ChannelPopularity;
+import com.thebox.health.HealthSweep;
+import com.thebox.health.HealthSweepManager;
+import com.thebox.health.ProbeResult;
+import com.thebox.health.StreamProbeEngine;
 import com.thebox.model.Channel;
+import com.thebox.model.ChannelHealthHistory;
 import com.thebox.model.Country;
+import com.thebox.model.StreamVariant;
+import com.thebox.refresh.RefreshCoordinator;
+import com.thebox.relay.ManifestRelay;
+import com.thebox.relay.RelayBandwidth;
+import com.thebox.relay.RelayedManifest;
+import com.thebox.relay.RelayedSegment;
+import com.thebox.relay.SegmentLinks;
+import com.thebox.relay.SegmentRelay;
+import com.thebox.refresh.RefreshJob;
+import com.thebox.repository.ChannelHealthHistoryRepository;
 import com.thebox.repository.ChannelRepository;
-import com.thebox.repository.CountryRepository;
 import com.thebox.service.TheBoxService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -29,29 +52,53 @@ public class TheBoxServiceImpl implements TheBoxService {
     private ChannelRepository channelRepository;
 
     @Autowired
-    private CountryRepository countryRepository;
+    private WebClient webClient;
 
     @Autowired
-    private WebClient webClient;
+    private RefreshCoordinator refreshCoordinator;
+
+    @Autowired
+    private CatalogHolder catalogHolder;
+
+    @Autowired
+    private RenderedCatalog renderedCatalog;
 
-    // Global streams JSON URL
-    private static final String GLOBAL_STREAMS_URL = "https://iptv-org.github.io/api/streams.json";
-    private static final String CHANNELS_API_URL = "https://iptv-org.github.io/api/channels.json";
-    private static final String LOGOS_API_URL = "https://iptv-org.github.io/api/logos.json";
+    @Autowired
+    private StreamProbeEngine streamProbeEngine;
+
+    @Autowired
+    private HealthSweepManager healthSweepManager;
+
+    @Autowired
+    private ChannelPopularity channelPopularity;
+
+    @Autowired
+    private ChannelHealthHistoryRepository channelHealthHistoryRepository;
+
+    @Autowired
+    private ManifestRelay manifestRelay;
+
+    @Value("${thebox.api.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${thebox.api.page.max-size:200}")
+    private int maxPageSize;
+
+    @Autowired
+    private SegmentRelay segmentRelay;
+
+    @Autowired
+    private SegmentLinks segmentLinks;
 
-    private Map<String, JsonNode> globalChannelsMetadata = new HashMap<>();
-    private Map<String, JsonNode> globalCountriesMetadata = new HashMap<>();
-    private Map<String, String> globalLogosMetadata = new HashMap<>();
+    @Autowired
+    private RelayBandwidth relayBandwidth;
 
     @Override
-    @CacheEvict(value = {"channels", "countries", "categories"}, allEntries = true)
     public void fetchAndUpdateChannels() {
         logger.info("Starting to fetch and update IPTV channels from global sources...");
 
         try {
-            fetchComprehensiveGlobalData();
-            fetchChannelsFromGlobalStreams();
-
+            refreshCoordinator.refresh("on-demand").getCompletion().join();
             logger.info("Successfully fetched and updated IPTV channels from global sources");
         } catch (Exception e) {
             logger.error("Error fetching IPTV channels from global sources: {}", e.getMessage(), e);
@@ -62,97 +109,12 @@ public class TheBoxServiceImpl implements TheBoxService {
     public void fetchComprehensiveGlobalData() {
         logger.info("Fetching comprehensive global data (channels, countries, logos)...");
         try {
-            // Fetch channels metadata
-            String channelsJson = webClient.get().uri(CHANNELS_API_URL).retrieve().bodyToMono(String.class).timeout(java.time.Duration.ofSeconds(30)).block();
-            if (channelsJson != null) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(channelsJson);
-                if (rootNode.isArray()) {
-                    for (JsonNode node : rootNode) {
-                        if (node.has("id")) {
-                            globalChannelsMetadata.put(node.get("id").asText(), node);
-                        }
-                    }
-                }
-                logger.info("Fetched {} channel metadata entries.", globalChannelsMetadata.size());
-            }
-            ClassPathResource countriesJson = new ClassPathResource("countriesInfo.json");
-
-            if (countriesJson != null) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(countriesJson.getInputStream());
-                if (rootNode.isArray()) {
-                    for (JsonNode node : rootNode) {
-                        if (node.has("code")) {
-                            globalCountriesMetadata.put(node.get("code").asText(), node);
-                            // Create country entities directly from this API
-                            createCountryFromMetadata(node);
-                        }
-                    }
-                }
-            }
-
-            // Fetch logos metadata
-            String logosJson = webClient.get().uri(LOGOS_API_URL).retrieve().bodyToMono(String.class).timeout(java.time.Duration.ofSeconds(30)).block();
-            if (logosJson != null) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode rootNode = mapper.readTree(logosJson);
-                if (rootNode.isArray()) {
-                    for (JsonNode node : rootNode) {
-                        if (node.has("channel") && node.has("url")) {
-                            // Prioritize high-quality logos if available, otherwise take the first one.
-                            String channelId = node.get("channel").asText();
-                            String logoUrl = node.get("url").asText();
-                            if (!globalLogosMetadata.containsKey(channelId) || (node.has("width") && node.get("width").asInt() > 100)) { // Example: prefer larger logos
-                                globalLogosMetadata.put(channelId, logoUrl);
-                            }
-                        }
-                    }
-                }
-                logger.info("Fetched {} logo metadata entries.", globalLogosMetadata.size());
-            }
-
+            refreshCoordinator.refreshMetadata("on-demand").getCompletion().join();
         } catch (Exception e) {
             logger.error("Error fetching comprehensive global data: {}", e.getMessage(), e);
         }
     }
 
-    private void createCountryFromMetadata(JsonNode countryNode) {
-        try {
-            String code = countryNode.get("code").asText();
-            String name = countryNode.get("name").asText();
-            String flagUrl = countryNode.has("image") ? countryNode.get("image").asText() : null;
-
-            Optional<Country> existingCountryOpt = countryRepository.findByCode(code);
-            if (existingCountryOpt.isPresent()) {
-                // Update existing country if any field changed
-                Country existingCountry = existingCountryOpt.get();
-                boolean updated = false;
-                if (!Objects.equals(existingCountry.getName(), name)) {
-                    existingCountry.setName(name);
-                    updated = true;
-                }
-                if (!Objects.equals(existingCountry.getFlagUrl(), flagUrl)) {
-                    existingCountry.setFlagUrl(flagUrl);
-                    updated = true;
-                }
-                if (updated) {
-                    countryRepository.save(existingCountry);
-                    logger.debug("Updated country: {} ({})", name, code);
-                }
-            } else {
-                // Insert new country
-                Country newCountry = new Country(name, code);
-                newCountry.setFlagUrl(flagUrl);
-                countryRepository.save(newCountry);
-                logger.debug("Created country: {} ({})", name, code);
-            }
-        } catch (Exception e) {
-            logger.error("Error creating/updating country from metadata {}: {}", countryNode, e.getMessage(), e);
-        }
-    }
-
-
     @Override
     public List<Channel> getAllChannels() {
         return channelRepository.findAll();
@@ -163,73 +125,240 @@ public class TheBoxServiceImpl implements TheBoxService {
         channelRepository.findByChannelId(channelId).ifPresent(channel -> {
             channel.setLogoUrl(logoUrl);
             channelRepository.save(channel);
+            catalogHolder.rebuild();
         });
     }
 
     @Override
     @Cacheable(value = "channels", key = "#countryCode")
     public List<Channel> getChannelsByCountry(String countryCode) {
-        List<Channel> channels = channelRepository.findActiveChannelsByCountry(countryCode);
-        if (channels.isEmpty()) {
-            logger.info("No channels found for country {}, attempting to fetch and update from global sources...", countryCode);
-            try {
-                fetchAndUpdateChannels();
-                channels = channelRepository.findActiveChannelsByCountry(countryCode);
-            } catch (Exception e) {
-                logger.error("Error fetching channels for country {}: {}", countryCode, e.getMessage());
-            }
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (!isLoaded(snapshot)) {
+            return channelRepository.findActiveChannelsByCountry(countryCode);
         }
-        return channels;
+        if (snapshot.getChannelCount() == 0) {
+            // Only an empty catalog warrants a refresh; an unknown or empty country never does
+            logger.info("Catalog is empty, requesting a background refresh from global sources...");
+            refreshCoordinator.refresh("on-demand");
+        }
+        return snapshot.getActiveChannels(countryCode);
     }
 
     @Override
     @Cacheable(value = "channels", key = "#countryCode + '_' + #category")
     public List<Channel> getChannelsByCategory(String countryCode, String category) {
-        return channelRepository.findByCountryCodeAndIsActiveTrue(countryCode)
-                .stream()
-                .filter(channel -> category.equals(channel.getCategory()))
-                .collect(Collectors.toList());
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (!isLoaded(snapshot)) {
+            return channelRepository.findActiveChannelsByCountryAndCategory(countryCode, category);
+        }
+        return snapshot.getActiveChannels(countryCode, category);
     }
 
     @Override
     @Cacheable(value = "countries")
     public List<Country> getAvailableCountries() {
-        List<Country> countries = countryRepository.findByIsActiveTrue();
+        List<Country> countries = catalogHolder.current().getCountries();
         if (countries.isEmpty()) {
-            logger.info("No countries found, attempting to fetch and update from global sources...");
-            try {
-                fetchAndUpdateChannels();
-                countries = countryRepository.findByIsActiveTrue();
-            } catch (Exception e) {
-                logger.error("Error fetching countries: {}", e.getMessage());
-            }
+            logger.info("No countries found, requesting a background refresh from global sources...");
+            refreshCoordinator.refresh("on-demand");
         }
         return countries;
     }
 
+    @Override
+    public RenderedJson getRenderedCountries() {
+        if (catalogHolder.current().getCountries().isEmpty()) {
+            logger.info("No countries found, requesting a background refresh from global sources...");
+            refreshCoordinator.refresh("on-demand");
+        }
+        return renderedCatalog.countries();
+    }
+
+    @Override
+    public RenderedJson getRenderedCategories(String countryCode) {
+        return renderedCatalog.categories(countryCode);
+    }
+
+    @Override
+    public RenderedJson getRenderedChannels(String countryCode) {
+        if (catalogHolder.current().getChannelCount() == 0) {
+            logger.info("Catalog is empty, requesting a background refresh from global sources...");
+            refreshCoordinator.refresh("on-demand");
+        }
+        return renderedCatalog.channels(countryCode);
+    }
+
+    @Override
+    public M3uPlaylist getM3uPlaylist(String countryCode, String category) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        List<Channel> channels = category == null
+                ? snapshot.getActiveChannels(countryCode)
+                : snapshot.getActiveChannels(countryCode, category);
+        return M3uPlaylist.of(snapshot, category == null ? countryCode : countryCode + "-" + category, channels);
+    }
+
     @Override
     @Cacheable(value = "categories", key = "#countryCode")
     public List<String> getCategoriesByCountry(String countryCode) {
-        return channelRepository.findCategoriesByCountry(countryCode);
+        return catalogHolder.current().getCategories(countryCode);
     }
 
     @Override
     public List<Channel> searchChannels(String query, String countryCode) {
-        return channelRepository.findByCountryCodeAndIsActiveTrue(countryCode)
-                .stream()
-                .filter(channel -> channel.getName().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+        return searchChannels(query, countryCode, null, null);
+    }
+
+    @Override
+    public List<Channel> searchChannels(String query, String countryCode, String category, Integer limit) {
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (!isLoaded(snapshot)) {
+            String needle = query != null ? query.trim() : "";
+            if (needle.isEmpty()) {
+                return List.of();
+            }
+            String pattern = needle.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            return channelRepository.searchActiveChannels(needle, pattern, countryCode, category,
+                    limit != null && limit > 0 ? limit : Integer.MAX_VALUE);
+        }
+        return snapshot.getSearchIndex()
+                .search(query, countryCode, category, limit != null ? limit : 0);
+    }
+
+    @Override
+    public ChannelPage getChannelPage(String countryCode, String category, String cursor, Integer limit, Set<String> fields) {
+        int size = pageSize(limit);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+        if (after != null && !after.isKeyset()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (isLoaded(snapshot)) {
+            // The snapshot's lists are already in list order, so a page is a binary search and a slice
+            List<ChannelSummary> channels = (after == null
+                    ? snapshot.getActiveChannelsAfter(countryCode, category, true, null, null, size + 1)
+                    : snapshot.getActiveChannelsAfter(countryCode, category, after.live(), after.name(), after.id(), size + 1))
+                    .stream()
+                    .map(ChannelSummary::of)
+                    .toList();
+            return ChannelPage.keyset(channels, size, fields);
+        }
+        Limit rows = Limit.of(size + 1);
+        int rank = after != null && !after.live() ? 1 : 0;
+        String sortName = after != null ? Channel.sortName(after.name()) : null;
+        List<ChannelSummary> channels;
+        if (after == null) {
+            channels = category == null
+                    ? channelRepository.findActiveSummaries(countryCode, rows)
+                    : channelRepository.findActiveSummariesByCategory(countryCode, category, rows);
+        } else {
+            channels = (category == null
+                    ? channelRepository.findActiveChannelsAfter(countryCode, rank, sortName, after.id(), size + 1)
+                    : channelRepository.findActiveChannelsByCategoryAfter(countryCode, category, rank, sortName, after.id(), size + 1))
+                    .stream()
+                    .map(ChannelSummary::of)
+                    .toList();
+        }
+        return ChannelPage.keyset(channels, size, fields);
+    }
+
+    @Override
+    public ChannelPage searchChannelPage(String query, String countryCode, String category, String cursor, Integer limit, Set<String> fields) {
+        int size = pageSize(limit);
+        PageCursor at = cursor != null ? PageCursor.decode(cursor) : PageCursor.atOffset(0);
+        if (at.isKeyset()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        // Ranking happens in memory: page n keeps the top (n + 1) * limit hits and skips the earlier ones
+        List<Channel> ranked = searchChannels(query, countryCode, category, at.offset() + size + 1);
+        List<ChannelSummary> items = ranked.stream()
+                .skip(at.offset())
+                .limit(size)
+                .map(ChannelSummary::of)
+                .toList();
+        boolean more = ranked.size() > at.offset() + size;
+        return new ChannelPage(ChannelPage.select(items, fields), size,
+                more ? PageCursor.atOffset(at.offset() + size).encode() : null);
+    }
+
+    /**
+     * False until the first snapshot has been published, e.g. when the database was unreachable
+     * at startup; reads then go to Postgres, which filters and orders through its indexes.
+     */
+    private static boolean isLoaded(CatalogSnapshot snapshot) {
+        return snapshot.getVersion() > 0;
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
     }
 
     @Override
     public String getChannelStreamUrl(Long channelId) {
-        Optional<Channel> channel = channelRepository.findById(channelId);
-        return channel.map(Channel::getStreamUrl).orElse(null);
+        List<StreamVariant> variants = getRankedStreamVariants(channelId);
+        return variants.isEmpty() ? null : variants.get(0).getUrl();
+    }
+
+    @Override
+    public List<StreamVariant> getRankedStreamVariants(Long channelId) {
+        Channel channel = catalogHolder.current().getChannel(channelId);
+        if (channel == null) {
+            return List.of();
+        }
+        // A stream URL request is a play; popular channels get probed more often
+        channelPopularity.recordPlay(channelId);
+        return rankedVariants(channel);
+    }
+
+    private List<StreamVariant> rankedVariants(Channel channel) {
+        return StreamVariant.ranked(channel, catalogHolder.current().getStreamVariants(channel.getId()));
+    }
+
+    @Override
+    public Mono<RelayedManifest> getRelayedPlaylist(Long channelId, Integer variant, String source, String signature) {
+        Channel channel = catalogHolder.current().getChannel(channelId);
+        if (channel == null) {
+            return Mono.empty();
+        }
+        if (variant == null) {
+            // Players load the root playlist once per tune-in; variant polls are not plays
+            channelPopularity.recordPlay(channelId);
+            return manifestRelay.rootPlaylist(rankedVariants(channel).get(0).getUrl());
+        }
+        // Variant indexes refer to the master playlist the player was given, named in the link
+        String streamUrl = segmentLinks.verifyMaster(source, signature) ? source : channel.getStreamUrl();
+        return manifestRelay.variantPlaylist(streamUrl, variant);
+    }
+
+    @Override
+    public Mono<RelayedSegment> getRelayedSegment(Long channelId, String segmentUrl, String signature) {
+        if (!segmentRelay.isEnabled() || !segmentLinks.verify(segmentUrl, signature)
+                || catalogHolder.current().getChannel(channelId) == null) {
+            return Mono.empty();
+        }
+        return segmentRelay.relay(channelId, segmentUrl);
+    }
+
+    @Override
+    public Map<String, Object> getRelayStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("segmentRelayEnabled", segmentRelay.isEnabled());
+        stats.put("bytesServed", relayBandwidth.getBytesServed());
+        stats.put("bytesFetched", relayBandwidth.getBytesFetched());
+        stats.put("upstreamFetches", relayBandwidth.getUpstreamFetches());
+        stats.put("cacheHits", relayBandwidth.getCacheHits());
+        stats.put("coalesced", relayBandwidth.getCoalesced());
+        stats.put("cachedSegments", segmentRelay.getCachedSegments());
+        stats.put("cachedBytes", segmentRelay.getCachedBytes());
+        stats.put("topChannels", relayBandwidth.getTopChannels(20));
+        return stats;
     }
 
     @Override
     public Channel getChannelById(Long channelId) {
-        return channelRepository.findById(channelId).orElse(null);
+        return catalogHolder.current().getChannel(channelId);
     }
 
     @Override
@@ -240,100 +369,99 @@ public class TheBoxServiceImpl implements TheBoxService {
 
     @Override
     public Map<String, Object> checkChannelHealth(Long channelId) {
+        return checkChannelHealthAsync(channelId).block();
+    }
+
+    @Override
+    public Mono<Map<String, Object>> checkChannelHealthAsync(Long channelId) {
         Map<String, Object> healthInfo = new HashMap<>();
 
-        try {
-            Optional<Channel> channelOpt = channelRepository.findById(channelId);
-            if (channelOpt.isEmpty()) {
-                healthInfo.put("status", "error");
-                healthInfo.put("message", "Channel not found");
-                return healthInfo;
-            }
+        Channel channel = catalogHolder.current().getChannel(channelId);
+        if (channel == null) {
+            healthInfo.put("status", "error");
+            healthInfo.put("message", "Channel not found");
+            return Mono.just(healthInfo);
+        }
 
-            Channel channel = channelOpt.get();
-            healthInfo.put("channelId", channelId);
-            healthInfo.put("channelName", channel.getName());
-            healthInfo.put("streamUrl", channel.getStreamUrl());
-            healthInfo.put("countryCode", channel.getCountryCode());
-            healthInfo.put("timestamp", System.currentTimeMillis());
-
-            // Check stream availability
-            try {
-                String response = webClient.get()
-                        .uri(channel.getStreamUrl())
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .timeout(java.time.Duration.ofSeconds(10))
-                        .block();
-
-                if (response != null && response.contains(".m3u8")) {
-                    healthInfo.put("streamStatus", "online");
-                    healthInfo.put("streamResponse", "HLS stream appears to be working");
-                    healthInfo.put("streamType", "HLS (.m3u8)");
-                } else if (response != null && (response.contains(".m3u") || response.contains("#EXTM3U"))) {
-                    healthInfo.put("streamStatus", "warning");
-                    healthInfo.put("streamResponse", "Non-HLS stream detected. Only .m3u8 streams are supported.");
-                    healthInfo.put("streamType", "Playlist (.m3u) - Not Supported");
-                } else {
-                    healthInfo.put("streamStatus", "offline");
-                    healthInfo.put("streamResponse", "Stream may be offline or invalid");
-                    healthInfo.put("streamType", "Unknown");
-                }
-            } catch (Exception e) {
-                healthInfo.put("streamStatus", "error");
-                healthInfo.put("streamResponse", "Error checking stream: " + e.getMessage());
-                healthInfo.put("streamType", "Error");
-            }
+        healthInfo.put("channelId", channelId);
+        healthInfo.put("channelName", channel.getName());
+        healthInfo.put("streamUrl", channel.getStreamUrl());
+        healthInfo.put("countryCode", channel.getCountryCode());
+        healthInfo.put("timestamp", System.currentTimeMillis());
+
+        // Check stream availability; the probe reads only the head of the playlist
+        return streamProbeEngine.probe(channel)
+                .map(probe -> {
+                    healthInfo.put("httpStatus", probe.httpStatus());
+                    healthInfo.put("ttfbMs", probe.ttfbMs());
+                    healthInfo.put("latencyMs", probe.totalMs());
+
+                    switch (probe.outcome()) {
+                        case ONLINE -> {
+                            healthInfo.put("streamStatus", "online");
+                            healthInfo.put("streamResponse", "HLS stream appears to be working");
+                            healthInfo.put("streamType", "HLS (.m3u8)");
+                        }
+                        case INVALID, HTTP_ERROR -> {
+                            healthInfo.put("streamStatus", "offline");
+                            healthInfo.put("streamResponse", "Stream may be offline or invalid");
+                            healthInfo.put("streamType", "Unknown");
+                        }
+                        default -> {
+                            healthInfo.put("streamStatus", "error");
+                            healthInfo.put("streamResponse", "Error checking stream: " + probe.error());
+                            healthInfo.put("streamType", "Error");
+                        }
+                    }
 
-            healthInfo.put("status", "success");
+                    healthInfo.put("status", "success");
+                    return healthInfo;
+                })
+                .onErrorResume(e -> {
+                    healthInfo.put("status", "error");
+                    healthInfo.put("message", "Error checking channel health: " + e.getMessage());
+                    logger.error("Error checking channel health for ID {}: {}", channelId, e.getMessage(), e);
+                    return Mono.just(healthInfo);
+                });
+    }
 
+    @Override
+    public String validateHLSStream(String streamUrl) {
+        try {
+            return validateHLSStreamAsync(streamUrl).block();
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            healthInfo.put("status", "error");
-            healthInfo.put("message", "Error checking channel health: " + e.getMessage());
-            logger.error("Error checking channel health for ID {}: {}", channelId, e.getMessage(), e);
+            throw new RuntimeException("HLS stream validation failed: " + e.getMessage(), e);
         }
-
-        return healthInfo;
     }
 
-//    @Override
-//    public void refreshDDChannelsWithWorkingStreams() {
-//        logger.info("Refreshing DD channels by triggering a full channel update from global streams...");
-//        fetchAndUpdateChannels();
-//    }
-
     @Override
-    public String validateHLSStream(String streamUrl) {
+    public Mono<String> validateHLSStreamAsync(String streamUrl) {
         logger.info("Validating HLS stream: {}", streamUrl);
 
         if (!streamUrl.contains(".m3u8")) {
-            throw new IllegalArgumentException("URL is not an HLS stream. Only .m3u8 files are supported.");
+            return Mono.error(new IllegalArgumentException("URL is not an HLS stream. Only .m3u8 files are supported."));
         }
 
-        try {
-            String response = webClient.get()
-                        .uri(streamUrl)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .timeout(java.time.Duration.ofSeconds(10))
-                        .block();
-
-                if (response == null || response.trim().isEmpty()) {
-                    throw new RuntimeException("HLS stream returned empty content");
-                }
-
-                // Validate that it's actually an HLS stream
-                if (!response.contains("#EXTM3U") && !response.contains(".m3u8")) {
-                    throw new RuntimeException("Content does not appear to be a valid HLS stream");
-                }
-
-                logger.info("HLS stream validation successful for: {}", streamUrl);
-                return response;
-
-            } catch (Exception e) {
-                logger.error("HLS stream validation failed for {}: {}", streamUrl, e.getMessage());
-                throw new RuntimeException("HLS stream validation failed: " + e.getMessage(), e);
-            }
+        return webClient.get()
+                .uri(streamUrl)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(java.time.Duration.ofSeconds(10))
+                .defaultIfEmpty("")
+                .<String>handle((response, sink) -> {
+                    if (response.trim().isEmpty()) {
+                        sink.error(new RuntimeException("HLS stream returned empty content"));
+                    } else if (!response.contains("#EXTM3U") && !response.contains(".m3u8")) {
+                        // Validate that it's actually an HLS stream
+                        sink.error(new RuntimeException("Content does not appear to be a valid HLS stream"));
+                    } else {
+                        logger.info("HLS stream validation successful for: {}", streamUrl);
+                        sink.next(response);
+                    }
+                })
+                .doOnError(e -> logger.error("HLS stream validation failed for {}: {}", streamUrl, e.getMessage()));
     }
 
     @Override
@@ -341,27 +469,59 @@ public class TheBoxServiceImpl implements TheBoxService {
         logger.info("Fetching channels from global IPTV streams JSON...");
 
         try {
-            String jsonContent = webClient.get()
-                    .uri(GLOBAL_STREAMS_URL)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(java.time.Duration.ofSeconds(30))
-                    .block();
-
-            if (jsonContent != null && !jsonContent.trim().isEmpty()) {
-                logger.info("Received global streams JSON: {} characters", jsonContent.length());
-                parseStreamsJson(jsonContent);
-            } else {
-                logger.warn("Received empty or null global streams JSON");
-            }
+            refreshCoordinator.refreshStreams("on-demand").getCompletion().join();
         } catch (Exception e) {
             logger.error("Error fetching global streams JSON: {}", e.getMessage(), e);
         }
     }
 
+    @Override
+    public RefreshJob startRefresh(String trigger) {
+        return refreshCoordinator.refresh(trigger);
+    }
+
+    @Override
+    public RefreshJob startGlobalStreamsRefresh(String trigger) {
+        return refreshCoordinator.refreshStreams(trigger);
+    }
+
+    @Override
+    public RefreshJob getRefreshJob(String jobId) {
+        return refreshCoordinator.getJob(jobId);
+    }
+
+    @Override
+    public List<RefreshJob> getRecentRefreshJobs() {
+        return refreshCoordinator.getRecentJobs();
+    }
+
+    @Override
+    public HealthSweep startHealthSweep(String countryCode, String category) {
+        return healthSweepManager.startSweep(countryCode, category);
+    }
+
+    @Override
+    public HealthSweep getHealthSweep(String sweepId) {
+        return healthSweepManager.getSweep(sweepId);
+    }
+
+    @Override
+    public List<HealthSweep> getRecentHealthSweeps() {
+        return healthSweepManager.getRecentSweeps();
+    }
+
+    @Override
+    public List<ChannelHealthHistory> getChannelHealthHistory(Long channelId, int limit) {
+        return channelHealthHistoryRepository.findByChannelIdOrderByProbedAtDesc(channelId, PageRequest.of(0, limit));
+    }
+
     @Override
     public List<Channel> getChannelsFromGlobalStreams(String countryCode) {
-        return channelRepository.findByCountryCodeAndIsActiveTrue(countryCode)
+        CatalogSnapshot snapshot = catalogHolder.current();
+        if (!isLoaded(snapshot)) {
+            return channelRepository.findActiveHlsChannelsByCountry(countryCode);
+        }
+        return snapshot.getActiveChannels(countryCode)
                 .stream()
                 .filter(channel -> channel.getStreamUrl().contains(".m3u8"))
                 .collect(Collectors.toList());
@@ -380,82 +540,4 @@ public class TheBoxServiceImpl implements TheBoxService {
             logger.info("Found {} global channels for country {}", globalChannels.size(), countryCode);
         }
     }
-
-    private void parseStreamsJson(String jsonContent) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(jsonContent);
-
-            if (rootNode.isArray()) {
-                int channelCount = 0;
-                int hlsChannelCount = 0;
-                Set<String> countries = new HashSet<>();
-
-                for (JsonNode streamNode : rootNode) {
-                    try {
-                        String streamChannelId = streamNode.has("channel") ? streamNode.get("channel").asText() : null;
-                        String url = streamNode.has("url") ? streamNode.get("url").asText() : null;
-                        String quality = streamNode.has("quality") ? streamNode.get("quality").asText() : null;
-
-                        // Only process HLS streams (.m3u8) and if channel metadata is available
-                        if (url != null && url.contains(".m3u8") && streamChannelId != null && globalChannelsMetadata.containsKey(streamChannelId)) {
-                            JsonNode channelMetadata = globalChannelsMetadata.get(streamChannelId);
-                            String channelName = channelMetadata.has("name") ? channelMetadata.get("name").asText() : streamChannelId;
-                            String countryCode = channelMetadata.has("country") ? channelMetadata.get("country").asText() : "US"; // Default to US if not found
-                            String category = channelMetadata.has("categories") && channelMetadata.get("categories").isArray() && channelMetadata.get("categories").size() > 0 ? channelMetadata.get("categories").get(0).asText() : "Global Stream";
-                            String language = channelMetadata.has("languages") && channelMetadata.get("languages").isArray() && channelMetadata.get("languages").size() > 0 ? channelMetadata.get("languages").get(0).asText() : "en"; // Default to English
-                            String logoUrl = globalLogosMetadata.getOrDefault(streamChannelId, null);
-
-                            // Create or update channel
-                            saveGlobalStreamChannel(streamChannelId, channelName, url, logoUrl, category, language, countryCode, quality);
-                            countries.add(countryCode);
-                            hlsChannelCount++;
-                        }
-                        channelCount++;
-                    } catch (Exception e) {
-                        logger.debug("Error parsing stream node: {}", e.getMessage());
-                    }
-                }
-
-                // Countries are now created directly from countries.json in fetchComprehensiveGlobalData
-                // So, no need to call createCountriesFromCodes here.
-
-                logger.info("Parsed {} total streams, created {} HLS channels for {} countries",
-                           channelCount, hlsChannelCount, countries.size());
-            }
-        } catch (Exception e) {
-            logger.error("Error parsing global streams JSON: {}", e.getMessage(), e);
-        }
-    }
-
-    private void saveGlobalStreamChannel(String channelId, String name, String url, String logoUrl, String category, String language, String countryCode, String quality) {
-        try {
-            // Check if channel already exists using the new channelId
-            Optional<Channel> existingChannel = channelRepository.findByChannelId(channelId);
-
-            if (existingChannel.isPresent()) {
-                // Update existing channel
-                Channel channel = existingChannel.get();
-                channel.setName(name);
-                channel.setStreamUrl(url);
-                channel.setLogoUrl(logoUrl);
-                channel.setCategory(category);
-                channel.setLanguage(language);
-                channel.setCountryCode(countryCode);
-                channel.setUpdatedAt(java.time.LocalDateTime.now());
-                channelRepository.save(channel);
-            } else {
-                // Create new channel
-                Channel channel = new Channel(channelId, name, url, logoUrl, category, language, countryCode, null); // EPG ID not available from this JSON
-                channelRepository.save(channel);
-            }
-        } catch (Exception e) {
-            logger.error("Error saving global stream channel {}: {}", name, e.getMessage(), e);
-        }
-    }
-
-    private String findWorkingStreamFromGlobal(String channelName) {
-        // This method is now effectively deprecated as we're fetching all streams from global JSON
-        return null;
-    }
 } 
\ No newline at end of file
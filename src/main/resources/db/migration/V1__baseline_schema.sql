@@ -0,0 +1,30 @@
+-- Schema as Hibernate (ddl-auto: update) created it before the migrations existed: countries and
+-- channels only. Databases that already have these tables are baselined at this version and
+-- start from V2; anything added later goes in a later migration.
+
+CREATE TABLE countries (
+    id         BIGSERIAL PRIMARY KEY,
+    name       VARCHAR(255) NOT NULL,
+    code       VARCHAR(255) NOT NULL,
+    flag_url   VARCHAR(255),
+    is_active  BOOLEAN,
+    created_at TIMESTAMP,
+    CONSTRAINT uk_countries_name UNIQUE (name),
+    CONSTRAINT uk_countries_code UNIQUE (code)
+);
+
+CREATE TABLE channels (
+    id           BIGSERIAL PRIMARY KEY,
+    channel_id   VARCHAR(255)  NOT NULL,
+    name         VARCHAR(255)  NOT NULL,
+    stream_url   VARCHAR(1000) NOT NULL,
+    logo_url     VARCHAR(1000),
+    category     VARCHAR(255),
+    language     VARCHAR(255),
+    country_code VARCHAR(255)  NOT NULL,
+    epg_id       VARCHAR(255),
+    is_active    BOOLEAN,
+    created_at   TIMESTAMP,
+    updated_at   TIMESTAMP,
+    CONSTRAINT uk_channels_channel_id UNIQUE (channel_id)
+);
@@ -0,0 +1,13 @@
+-- Indexes for the channel list, category and search queries in ChannelRepository.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Country listings and keyset pages filter on (country_code, is_active) and order by (name, id);
+-- this supersedes idx_channels_country_name_id
+CREATE INDEX idx_channels_country_active_name ON channels (country_code, is_active, name, id);
+DROP INDEX IF EXISTS idx_channels_country_name_id;
+
+CREATE INDEX idx_channels_country_category ON channels (country_code, category);
+
+-- Substring and similarity search on names (ILIKE '%...%', similarity())
+CREATE INDEX idx_channels_name_trgm ON channels USING gin (name gin_trgm_ops);
@@ -0,0 +1,35 @@
+-- Probe health, stream variants and health history. Databases baselined at V1 may already have
+-- some of these from Hibernate's ddl-auto, so every statement is a no-op for what exists.
+
+ALTER TABLE channels
+    ADD COLUMN IF NOT EXISTS consecutive_failures INTEGER,
+    ADD COLUMN IF NOT EXISTS last_probed_at       TIMESTAMP,
+    ADD COLUMN IF NOT EXISTS last_online_at       TIMESTAMP,
+    ADD COLUMN IF NOT EXISTS next_probe_at        TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_channels_next_probe_at ON channels (next_probe_at);
+
+CREATE TABLE IF NOT EXISTS stream_variants (
+    id                   BIGSERIAL PRIMARY KEY,
+    channel_id           BIGINT        NOT NULL,
+    url                  VARCHAR(1000) NOT NULL,
+    quality              VARCHAR(255),
+    position             INTEGER       NOT NULL,
+    consecutive_failures INTEGER,
+    latency_ms           INTEGER,
+    last_probed_at       TIMESTAMP,
+    last_online_at       TIMESTAMP,
+    CONSTRAINT uk_stream_variants_channel_url UNIQUE (channel_id, url)
+);
+
+CREATE TABLE IF NOT EXISTS channel_health_history (
+    id          BIGSERIAL PRIMARY KEY,
+    channel_id  BIGINT    NOT NULL,
+    probed_at   TIMESTAMP NOT NULL,
+    outcome     SMALLINT  NOT NULL CHECK (outcome BETWEEN 0 AND 4),
+    http_status SMALLINT,
+    ttfb_ms     INTEGER,
+    total_ms    INTEGER
+);
+
+CREATE INDEX IF NOT EXISTS idx_health_history_channel_probed ON channel_health_history (channel_id, probed_at);
@@ -0,0 +1,20 @@
+-- Channel lists are ordered live first, then by name ignoring case, then by id; the catalog
+-- snapshot sorts the same way in memory. Both sort keys are stored so the order is an index scan
+-- and keyset pages resume with a row comparison on the same index.
+--
+-- list_rank is 0 for a live channel and 1 while its latest probes fail. sort_name folds ASCII
+-- letters only and compares bytewise (collation "C"), which Java reproduces exactly; the
+-- database's own collation would order differently from the snapshot and vary by locale.
+
+ALTER TABLE channels
+    ADD COLUMN list_rank INTEGER
+        GENERATED ALWAYS AS (CASE WHEN COALESCE(consecutive_failures, 0) = 0 THEN 0 ELSE 1 END) STORED,
+    ADD COLUMN sort_name VARCHAR(255) COLLATE "C"
+        GENERATED ALWAYS AS (lower(name COLLATE "C")) STORED;
+
+CREATE INDEX idx_channels_country_active_order ON channels (country_code, is_active, list_rank, sort_name, id);
+DROP INDEX IF EXISTS idx_channels_country_active_name;
+
+CREATE INDEX idx_channels_country_category_order
+    ON channels (country_code, category, is_active, list_rank, sort_name, id);
+DROP INDEX IF EXISTS idx_channels_country_category;
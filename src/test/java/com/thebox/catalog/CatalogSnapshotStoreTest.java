@@ -0,0 +1,108 @@
+package com.thebox.catalog;
+
+import com.thebox.model.Channel;
+import com.thebox.model.Country;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CatalogSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final CatalogSnapshotStore store = new CatalogSnapshotStore();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "path", dir.resolve("catalog.snapshot"));
+    }
+
+    @Test
+    void restoredSnapshotServesTheSameListsAndSearch() {
+        CatalogSnapshot saved = CatalogSnapshot.build(1, countries(), channels(), List.of());
+        Instant refreshedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        store.save(saved, refreshedAt);
+
+        CatalogSnapshotStore.Stored stored = store.load();
+        assertNotNull(stored);
+        assertEquals(refreshedAt, stored.refreshedAt());
+        CatalogSnapshot restored = CatalogSnapshot.restore(2, stored.builtAt(), stored.countries(), stored.channels());
+
+        assertEquals(saved.getChannelCount(), restored.getChannelCount());
+        for (String country : List.of("DE", "FR", "UK")) {
+            assertEquals(ids(saved.getActiveChannels(country)), ids(restored.getActiveChannels(country)));
+            assertEquals(saved.getCategories(country), restored.getCategories(country));
+            assertEquals(ids(saved.getActiveChannels(country, "news")), ids(restored.getActiveChannels(country, "news")));
+        }
+        assertEquals(ids(saved.getSearchIndex().search("sport", null, null, 0)),
+                ids(restored.getSearchIndex().search("sport", null, null, 0)));
+
+        Channel inactive = restored.getChannelByChannelId("ch17.uk");
+        assertEquals(Boolean.FALSE, inactive.getIsActive());
+        assertEquals(saved.getChannelByChannelId("ch17.uk").getCreatedAt(), inactive.getCreatedAt());
+    }
+
+    @Test
+    void missingOrCorruptFileIsAbsent() throws IOException {
+        assertNull(store.load());
+
+        store.save(CatalogSnapshot.build(1, countries(), channels(), List.of()), Instant.now());
+        Path file = dir.resolve("catalog.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertNull(store.load());
+    }
+
+    private static List<Country> countries() {
+        List<Country> countries = new ArrayList<>();
+        for (String code : List.of("DE", "FR", "UK")) {
+            Country country = new Country();
+            country.setId((long) countries.size() + 1);
+            country.setCode(code);
+            country.setName("Country " + code);
+            country.setIsActive(true);
+            countries.add(country);
+        }
+        return countries;
+    }
+
+    private static List<Channel> channels() {
+        String[] countries = {"DE", "FR", "UK"};
+        String[] categories = {"news", "sports", "music"};
+        String[] names = {"Sport One", "news 24", "Arte", "ábc", "Zeta", "sport two", "Music Box"};
+        List<Channel> channels = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String country = countries[i % countries.length];
+            Channel channel = new Channel("ch" + i + "." + country.toLowerCase(), names[i % names.length] + " " + i,
+                    "http://stream.example/" + i + ".m3u8", null, categories[i / 3 % categories.length], "eng", country, null);
+            channel.setId((long) i + 1);
+            channel.setIsActive(i % 17 != 0);
+            channel.setConsecutiveFailures(i % 5 == 0 ? 2 : 0);
+            channel.setCreatedAt(LocalDateTime.of(2026, 1, 1, 12, 0).plusSeconds(i));
+            channels.add(channel);
+        }
+        return channels;
+    }
+
+    private static List<Long> ids(List<Channel> channels) {
+        return channels.stream().map(Channel::getId).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.thebox.catalog;
+
+import com.thebox.model.Channel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CatalogSnapshotTest {
+
+    @Test
+    void sortNamesOrderLikePostgresCollationC() {
+        Map<Integer, String> names = new LinkedHashMap<>();
+        names.put(1, "abc");
+        names.put(2, "ABD");
+        names.put(3, "Abc");
+        names.put(4, "Ábc");
+        names.put(5, "abc ");
+        names.put(6, "ab");
+        names.put(7, "Zeta");
+        names.put(8, "éclair");
+        names.put(9, "Eclair");
+        names.put(10, "_x");
+        names.put(11, "[x");
+        names.put(12, "\uD83D\uDE00 TV");
+        names.put(13, "\uFFFC TV");
+        names.put(14, "Ωmega");
+        names.put(15, "ωmega");
+        names.put(16, "a b");
+        names.put(17, "a-b");
+        names.put(18, "10 TV");
+        names.put(19, "9 TV");
+
+        List<Integer> ordered = names.keySet().stream()
+                .sorted(Comparator.<Integer, String>comparing(names::get, CatalogSnapshot::compareSortNames)
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+
+        // SELECT id FROM t ORDER BY lower(name COLLATE "C"), id on PostgreSQL 14
+        assertEquals(List.of(18, 19, 11, 10, 16, 17, 6, 1, 3, 5, 2, 9, 7, 4, 8, 14, 15, 13, 12), ordered);
+    }
+
+    @Test
+    void sortNameFoldsAsciiOnly() {
+        assertEquals("abc tv", Channel.sortName("ABC TV"));
+        assertEquals("Ábc ωmega", Channel.sortName("Ábc ωmega"));
+        assertEquals("already lower", Channel.sortName("already lower"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.thebox.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ControllerSupportTest {
+
+    @Test
+    void rankedParameterAlwaysWins() {
+        assertTrue(ControllerSupport.wantsRankedStream(true, null));
+        assertTrue(ControllerSupport.wantsRankedStream(true, "text/plain"));
+    }
+
+    @Test
+    void plainTextWithoutPreference() {
+        assertFalse(ControllerSupport.wantsRankedStream(false, null));
+        assertFalse(ControllerSupport.wantsRankedStream(false, "*/*"));
+        assertFalse(ControllerSupport.wantsRankedStream(false, "text/plain"));
+        assertFalse(ControllerSupport.wantsRankedStream(false, "not a media type"));
+    }
+
+    @Test
+    void axiosDefaultAcceptGetsPlainText() {
+        assertFalse(ControllerSupport.wantsRankedStream(false, "application/json, text/plain, */*"));
+    }
+
+    @Test
+    void jsonStrictlyPreferred() {
+        assertTrue(ControllerSupport.wantsRankedStream(false, "application/json"));
+        assertTrue(ControllerSupport.wantsRankedStream(false, "application/json, */*;q=0.8"));
+        assertTrue(ControllerSupport.wantsRankedStream(false, "application/json, text/plain;q=0.5"));
+        assertTrue(ControllerSupport.wantsRankedStream(false, "application/*, text/*;q=0.9"));
+    }
+
+    @Test
+    void jsonNotPreferred() {
+        assertFalse(ControllerSupport.wantsRankedStream(false, "application/json;q=0.5, text/plain"));
+        assertFalse(ControllerSupport.wantsRankedStream(false, "text/*, application/json;q=0.9"));
+    }
+}
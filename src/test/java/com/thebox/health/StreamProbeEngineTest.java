@@ -0,0 +1,236 @@
+package com.thebox.health;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamProbeEngineTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(500);
+    private static final int MAX_BYTES = 64;
+
+    private HttpServer upstream;
+    private ExecutorService upstreamThreads;
+    private int port;
+    private StreamProbeEngine engine;
+
+    // Requests in flight and the most seen at once, per Host header
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> peak = new ConcurrentHashMap<>();
+    private final AtomicInteger streamedBytes = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress(0), 128);
+        upstream.createContext("/playlist.m3u8", exchange -> respond(exchange, 200, "#EXTM3U\n#EXT-X-VERSION:3\n"));
+        upstream.createContext("/bom.m3u8", exchange -> respond(exchange, 200, "\uFEFF \r\n#EXTM3U\n"));
+        upstream.createContext("/page.html", exchange -> respond(exchange, 200, "<html><body>Not a playlist</body></html>"));
+        upstream.createContext("/empty.m3u8", exchange -> respond(exchange, 200, ""));
+        upstream.createContext("/missing.m3u8", exchange -> respond(exchange, 404, "Not found"));
+        upstream.createContext("/slow-headers.m3u8", exchange -> {
+            sleep(TIMEOUT.toMillis() * 4);
+            respond(exchange, 200, "#EXTM3U\n");
+        });
+        upstream.createContext("/slow-body.m3u8", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("#EXT".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                sleep(TIMEOUT.toMillis() * 4);
+            } catch (IOException e) {
+                // The probe gave up first
+            }
+        });
+        upstream.createContext("/endless.m3u8", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            byte[] chunk = new byte[8192];
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("#EXTM3U\n".getBytes(StandardCharsets.US_ASCII));
+                // Far more than the probe reads; stops once the probe hangs up
+                for (int i = 0; i < 64 * 1024; i++) {
+                    out.write(chunk);
+                    streamedBytes.addAndGet(chunk.length);
+                }
+            } catch (IOException e) {
+                // The probe hung up after its first bytes
+            }
+        });
+        upstream.createContext("/held.m3u8", exchange -> {
+            String host = exchange.getRequestHeaders().getFirst("Host").replaceFirst(":\\d+$", "");
+            int now = inFlight.computeIfAbsent(host, key -> new AtomicInteger()).incrementAndGet();
+            peak.computeIfAbsent(host, key -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+            sleep(150);
+            inFlight.get(host).decrementAndGet();
+            respond(exchange, 200, "#EXTM3U\n");
+        });
+        upstreamThreads = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamThreads);
+        upstream.start();
+        port = upstream.getAddress().getPort();
+
+        engine = new StreamProbeEngine();
+        ReflectionTestUtils.setField(engine, "webClient", WebClient.create());
+        ReflectionTestUtils.setField(engine, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(engine, "concurrency", 16);
+        ReflectionTestUtils.setField(engine, "perHostConcurrency", 2);
+        ReflectionTestUtils.setField(engine, "timeout", TIMEOUT);
+        ReflectionTestUtils.setField(engine, "maxBytes", MAX_BYTES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.stop(0);
+        upstreamThreads.shutdownNow();
+    }
+
+    @Test
+    void playlistIsOnline() {
+        ProbeResult result = probe(url("127.0.0.1", "/playlist.m3u8"));
+
+        assertEquals(ProbeResult.Outcome.ONLINE, result.outcome());
+        assertEquals(200, result.httpStatus());
+        assertEquals("127.0.0.1", result.host());
+        assertTrue(result.ttfbMs() >= 0);
+        assertTrue(result.isOnline());
+    }
+
+    @Test
+    void byteOrderMarkAndLeadingWhitespaceAreSkipped() {
+        assertEquals(ProbeResult.Outcome.ONLINE, probe(url("127.0.0.1", "/bom.m3u8")).outcome());
+    }
+
+    @Test
+    void otherBodiesAreInvalid() {
+        assertEquals(ProbeResult.Outcome.INVALID, probe(url("127.0.0.1", "/page.html")).outcome());
+        assertEquals(ProbeResult.Outcome.INVALID, probe(url("127.0.0.1", "/empty.m3u8")).outcome());
+    }
+
+    @Test
+    void errorStatusIsHttpError() {
+        ProbeResult result = probe(url("127.0.0.1", "/missing.m3u8"));
+
+        assertEquals(ProbeResult.Outcome.HTTP_ERROR, result.outcome());
+        assertEquals(404, result.httpStatus());
+        assertEquals(0, result.bytesRead());
+    }
+
+    @Test
+    void noHeadersInTimeIsTimeout() {
+        ProbeResult result = probe(url("127.0.0.1", "/slow-headers.m3u8"));
+
+        assertEquals(ProbeResult.Outcome.TIMEOUT, result.outcome());
+        assertEquals(-1, result.ttfbMs());
+        assertTrue(result.totalMs() < TIMEOUT.toMillis() * 3, "took " + result.totalMs() + " ms");
+    }
+
+    @Test
+    void stalledBodyIsTimeout() {
+        ProbeResult result = probe(url("127.0.0.1", "/slow-body.m3u8"));
+
+        assertEquals(ProbeResult.Outcome.TIMEOUT, result.outcome());
+        assertTrue(result.ttfbMs() >= 0);
+    }
+
+    @Test
+    void readingStopsAtMaxBytes() {
+        ProbeResult result = probe(url("127.0.0.1", "/endless.m3u8"));
+
+        assertEquals(ProbeResult.Outcome.ONLINE, result.outcome());
+        assertEquals(MAX_BYTES, result.bytesRead());
+        assertTrue(streamedBytes.get() < 64 * 1024 * 8192, "the whole body was sent");
+    }
+
+    @Test
+    void refusedConnectionIsUnreachable() throws IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        ProbeResult result = probe("http://127.0.0.1:" + closedPort + "/playlist.m3u8");
+
+        assertEquals(ProbeResult.Outcome.UNREACHABLE, result.outcome());
+        assertNotNull(result.error());
+    }
+
+    @Test
+    void malformedUrlIsUnreachableWithoutFailingTheSweep() {
+        List<ProbeResult> results = engine.probeTargets(List.of(
+                        new ProbeTarget(1L, "http://bad host/live.m3u8"),
+                        new ProbeTarget(2L, url("127.0.0.1", "/playlist.m3u8"))))
+                .collectList()
+                .block();
+
+        assertNotNull(results);
+        assertEquals(2, results.size());
+        ProbeResult malformed = results.stream().filter(r -> r.channelId() == 1L).findFirst().orElseThrow();
+        assertEquals(ProbeResult.Outcome.UNREACHABLE, malformed.outcome());
+        assertEquals("", malformed.host());
+        assertNotNull(malformed.error());
+        ProbeResult valid = results.stream().filter(r -> r.channelId() == 2L).findFirst().orElseThrow();
+        assertEquals(ProbeResult.Outcome.ONLINE, valid.outcome());
+    }
+
+    @Test
+    void concurrencyIsCappedPerHost() {
+        // Two host names for the same stub, six targets each
+        List<ProbeTarget> targets = IntStream.range(0, 12)
+                .mapToObj(i -> new ProbeTarget((long) i, url(i % 2 == 0 ? "127.0.0.1" : "localhost", "/held.m3u8?n=" + i)))
+                .toList();
+
+        List<ProbeResult> results = engine.probeTargets(targets).collectList().block();
+
+        assertNotNull(results);
+        assertEquals(12, results.size());
+        assertTrue(results.stream().allMatch(ProbeResult::isOnline));
+        assertEquals(2, peak.get("127.0.0.1").get());
+        assertEquals(2, peak.get("localhost").get());
+    }
+
+    private ProbeResult probe(String url) {
+        return engine.probeTargets(List.of(new ProbeTarget(1L, url))).blockFirst();
+    }
+
+    private String url(String host, String path) {
+        return "http://" + host + ":" + port + path;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonArrayStreamReaderTest {
+
+    private static final String STREAMS = """
+            [
+              {"channel": "BBCOne.uk", "url": "http://a.example/bbc.m3u8", "quality": "1080p"},
+              {"channel": "Télé5.fr", "url": "http://b.example/t\\u00e9l\\u00e9.m3u8", "quality": null,
+               "http_referrer": {"nested": [1, 2, {"deep": "]}"}]}},
+              {"channel": "NHK.jp", "url": "http://c.example/nhk.m3u8", "quality": "720p"}
+            ]
+            """;
+
+    private static final List<StreamEntry> EXPECTED = List.of(
+            new StreamEntry("BBCOne.uk", "http://a.example/bbc.m3u8", "1080p"),
+            new StreamEntry("Télé5.fr", "http://b.example/télé.m3u8", null),
+            new StreamEntry("NHK.jp", "http://c.example/nhk.m3u8", "720p"));
+
+    private JsonArrayStreamReader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = new JsonArrayStreamReader();
+        ReflectionTestUtils.setField(reader, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void readsElementsFromOneBuffer() {
+        assertEquals(EXPECTED, read(chunks(STREAMS, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    void readsElementsSplitIntoSingleBytes() {
+        // Every token, and the two-byte é, is cut at every possible position
+        assertEquals(EXPECTED, read(chunks(STREAMS, 1)));
+    }
+
+    @Test
+    void readsElementsSplitAtEveryOffset() {
+        byte[] bytes = STREAMS.getBytes(StandardCharsets.UTF_8);
+        for (int split = 1; split < bytes.length; split++) {
+            Flux<DataBuffer> body = Flux.just(
+                    buffer(Arrays.copyOfRange(bytes, 0, split)),
+                    buffer(Arrays.copyOfRange(bytes, split, bytes.length)));
+            assertEquals(EXPECTED, read(body), "split at byte " + split);
+        }
+    }
+
+    @Test
+    void emptyArrayHasNoElements() {
+        assertEquals(List.of(), read(chunks(" [ ] ", 1)));
+    }
+
+    @Test
+    void truncatedArrayFailsAfterTheCompleteElements() {
+        String truncated = STREAMS.substring(0, STREAMS.indexOf("\"NHK.jp\""));
+        List<StreamEntry> emitted = new ArrayList<>();
+
+        Flux<StreamEntry> elements = reader.readElements(chunks(truncated, 7), StreamEntry.class)
+                .doOnNext(emitted::add);
+
+        assertThrows(RuntimeException.class, elements::blockLast);
+        assertEquals(EXPECTED.subList(0, 2), emitted);
+    }
+
+    @Test
+    void truncatedInsideATokenFails() {
+        assertThrows(RuntimeException.class, () -> read(chunks("[{\"channel\": \"BBC", 3)));
+    }
+
+    @Test
+    void malformedArrayFails() {
+        String missingComma = "[{\"channel\": \"a\"} {\"channel\": \"b\"}]";
+        assertThrows(RuntimeException.class, () -> read(chunks(missingComma, 4)));
+    }
+
+    @Test
+    void topLevelObjectIsRejected() {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> read(chunks("{\"channel\": \"a\"}", 4)));
+        assertTrue(e.getMessage().contains("top-level JSON array"), e.getMessage());
+    }
+
+    private List<StreamEntry> read(Flux<DataBuffer> body) {
+        return reader.readElements(body, StreamEntry.class).collectList().block();
+    }
+
+    private static Flux<DataBuffer> chunks(String json, int size) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += size) {
+            buffers.add(buffer(Arrays.copyOfRange(bytes, offset, (int) Math.min(bytes.length, (long) offset + size))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    private static DataBuffer buffer(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
@@ -0,0 +1,181 @@
+package com.thebox.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamFeedCacheTest {
+
+    private static final String FEED = "streams";
+    private static final String BODY = "[{\"channel\": \"BBCOne.uk\", \"url\": \"http://a.example/bbc.m3u8\", \"quality\": \"1080p\"}]";
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer upstream;
+    private String url;
+    private UpstreamFeedCache cache;
+    private JsonArrayStreamReader reader;
+
+    private final AtomicReference<String> etag = new AtomicReference<>("\"v1\"");
+    private final AtomicReference<String> body = new AtomicReference<>(BODY);
+    private final AtomicInteger status = new AtomicInteger(200);
+    // If-None-Match of each request, null when absent
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        upstream.createContext("/streams.json", this::serve);
+        upstream.start();
+        url = "http://127.0.0.1:" + upstream.getAddress().getPort() + "/streams.json";
+
+        cache = new UpstreamFeedCache();
+        ReflectionTestUtils.setField(cache, "webClient", WebClient.create());
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "cacheDir", cacheDir.toString());
+        ReflectionTestUtils.setField(cache, "timeout", Duration.ofSeconds(5));
+
+        reader = new JsonArrayStreamReader();
+        ReflectionTestUtils.setField(reader, "objectMapper", new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.stop(0);
+    }
+
+    @Test
+    void firstFetchStoresTheBody() {
+        assertEquals(UpstreamFeedCache.Revalidation.MODIFIED, cache.revalidate(FEED, url));
+
+        assertTrue(cache.contains(FEED));
+        assertEquals(BODY, cached());
+        assertEquals(List.of(new StreamEntry("BBCOne.uk", "http://a.example/bbc.m3u8", "1080p")),
+                reader.readElements(cache.read(FEED), StreamEntry.class).collectList().block());
+        assertNull(conditions.get(0));
+    }
+
+    @Test
+    void notModifiedReusesTheCachedBody() throws IOException {
+        cache.revalidate(FEED, url);
+        cache.commit(FEED);
+        Path stored = cacheDir.resolve(FEED + ".json.gz");
+        byte[] before = Files.readAllBytes(stored);
+
+        assertEquals(UpstreamFeedCache.Revalidation.NOT_MODIFIED, cache.revalidate(FEED, url));
+
+        assertEquals("\"v1\"", conditions.get(1));
+        assertEquals(BODY, cached());
+        assertArrayEquals(before, Files.readAllBytes(stored));
+    }
+
+    @Test
+    void uncommittedBodyIsFetchedUnconditionally() {
+        cache.revalidate(FEED, url);
+
+        // The first body was never ingested, so its ETag must not be sent
+        assertEquals(UpstreamFeedCache.Revalidation.MODIFIED, cache.revalidate(FEED, url));
+        assertNull(conditions.get(1));
+    }
+
+    @Test
+    void changedFeedReplacesTheBody() {
+        cache.revalidate(FEED, url);
+        cache.commit(FEED);
+        etag.set("\"v2\"");
+        body.set("[]");
+
+        assertEquals(UpstreamFeedCache.Revalidation.MODIFIED, cache.revalidate(FEED, url));
+
+        assertEquals("\"v1\"", conditions.get(1));
+        assertEquals("[]", cached());
+    }
+
+    @Test
+    void failureKeepsTheCachedBody() {
+        cache.revalidate(FEED, url);
+        cache.commit(FEED);
+        status.set(500);
+
+        assertEquals(UpstreamFeedCache.Revalidation.FAILED, cache.revalidate(FEED, url));
+
+        assertEquals(BODY, cached());
+    }
+
+    @Test
+    void failureWithoutCachedBodyThrows() {
+        status.set(503);
+
+        assertThrows(IllegalStateException.class, () -> cache.revalidate(FEED, url));
+        assertFalse(cache.contains(FEED));
+    }
+
+    @Test
+    void truncatedCachedBodyFailsToParse() {
+        body.set(BODY.substring(0, BODY.length() / 2));
+        cache.revalidate(FEED, url);
+
+        assertThrows(RuntimeException.class,
+                () -> reader.readElements(cache.read(FEED), StreamEntry.class).collectList().block());
+    }
+
+    private String cached() {
+        return DataBufferUtils.join(cache.read(FEED))
+                .map(buffer -> {
+                    String text = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return text;
+                })
+                .block();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        conditions.add(ifNoneMatch);
+        if (status.get() != 200) {
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag.get());
+        if (etag.get().equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}